@@ -19,6 +19,7 @@ package net.sf.logsupport.actions;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.application.Result;
 import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Computable;
@@ -28,6 +29,7 @@ import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import net.sf.logsupport.ui.AbstractProcessingDialog;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static net.sf.logsupport.util.VirtualFileUtil.getSelectedFiles;
@@ -71,7 +73,13 @@ public abstract class AbstractProcessingAction extends AbstractAction {
 
 			Computable<List<PsiFile>> readAction = dialog.getReadOperation();
 			try {
-				final List<PsiFile> processableFiles = documentManager.commitAndRunReadAction(readAction);
+				final List<PsiFile> processableFiles;
+				if (dialog.isParallelScan() && readAction instanceof AbstractProcessingDialog.DefaultReadOperation) {
+					processableFiles = scanFiles(project, dialog, (AbstractProcessingDialog.DefaultReadOperation) readAction);
+					if (processableFiles == null)
+						return;
+				} else
+					processableFiles = documentManager.commitAndRunReadAction(readAction);
 
 				// Note: The runnable must be created here, as it may use a modal dialog to ask for input.
 				final Runnable writeOperation = dialog.getWriteOperation(processableFiles);
@@ -81,12 +89,17 @@ public abstract class AbstractProcessingAction extends AbstractAction {
 				try {
 					ProgressManager.getInstance().runProcessWithProgressSynchronously(new Runnable() {
 						public void run() {
-							new WriteCommandAction(project, dialog.getTitle(),
-									processableFiles.toArray(new PsiFile[processableFiles.size()])) {
-								protected void run(Result result) throws Throwable {
-									writeOperation.run();
-								}
-							}.execute();
+							if (writeOperation instanceof AbstractProcessingDialog.PreparedWriteOperation)
+								runPreparedWriteOperation(project, dialog.getTitle(),
+										(AbstractProcessingDialog.PreparedWriteOperation) writeOperation);
+							else {
+								new WriteCommandAction(project, dialog.getTitle(),
+										processableFiles.toArray(new PsiFile[processableFiles.size()])) {
+									protected void run(Result result) throws Throwable {
+										writeOperation.run();
+									}
+								}.execute();
+							}
 						}
 					}, dialog.getTitle(), true, project);
 				} finally {
@@ -97,4 +110,50 @@ public abstract class AbstractProcessingAction extends AbstractAction {
 			}
 		}
 	}
+
+	/**
+	 * Prepares the changes of the given write operation and applies them using a sequence of short write
+	 * commands (see {@link ChunkedWriteCommand}).
+	 *
+	 * @param project		the project.
+	 * @param title		  the title of the write command.
+	 * @param writeOperation the write operation to run.
+	 */
+	protected void runPreparedWriteOperation(Project project, String title,
+											 final AbstractProcessingDialog.PreparedWriteOperation writeOperation) {
+		ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+		if (indicator != null)
+			indicator.setIndeterminate(true);
+
+		writeOperation.prepare();
+
+		new ChunkedWriteCommand(project, title, writeOperation.getChangedFiles()) {
+			protected void run(PsiFile file) {
+				writeOperation.apply(file);
+			}
+		}.execute(indicator);
+	}
+
+	/**
+	 * Runs the given read operation on parallel workers inside a modal and cancelable progress.
+	 *
+	 * @param project	   the project.
+	 * @param dialog		the dialog that created the read operation.
+	 * @param readOperation the read operation to run.
+	 * @return the files to process or 'null' if the scan was canceled.
+	 */
+	protected List<PsiFile> scanFiles(Project project, AbstractProcessingDialog dialog,
+									  final AbstractProcessingDialog.DefaultReadOperation readOperation) {
+		PsiDocumentManager.getInstance(project).commitAllDocuments();
+
+		final List<PsiFile> processableFiles = new ArrayList<PsiFile>();
+		boolean completed = ProgressManager.getInstance().runProcessWithProgressSynchronously(new Runnable() {
+			public void run() {
+				ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+				processableFiles.addAll(readOperation.compute(indicator));
+			}
+		}, dialog.getTitle(), true, project);
+
+		return completed ? processableFiles : null;
+	}
 }
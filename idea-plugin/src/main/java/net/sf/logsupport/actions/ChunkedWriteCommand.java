@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.actions;
+
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.ReadonlyStatusHandler;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import net.sf.logsupport.util.NotificationUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Applies changes to many files using a sequence of short write commands instead of a single long one.
+ * <p/>
+ * Files are processed in chunks that are bounded by a number of files and a time limit. Every chunk is executed
+ * as a separate write command on the event dispatch thread, which is released between the chunks, so that
+ * indexing, highlighting and the UI can proceed. All chunks share the same command group and are undone
+ * together. Cancellation is checked between files, files that were processed remain changed.
+ * <p/>
+ * Read-only files are made writable (e.g. checked out) before the first chunk, the command is aborted with an
+ * error notification if this fails or is declined.
+ * <p/>
+ * {@link #execute(ProgressIndicator)} is meant to be called from the thread of a background progress.
+ *
+ * @author Juergen_Kellerer, 2011-10-16
+ * @version 1.0
+ */
+abstract class ChunkedWriteCommand {
+
+	private static final Logger LOG = Logger.getInstance("#net.sf.logsupport.actions.ChunkedWriteCommand");
+
+	/**
+	 * Is the maximum number of files that are processed inside a single write command.
+	 */
+	static final int MAX_FILES_PER_CHUNK = 50;
+
+	/**
+	 * Is the time in milliseconds after which a write command is finished, regardless of the processed files.
+	 */
+	static final long MAX_MILLIS_PER_CHUNK = 200;
+
+	private final Project project;
+	private final String title;
+	private final List<PsiFile> files;
+	private final Object groupId = new Object();
+
+	private int processedFiles;
+	private boolean canceled;
+
+	protected ChunkedWriteCommand(Project project, String title, Collection<PsiFile> files) {
+		this.project = project;
+		this.title = title;
+		this.files = new ArrayList<PsiFile>(files);
+	}
+
+	/**
+	 * Applies the changes of a single file, is called inside a write action.
+	 *
+	 * @param file the file to change.
+	 */
+	protected abstract void run(PsiFile file);
+
+	/**
+	 * Processes all files in chunks of write commands.
+	 *
+	 * @param indicator the indicator used to report the progress and to check for cancellation, may be 'null'.
+	 * @return true if all files were processed, false if the operation was canceled or files remained read-only.
+	 */
+	public boolean execute(final ProgressIndicator indicator) {
+		final Application application = ApplicationManager.getApplication();
+		final ModalityState modalityState = indicator == null ?
+				ModalityState.defaultModalityState() : indicator.getModalityState();
+
+		if (indicator != null) {
+			indicator.setIndeterminate(false);
+			indicator.setText(title);
+		}
+
+		final boolean[] writable = {false};
+		runOnDispatchThread(application, modalityState, new Runnable() {
+			public void run() {
+				writable[0] = ensureFilesWritable();
+			}
+		});
+
+		if (!writable[0]) {
+			LOG.info(String.format("Aborted '%s' as files could not be made writable.", title));
+			return false;
+		}
+
+		while (processedFiles < files.size() && !isCanceled(indicator)) {
+			runOnDispatchThread(application, modalityState, new Runnable() {
+				public void run() {
+					CommandProcessor.getInstance().executeCommand(project, new Runnable() {
+						public void run() {
+							application.runWriteAction(new Runnable() {
+								public void run() {
+									runChunk(indicator);
+								}
+							});
+						}
+					}, title, groupId);
+				}
+			});
+		}
+
+		if (canceled)
+			LOG.info(String.format("Canceled '%s' after %d of %d files.", title, processedFiles, files.size()));
+
+		return !canceled;
+	}
+
+	private void runChunk(ProgressIndicator indicator) {
+		final long deadline = System.currentTimeMillis() + MAX_MILLIS_PER_CHUNK;
+		final int end = Math.min(files.size(), processedFiles + MAX_FILES_PER_CHUNK);
+
+		while (processedFiles < end && !isCanceled(indicator)) {
+			PsiFile file = files.get(processedFiles++);
+			if (indicator != null) {
+				VirtualFile virtualFile = file.getVirtualFile();
+				if (virtualFile != null)
+					indicator.setText2(virtualFile.getPresentableUrl());
+				indicator.setFraction((double) processedFiles / files.size());
+			}
+
+			if (file.isValid() && file.isWritable())
+				run(file);
+
+			if (System.currentTimeMillis() > deadline)
+				break;
+		}
+	}
+
+	/**
+	 * Makes all read-only files writable, reporting an error if this fails.
+	 *
+	 * @return true if all files are writable.
+	 */
+	private boolean ensureFilesWritable() {
+		List<VirtualFile> virtualFiles = new ArrayList<VirtualFile>(files.size());
+		for (PsiFile file : files) {
+			VirtualFile virtualFile = file.getVirtualFile();
+			if (virtualFile != null && !virtualFile.isWritable())
+				virtualFiles.add(virtualFile);
+		}
+
+		if (virtualFiles.isEmpty())
+			return true;
+
+		ReadonlyStatusHandler.OperationStatus status = ReadonlyStatusHandler.getInstance(project).
+				ensureFilesWritable(virtualFiles.toArray(new VirtualFile[virtualFiles.size()]));
+		if (status.hasReadonlyFiles()) {
+			NotificationUtil.notifyError(status.getReadonlyFilesMessage(), project);
+			return false;
+		}
+
+		return true;
+	}
+
+	private boolean isCanceled(ProgressIndicator indicator) {
+		if (!canceled && indicator != null && indicator.isCanceled())
+			canceled = true;
+		return canceled;
+	}
+
+	private static void runOnDispatchThread(Application application, ModalityState modalityState,
+											Runnable runnable) {
+		if (application.isDispatchThread())
+			runnable.run();
+		else
+			application.invokeAndWait(runnable, modalityState);
+	}
+}
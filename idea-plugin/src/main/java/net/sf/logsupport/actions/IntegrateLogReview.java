@@ -16,10 +16,7 @@
 
 package net.sf.logsupport.actions;
 
-import com.intellij.codeInsight.actions.ReformatCodeProcessor;
 import com.intellij.openapi.actionSystem.AnActionEvent;
-import com.intellij.openapi.application.Result;
-import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
@@ -29,9 +26,10 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import net.sf.logsupport.ui.IntegrateLogReviewDialog;
 import net.sf.logsupport.ui.util.Dialogs;
-import net.sf.logsupport.util.LogPsiElementFactory;
+import net.sf.logsupport.util.LogMessageLocator;
 import net.sf.logsupport.util.LogPsiUtil;
 import net.sf.logsupport.util.ReflectionUtil;
+import net.sf.logsupport.util.ReviewChangeSet;
 import net.sf.logsupport.util.VirtualFileUtil;
 
 import java.util.*;
@@ -57,26 +55,31 @@ public class IntegrateLogReview extends AbstractAction {
 
 		if (dialog.isOK()) {
 			final List<LogMessage> reviewedMessages = dialog.getReviewedMessages();
+			final boolean reformatStatements = dialog.isReformatStatements();
 
 			PsiDocumentManager.getInstance(project).commitAllDocuments();
 
 			final PsiManager manager = PsiManager.getInstance(project);
-			final Map<PsiFile, Map<LogMessage, List<LogMessage>>> mappedMessages = getMappedMessages(manager);
+			final IdVersion idVersion = IdVersion.of(reviewedMessages);
+			final Map<PsiFile, Map<LogMessage, List<LogMessage>>> mappedMessages = dialog.isLocateMessages() ?
+					getLocatedMessages(manager, reviewedMessages, idVersion) : getMappedMessages(manager, idVersion);
 
 			LOG.info("Identifying files that contain messages that were changed in the log review process.");
-			final int pendingChangeCount = removeAllUnchangedMessages(mappedMessages, reviewedMessages);
+			final ReviewChangeSet changeSet = ReviewChangeSet.create(mappedMessages, reviewedMessages);
+			final int pendingChangeCount = changeSet.getMessageCount();
 
-			if (mappedMessages.isEmpty()) {
+			if (changeSet.isEmpty()) {
 				LOG.info("Not applying any reviewed message, operation was either canceled or " +
 						"review did not contain any changes.");
 				return;
 			}
 
+			final Set<PsiFile> processableFiles = changeSet.getFiles();
 			if (!Dialogs.confirmOverwrite(message("IntegrateLogReview.integrateConfirmation",
-					pendingChangeCount, mappedMessages.size()))) {
+					pendingChangeCount, processableFiles.size()))) {
 
 				LOG.info(String.format("Aborted the integration of %d messages in %d files.",
-						pendingChangeCount, mappedMessages.size()));
+						pendingChangeCount, processableFiles.size()));
 				return;
 			}
 
@@ -84,20 +87,16 @@ public class IntegrateLogReview extends AbstractAction {
 			pm.runProcessWithProgressSynchronously(new Runnable() {
 						public void run() {
 							final ProgressIndicator indicator = pm.getProgressIndicator();
-							indicator.setIndeterminate(true);
 
 							manager.startBatchFilesProcessingMode();
 							try {
 								final String title = message("IntegrateLogReview.integrateApplyJobTitle", pendingChangeCount);
 
-								Set<PsiFile> processableFiles = mappedMessages.keySet();
-								new WriteCommandAction(project, title,
-										processableFiles.toArray(new PsiFile[processableFiles.size()])) {
-									protected void run(Result result) throws Throwable {
-										indicator.setText(title);
-										getWriteOperation(mappedMessages, reviewedMessages, indicator).run();
+								new ChunkedWriteCommand(project, title, processableFiles) {
+									protected void run(PsiFile file) {
+										applyChanges(changeSet, file, reformatStatements);
 									}
-								}.execute();
+								}.execute(indicator);
 							} finally {
 								manager.finishBatchFilesProcessingMode();
 							}
@@ -110,161 +109,143 @@ public class IntegrateLogReview extends AbstractAction {
 	 * Search all log messages and maps them against the PsiFile that contained the message.
 	 * Similar messages are grouped under the first message used as key.
 	 *
-	 * @param manager the PsiManager to use.
+	 * @param manager   the PsiManager to use.
+	 * @param idVersion the algorithm to use for computing message IDs (must match the review).
 	 * @return a map of PsiFile to the log messages it contains.
 	 */
-	private Map<PsiFile, Map<LogMessage, List<LogMessage>>> getMappedMessages(PsiManager manager) {
+	private Map<PsiFile, Map<LogMessage, List<LogMessage>>> getMappedMessages(PsiManager manager,
+																			  IdVersion idVersion) {
 		Map<PsiFile, Map<LogMessage, List<LogMessage>>> messageMap =
 				new HashMap<PsiFile, Map<LogMessage, List<LogMessage>>>();
+		mapMessages(manager, getAllFiles(manager.getProject()), messageMap, idVersion);
+		return messageMap;
+	}
 
-		List<VirtualFile> allFiles = VirtualFileUtil.toFiles(manager.getProject(),
-				VirtualFileUtil.getSourceDirectories(manager.getProject(), true), true);
-		allFiles = VirtualFileUtil.toSupportedFiles(allFiles, false);
+	/**
+	 * Maps only the files that contain messages which were modified inside the review.
+	 * <p/>
+	 * Files are located using the source locations recorded in the review and the location index of
+	 * previously seen messages. A message counts as located only if all its recorded locations (or all files
+	 * of the index) resolve to files that contain the message, all other messages may have occurrences in
+	 * further files and the whole project is searched for them.
+	 *
+	 * @param manager		  the PsiManager to use.
+	 * @param reviewedMessages the messages of the review.
+	 * @param idVersion		the algorithm to use for computing message IDs (must match the review).
+	 * @return a map of PsiFile to the log messages it contains.
+	 */
+	private Map<PsiFile, Map<LogMessage, List<LogMessage>>> getLocatedMessages(
+			PsiManager manager, List<LogMessage> reviewedMessages, IdVersion idVersion) {
+		Map<PsiFile, Map<LogMessage, List<LogMessage>>> messageMap =
+				new HashMap<PsiFile, Map<LogMessage, List<LogMessage>>>();
 
-		for (VirtualFile virtualFile : allFiles) {
-			checkCanceled();
-			PsiFile file = manager.findFile(virtualFile);
-			if (file == null)
-				continue;
+		Set<String> pendingIds = new HashSet<String>();
+		List<LogMessage> modifiedMessages = new ArrayList<LogMessage>();
+		for (LogMessage message : reviewedMessages) {
+			if (message.isModified() && pendingIds.add(message.getId()))
+				modifiedMessages.add(message);
+		}
 
-			List<PsiMethodCallExpression> calls = LogPsiUtil.findSupportedLoggerCalls(file);
-			if (calls.isEmpty())
-				continue;
+		LogMessageLocator locator = new LogMessageLocator(manager.getProject());
+		mapMessages(manager, locator.findReviewedFiles(modifiedMessages), messageMap, idVersion);
 
-			messageMap.put(file, toMessages(calls, false));
+		for (LogMessage message : modifiedMessages) {
+			Set<VirtualFile> files = locator.findReviewedFiles(message);
+			if (files != null && isContainedInAll(manager, files, message.getId(), messageMap))
+				pendingIds.remove(message.getId());
+		}
+
+		for (Iterator<String> i = pendingIds.iterator(); i.hasNext(); ) {
+			String id = i.next();
+			Set<VirtualFile> files = locator.findIndexedFiles(id);
+			mapMessages(manager, files, messageMap, idVersion);
+			if (isContainedInAll(manager, files, id, messageMap))
+				i.remove();
+		}
+
+		if (!pendingIds.isEmpty()) {
+			LOG.info(String.format("Searching the project for %d reviewed messages that could not be located.",
+					pendingIds.size()));
+			mapMessages(manager, getAllFiles(manager.getProject()), messageMap, idVersion);
 		}
 
 		return messageMap;
 	}
 
 	/**
-	 * Normalizes the pending changes by removing all unchanged messages.
+	 * Adds the log messages of the given files to the message map, skipping files that are already mapped.
 	 *
-	 * @param mappedMessages   The messages contained inside the project mapped against the PsiFile.
-	 * @param reviewedMessages A flat list of all reviewed messages that are pending their integration.
-	 * @return The count of pending of changes.
+	 * @param manager	the PsiManager to use.
+	 * @param files	  the files to map.
+	 * @param messageMap the map to add the messages to.
+	 * @param idVersion  the algorithm to use for computing message IDs.
 	 */
-	private int removeAllUnchangedMessages(
-			Map<PsiFile, Map<LogMessage, List<LogMessage>>> mappedMessages,
-			List<LogMessage> reviewedMessages) {
-
-		int pendingChangeCount = 0;
-
-		reduceLoop:
-		for (Iterator<Map<LogMessage, List<LogMessage>>> i = mappedMessages.values().iterator(); i.hasNext(); ) {
+	private void mapMessages(PsiManager manager, Collection<VirtualFile> files,
+							 Map<PsiFile, Map<LogMessage, List<LogMessage>>> messageMap, IdVersion idVersion) {
+		for (VirtualFile virtualFile : files) {
 			checkCanceled();
+			if (!VirtualFileUtil.isSupportedFile(virtualFile))
+				continue;
 
-			Map<LogMessage, List<LogMessage>> fileMessages = i.next();
-			for (LogMessage message : reviewedMessages) {
-				List<LogMessage> similarFileMessages = fileMessages.get(message);
-				if (similarFileMessages != null) {
-					Iterator<LogMessage> mi = similarFileMessages.iterator();
-					while (mi.hasNext()) {
-						LogMessage m = mi.next();
-
-						if (m.getLogMessage().equals(message.getLogMessage())) {
-							if (LOG.isDebugEnabled())
-								LOG.debug("Not integrating unchanged log message '" + message + "'");
-							mi.remove();
-						}
+			PsiFile file = manager.findFile(virtualFile);
+			if (file == null || messageMap.containsKey(file))
+				continue;
 
-						if (m.getLogMessage().size() != message.getLogMessage().size()) {
-							LOG.warn("The log message artifacts differ in length, " +
-									"not applying reviewed message '" + message + "' to '" + m + "'");
-							mi.remove();
-						}
-					}
+			List<PsiMethodCallExpression> calls = LogPsiUtil.findSupportedLoggerCalls(file);
+			if (calls.isEmpty())
+				continue;
 
-					if (!similarFileMessages.isEmpty()) {
-						pendingChangeCount += similarFileMessages.size();
-						continue reduceLoop;
-					}
-				}
-			}
-			i.remove();
+			messageMap.put(file, toMessages(calls, false, idVersion));
 		}
-
-		return pendingChangeCount;
 	}
 
 	/**
-	 * Returns the actual write operation.
+	 * Returns true if the given files are not empty and every file was mapped with a message of the given id.
 	 *
-	 * @param mappedMessages   The messages contained inside the project mapped against the PsiFile.
-	 * @param reviewedMessages A flat list of all reviewed messages that are pending their integration.
-	 * @param indicator		The indicator to use for specifying the overall progress.
-	 * @return A runnable that performs the actual writes.
+	 * @param manager	the PsiManager to use.
+	 * @param files	  the files to check.
+	 * @param id		 the message id to look for.
+	 * @param messageMap the mapped messages.
+	 * @return true if every file contains the message.
 	 */
-	private Runnable getWriteOperation(
-			final Map<PsiFile, Map<LogMessage, List<LogMessage>>> mappedMessages,
-			final List<LogMessage> reviewedMessages, final ProgressIndicator indicator) {
-
-		return new Runnable() {
-			public void run() {
-				indicator.setIndeterminate(false);
-				double processedFiles = 0, totalFiles = mappedMessages.size();
-
-				for (Map.Entry<PsiFile, Map<LogMessage, List<LogMessage>>> entry : mappedMessages.entrySet()) {
-					checkCanceled();
-
-					final PsiFile file = entry.getKey();
-					final LogPsiElementFactory elementFactory = LogPsiUtil.getFactory(file);
-					final Map<LogMessage, List<LogMessage>> fileMessages = entry.getValue();
-
-					VirtualFile virtualFile = file.getVirtualFile();
-					if (virtualFile != null)
-						indicator.setText2(virtualFile.getPresentableUrl());
-
-					boolean changed = false;
-					for (LogMessage message : reviewedMessages) {
-						List<LogMessage> msgs = fileMessages.get(message);
-						if (msgs != null) {
-							for (LogMessage msg : msgs) {
-								Iterator<MessageArtifact> source = message.getLogMessage().iterator();
-								Iterator<MessageArtifact> target = msg.getLogMessage().iterator();
-
-								while (source.hasNext() && target.hasNext()) {
-									MessageArtifact sma = source.next();
-									MessageArtifact tma = target.next();
-									if (tma.isEditable()) {
-										tma.getValue().replace(toLiteralExpression(elementFactory,
-												sma.toString(), tma.getValue().getContext()));
-										changed = true;
-									}
-								}
-							}
-						}
-					}
+	private static boolean isContainedInAll(PsiManager manager, Collection<VirtualFile> files, String id,
+											Map<PsiFile, Map<LogMessage, List<LogMessage>>> messageMap) {
+		if (files.isEmpty())
+			return false;
+
+		for (VirtualFile virtualFile : files) {
+			PsiFile file = virtualFile.isValid() ? manager.findFile(virtualFile) : null;
+			Map<LogMessage, List<LogMessage>> fileMessages = file == null ? null : messageMap.get(file);
+			if (fileMessages == null || !containsId(fileMessages.keySet(), id))
+				return false;
+		}
 
-					if (changed) {
-						ReformatCodeProcessor codeProcessor = new ReformatCodeProcessor(
-								file.getProject(), file, file.getTextRange());
-						codeProcessor.runWithoutProgress();
-					}
+		return true;
+	}
 
-					processedFiles++;
-					indicator.setFraction(processedFiles / totalFiles);
-				}
-			}
+	private static boolean containsId(Collection<LogMessage> messages, String id) {
+		for (LogMessage message : messages) {
+			if (id.equals(message.getId()))
+				return true;
+		}
+		return false;
+	}
 
-			PsiLiteralExpression toLiteralExpression(LogPsiElementFactory elementFactory,
-													 String text, PsiElement context) {
-				String delimiters = "\"\n\r\\";
-				StringBuilder string = new StringBuilder(text.length() + 4).append('"');
-				StringTokenizer t = new StringTokenizer(text, delimiters, true);
-
-				while (t.hasMoreTokens()) {
-					String token = t.nextToken();
-					if (token.length() == 1 && delimiters.indexOf(token.charAt(0)) != -1)
-						string.append('\\').append(token);
-					else
-						string.append(token);
-				}
-
-				return (PsiLiteralExpression) elementFactory.
-						createExpressionFromText(string.append('"').toString(), context);
-			}
-		};
+	private static List<VirtualFile> getAllFiles(Project project) {
+		return VirtualFileUtil.toFiles(project, VirtualFileUtil.getSourceDirectories(project, true), true);
+	}
+
+	/**
+	 * Applies the precomputed changes of a single file, must be called inside a write action.
+	 *
+	 * @param changeSet		  The precomputed changes to apply.
+	 * @param file			   The file to change.
+	 * @param reformatStatements Whether the statements that contain changed literals are reformatted.
+	 */
+	private static void applyChanges(ReviewChangeSet changeSet, PsiFile file, boolean reformatStatements) {
+		int appliedChanges = changeSet.apply(file, reformatStatements);
+		if (LOG.isDebugEnabled())
+			LOG.debug(String.format("Applied %d changes to %s.", appliedChanges, file.getName()));
 	}
 
 	static void checkCanceled() {
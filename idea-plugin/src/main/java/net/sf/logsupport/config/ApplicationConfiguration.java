@@ -19,11 +19,13 @@ package net.sf.logsupport.config;
 import com.intellij.openapi.application.ApplicationManager;
 import net.sf.logsupport.LogSupportComponent;
 import net.sf.logsupport.config.defaults.LogFrameworkDefaultsList;
+import net.sf.logsupport.util.LogMethodNameIndex;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Holds the application specific configuration.
@@ -43,8 +45,29 @@ public class ApplicationConfiguration {
 		return logFrameworkDefaults;
 	}
 
+	private static final AtomicLong configurationModificationCount = new AtomicLong();
+
+	/**
+	 * Returns a counter that is incremented whenever the application or any project log configuration changed.
+	 *
+	 * @return a counter that is incremented whenever the application or any project log configuration changed.
+	 */
+	public static long getConfigurationModificationCount() {
+		return configurationModificationCount.get();
+	}
+
+	/**
+	 * Must be called after the application or a project log configuration changed to invalidate cached lookups.
+	 */
+	public static void configurationChanged() {
+		configurationModificationCount.incrementAndGet();
+	}
+
 	private List<LogFramework> frameworks;
 
+	private transient volatile int frameworksModificationCount;
+	private transient volatile LogMethodNameIndex logMethodNameIndex;
+
 	@Nullable
 	public LogFramework getFramework(String name) {
 		name = String.valueOf(name);
@@ -62,6 +85,7 @@ public class ApplicationConfiguration {
 		if (frameworks.isEmpty()) {
 			for (LogFramework framework : logFrameworkDefaults)
 				frameworks.add(framework.copy());
+			frameworksChanged();
 		}
 		return frameworks;
 	}
@@ -73,5 +97,39 @@ public class ApplicationConfiguration {
 			for (LogFramework framework : logFrameworkDefaults.getMissingDefaults(frameworks))
 				frameworks.add(framework.copy());
 		}
+
+		frameworksChanged();
+	}
+
+	/**
+	 * Must be called after the list of frameworks or one of its elements was modified in place.
+	 */
+	public void frameworksChanged() {
+		frameworksModificationCount++;
+		logMethodNameIndex = null;
+
+		if (frameworks != null) {
+			for (LogFramework framework : frameworks)
+				framework.logMethodsChanged();
+		}
+
+		configurationChanged();
+	}
+
+	/**
+	 * Returns the precompiled index of all log method names, the index is rebuilt after the frameworks changed.
+	 *
+	 * @return the precompiled index of all log method names.
+	 */
+	@NotNull
+	public LogMethodNameIndex getLogMethodNameIndex() {
+		LogMethodNameIndex index = logMethodNameIndex;
+		if (index == null) {
+			int modificationCount = frameworksModificationCount;
+			index = new LogMethodNameIndex(getFrameworks());
+			if (modificationCount == frameworksModificationCount)
+				logMethodNameIndex = index;
+		}
+		return index;
 	}
 }
@@ -48,6 +48,8 @@ public abstract class LogConfiguration { //NOSONAR
 	protected NumericLogIdGenerator logIdGenerator;
 	protected boolean forceUsingDefaultLogFramework;
 
+	private transient volatile SupportedLoggerClasses supportedLoggerClasses;
+
 	/**
 	 * Returns true if the log configuration allows the usage of the named logger class.
 	 * <p/>
@@ -63,26 +65,62 @@ public abstract class LogConfiguration { //NOSONAR
 
 	/**
 	 * Returns a set of supported logger class names.
+	 * <p/>
+	 * Note: The returned set is immutable and is only computed again after the configuration changed.
 	 *
 	 * @return A set of logger names that are usable for logging.
 	 */
 	@NotNull
 	public Set<String> getSupportedLoggerClasses() {
-		Set<String> classes;
-		LogFramework defaultLogFramework = getDefaultLogFramework();
-		if (isForceUsingDefaultLogFramework()) {
-			classes = defaultLogFramework == null ? Collections.<String>emptySet() :
-					Collections.singleton(defaultLogFramework.getLoggerClass());
-		} else {
-			classes = new LinkedHashSet<String>();
-			if (defaultLogFramework != null)
-				classes.add(defaultLogFramework.getLoggerClass());
+		final LogFramework defaultLogFramework = getDefaultLogFramework();
+		final boolean forceUsingDefaultLogFramework = isForceUsingDefaultLogFramework();
+		final long modificationCount = ApplicationConfiguration.getConfigurationModificationCount();
+
+		SupportedLoggerClasses classes = supportedLoggerClasses;
+		if (classes == null || !classes.isUpToDate(defaultLogFramework, forceUsingDefaultLogFramework, modificationCount)) {
+			supportedLoggerClasses = classes = new SupportedLoggerClasses(
+					defaultLogFramework, forceUsingDefaultLogFramework, modificationCount);
+		}
 
-			for (LogFramework f : ApplicationConfiguration.getInstance().getFrameworks())
-				classes.add(f.getLoggerClass());
+		return classes.classes;
+	}
+
+	/**
+	 * Holds the immutable set of supported logger classes together with the state it was computed from.
+	 */
+	private static final class SupportedLoggerClasses {
+		final LogFramework defaultLogFramework;
+		final boolean forceUsingDefaultLogFramework;
+		final long modificationCount;
+		final Set<String> classes;
+
+		SupportedLoggerClasses(LogFramework defaultLogFramework, boolean forceUsingDefaultLogFramework,
+							   long modificationCount) {
+			this.defaultLogFramework = defaultLogFramework;
+			this.forceUsingDefaultLogFramework = forceUsingDefaultLogFramework;
+			this.modificationCount = modificationCount;
+
+			if (forceUsingDefaultLogFramework) {
+				classes = defaultLogFramework == null ? Collections.<String>emptySet() :
+						Collections.singleton(defaultLogFramework.getLoggerClass());
+			} else {
+				Set<String> classes = new LinkedHashSet<String>();
+				if (defaultLogFramework != null)
+					classes.add(defaultLogFramework.getLoggerClass());
+
+				for (LogFramework f : ApplicationConfiguration.getInstance().getFrameworks())
+					classes.add(f.getLoggerClass());
+
+				this.classes = Collections.unmodifiableSet(classes);
+			}
 		}
 
-		return classes;
+		boolean isUpToDate(LogFramework defaultLogFramework, boolean forceUsingDefaultLogFramework,
+						   long modificationCount) {
+			return this.defaultLogFramework == defaultLogFramework &&
+					this.forceUsingDefaultLogFramework == forceUsingDefaultLogFramework &&
+					this.modificationCount == modificationCount;
+		}
 	}
 
 	/**
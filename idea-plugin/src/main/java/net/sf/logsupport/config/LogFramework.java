@@ -17,6 +17,7 @@
 package net.sf.logsupport.config;
 
 import com.intellij.psi.PsiModifier;
+import net.sf.logsupport.util.LogLevelTable;
 
 import java.util.*;
 
@@ -58,6 +59,8 @@ public class LogFramework {
 	private Map<LogLevel, String> logMethod = new HashMap<LogLevel, String>();
 	private Map<LogLevel, String> enabledGetterMethod = new HashMap<LogLevel, String>();
 
+	private transient volatile LogLevelTable logLevelTable;
+
 	{
 		// Setting defaults for method names and enabledGetters.
 		for (LogLevel level : LogLevel.values()) {
@@ -101,6 +104,7 @@ public class LogFramework {
 
 		logMethod.clear();
 		logMethod.putAll(other.logMethod);
+		logLevelTable = null;
 
 		enabledGetterMethod.clear();
 		enabledGetterMethod.putAll(other.enabledGetterMethod);
@@ -314,6 +318,29 @@ public class LogFramework {
 			this.logMethod.clear();
 		else
 			this.logMethod = logMethod;
+		logLevelTable = null;
+	}
+
+	/**
+	 * Returns the precomputed table used to detect the log level of a call to one of the log methods.
+	 * <p/>
+	 * Note: The table is built on first access and is dropped when the log methods are set or imported, or
+	 * when {@link #logMethodsChanged()} is called after the map of {@link #getLogMethod()} was modified in place.
+	 *
+	 * @return the precomputed table used to detect the log level of a call.
+	 */
+	public LogLevelTable getLogLevelTable() {
+		LogLevelTable table = logLevelTable;
+		if (table == null)
+			logLevelTable = table = new LogLevelTable(logMethod);
+		return table;
+	}
+
+	/**
+	 * Must be called after the map returned by {@link #getLogMethod()} was modified in place.
+	 */
+	public void logMethodsChanged() {
+		logLevelTable = null;
 	}
 
 	public Map<LogLevel, String> getEnabledGetterMethod() {
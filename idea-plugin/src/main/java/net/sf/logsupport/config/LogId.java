@@ -16,7 +16,7 @@
 
 package net.sf.logsupport.config;
 
-import net.sf.logsupport.util.BasicLogIdGenerator;
+import net.sf.logsupport.util.LeasingLogIdGenerator;
 import net.sf.logsupport.util.LogIdGenerator;
 import net.sf.logsupport.util.NumericLogIdGenerator;
 
@@ -44,7 +44,7 @@ public class LogId implements Cloneable {
 												 String prefix, String trailer,
 												 int startSequence, int increment) {
 		String idPattern = prefix + formatPattern + trailer;
-		return new BasicLogIdGenerator(
+		return new LeasingLogIdGenerator(
 				idPattern, Pattern.compile(matcherPattern, Pattern.DOTALL), startSequence, increment);
 	}
 
@@ -91,5 +91,6 @@ public class ProjectConfiguration {
 		this.logConfigurations = logConfigurations;
 		if (logConfigurations != null)
 			logConfigurations.init(project);
+		ApplicationConfiguration.configurationChanged();
 	}
 }
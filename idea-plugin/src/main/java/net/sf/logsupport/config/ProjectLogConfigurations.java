@@ -49,6 +49,7 @@ public class ProjectLogConfigurations implements Cloneable {
 			setDefaultLogConfiguration(other.getDefaultLogConfiguration());
 			setTargetedLogConfigurations(other.getTargetedLogConfigurations());
 			init(other.project);
+			ApplicationConfiguration.configurationChanged();
 		} catch (CloneNotSupportedException e) {
 			throw new RuntimeException(e);
 		}
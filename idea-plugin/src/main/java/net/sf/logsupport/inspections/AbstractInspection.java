@@ -26,7 +26,7 @@ import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.PsiMethodCallExpression;
 import com.intellij.psi.PsiReferenceExpression;
 import net.sf.logsupport.L10N;
-import net.sf.logsupport.util.LogPsiUtil;
+import net.sf.logsupport.util.LogCallInfo;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -95,7 +95,7 @@ public abstract class AbstractInspection extends BaseJavaLocalInspectionTool {
 
 			@Override
 			public void visitMethodCallExpression(PsiMethodCallExpression expression) {
-				if (LogPsiUtil.isSupportedLoggerCall(expression)) {
+				if (LogCallInfo.getInstance(expression).isSupported()) {
 					String problemMessage = checkLogMethodCall(expression, holder.getManager(), isOnTheFly);
 					if (problemMessage != null)
 						holder.registerProblem(expression, problemMessage);
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.inspections;
+
+import net.sf.logsupport.util.ArgumentType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.text.ChoiceFormat;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Describes the placeholders of a formatted log message without formatting anything.
+ * <p/>
+ * The parsers follow the pattern syntax of {@link java.util.Formatter} (printf), {@link java.text.MessageFormat}
+ * and custom placeholder expressions. Every placeholder knows the argument it refers to and the
+ * {@link ArgumentType}s it accepts, allowing to verify log calls against the classified argument types only.
+ *
+ * @author Juergen_Kellerer, 2011-10-09
+ * @version 1.0
+ */
+final class MessagePlaceholders {
+
+	private static final String PRINTF_FLAGS = "-#+ 0,(<";
+	private static final int FLAG_LEFT_JUSTIFY = 1, FLAG_ALTERNATE = 1 << 1, FLAG_PLUS = 1 << 2, FLAG_SPACE = 1 << 3,
+			FLAG_ZERO = 1 << 4, FLAG_GROUP = 1 << 5, FLAG_PARENTHESES = 1 << 6, FLAG_PREVIOUS = 1 << 7;
+	private static final String PRINTF_DATE_CONVERSIONS = "HIklMSLNpzZsQBbhAaCYyjmdeRTrDFc";
+
+	private static final Set<ArgumentType> NONE = Collections.unmodifiableSet(EnumSet.noneOf(ArgumentType.class));
+	private static final Set<ArgumentType> CHARACTERS = EnumSet.of(
+			ArgumentType.CHAR, ArgumentType.BYTE, ArgumentType.SHORT, ArgumentType.INT);
+	private static final Set<ArgumentType> DATES = EnumSet.of(ArgumentType.DATE,
+			ArgumentType.DOUBLE, ArgumentType.FLOAT, ArgumentType.LONG, ArgumentType.INT, ArgumentType.SHORT, ArgumentType.BYTE);
+	private static final Set<ArgumentType> PRINTF_DATES = EnumSet.of(ArgumentType.DATE, ArgumentType.LONG);
+
+	private static final String[] MF_TYPES = {"", "number", "date", "time", "choice"};
+	private static final String[] MF_NUMBER_STYLES = {"", "currency", "percent", "integer"};
+	private static final String[] MF_DATE_STYLES = {"", "short", "medium", "long", "full"};
+
+	/**
+	 * Describes a single placeholder.
+	 */
+	static final class Placeholder {
+
+		private final String message;
+		private final int start, end, argumentIndex;
+		private final char conversion;
+		private final Set<ArgumentType> acceptedTypes;
+
+		Placeholder(String message, int start, int end, int argumentIndex,
+					char conversion, Set<ArgumentType> acceptedTypes) {
+			this.message = message;
+			this.start = start;
+			this.end = end;
+			this.argumentIndex = argumentIndex;
+			this.conversion = conversion;
+			this.acceptedTypes = acceptedTypes;
+		}
+
+		/**
+		 * Returns the zero based index of the argument that is formatted by this placeholder.
+		 *
+		 * @return the zero based index of the argument that is formatted by this placeholder.
+		 */
+		int getArgumentIndex() {
+			return argumentIndex;
+		}
+
+		/**
+		 * Returns the conversion character of printf placeholders or 0 for any other placeholder.
+		 *
+		 * @return the conversion character of printf placeholders or 0 for any other placeholder.
+		 */
+		char getConversion() {
+			return conversion;
+		}
+
+		/**
+		 * Returns true if the placeholder can format the given argument type.
+		 *
+		 * @param type the type of the argument.
+		 * @return true if the placeholder can format the given argument type.
+		 */
+		boolean accepts(@NotNull ArgumentType type) {
+			return acceptedTypes.contains(type);
+		}
+
+		/**
+		 * Returns the text of the placeholder as it appears inside the message.
+		 *
+		 * @return the text of the placeholder as it appears inside the message.
+		 */
+		@Override
+		public String toString() {
+			return message.substring(start, end);
+		}
+	}
+
+	/**
+	 * Parses a message using the printf syntax of java.util.Formatter.
+	 *
+	 * @param message the message to parse.
+	 * @return the placeholders of the message.
+	 */
+	@NotNull
+	static MessagePlaceholders parsePrintf(@NotNull String message) {
+		MessagePlaceholders result = new MessagePlaceholders();
+		int ordinaryIndex = 0, lastIndex = -1;
+
+		for (int i = 0, len = message.length(); i < len; i++) {
+			if (message.charAt(i) != '%')
+				continue;
+
+			final int start = i++;
+
+			int explicitIndex = -1, digitsEnd = skipDigits(message, i);
+			if (digitsEnd > i && digitsEnd < len && message.charAt(digitsEnd) == '$') {
+				explicitIndex = parseIndex(message, i, digitsEnd);
+				i = digitsEnd + 1;
+			}
+
+			int flags = 0, flagIndex;
+			for (; i < len && (flagIndex = PRINTF_FLAGS.indexOf(message.charAt(i))) != -1; i++) {
+				if ((flags & (1 << flagIndex)) != 0)
+					return result.fail("Flags = '" + message.charAt(i) + "'");
+				flags |= 1 << flagIndex;
+			}
+
+			int widthStart = i;
+			i = skipDigits(message, i);
+			boolean hasWidth = i > widthStart;
+
+			int precision = -1;
+			if (i + 1 < len && message.charAt(i) == '.' && isDigit(message.charAt(i + 1))) {
+				int precisionEnd = skipDigits(message, i + 1);
+				precision = parseIndex(message, i + 1, precisionEnd);
+				i = precisionEnd;
+			}
+
+			if (i >= len)
+				return result.fail(unknownConversion(message, start));
+
+			final char conversion = message.charAt(i);
+			Set<ArgumentType> acceptedTypes;
+			int badFlags = FLAG_PLUS | FLAG_SPACE | FLAG_ZERO | FLAG_GROUP | FLAG_PARENTHESES;
+			boolean numeric = false;
+			switch (conversion) {
+				case 's': case 'S':
+					// Alternate form requires java.util.Formattable which is never classified.
+				case 'b': case 'B': case 'h': case 'H':
+					acceptedTypes = ArgumentType.ANY;
+					badFlags |= FLAG_ALTERNATE;
+					break;
+				case 'c': case 'C':
+					acceptedTypes = CHARACTERS;
+					badFlags |= FLAG_ALTERNATE;
+					break;
+				case 't': case 'T':
+					if (i + 1 >= len || PRINTF_DATE_CONVERSIONS.indexOf(message.charAt(i + 1)) == -1)
+						return result.fail("Conversion = '" + (i + 1 < len ? message.substring(i, i + 2) : "t") + "'");
+					acceptedTypes = PRINTF_DATES;
+					badFlags |= FLAG_ALTERNATE;
+					i++;
+					break;
+				case 'd':
+					acceptedTypes = ArgumentType.INTEGRALS;
+					badFlags = FLAG_ALTERNATE;
+					numeric = true;
+					break;
+				case 'o': case 'x': case 'X':
+					acceptedTypes = ArgumentType.INTEGRALS;
+					badFlags = FLAG_PLUS | FLAG_SPACE | FLAG_GROUP | FLAG_PARENTHESES;
+					numeric = true;
+					break;
+				case 'e': case 'E':
+					acceptedTypes = ArgumentType.FLOATING_POINTS;
+					badFlags = FLAG_GROUP;
+					numeric = true;
+					break;
+				case 'f':
+					acceptedTypes = ArgumentType.FLOATING_POINTS;
+					badFlags = 0;
+					numeric = true;
+					break;
+				case 'g': case 'G':
+					acceptedTypes = ArgumentType.FLOATING_POINTS;
+					badFlags = FLAG_ALTERNATE;
+					numeric = true;
+					break;
+				case 'a': case 'A':
+					acceptedTypes = ArgumentType.FLOATING_POINTS;
+					badFlags = FLAG_GROUP | FLAG_PARENTHESES;
+					numeric = true;
+					break;
+				case '%':
+					acceptedTypes = NONE;
+					badFlags = ~FLAG_LEFT_JUSTIFY;
+					break;
+				case 'n':
+					acceptedTypes = NONE;
+					badFlags = ~0;
+					if (hasWidth)
+						return result.fail(message.substring(widthStart, skipDigits(message, widthStart)));
+					break;
+				default:
+					if (Character.isLetter(conversion))
+						return result.fail("Conversion = '" + conversion + "'");
+					return result.fail(unknownConversion(message, start));
+			}
+
+			final int end = i + 1;
+			if (precision != -1 && acceptedTypes != ArgumentType.ANY && acceptedTypes != ArgumentType.FLOATING_POINTS)
+				return result.fail(String.valueOf(precision));
+			if ((flags & badFlags) != 0) {
+				return result.fail(acceptedTypes == NONE ? "Flags = '" + toFlagString(flags) + "'" :
+						"Conversion = " + conversion + ", Flags = " + toFlagString(flags & badFlags));
+			}
+			if (numeric && ((flags & (FLAG_PLUS | FLAG_SPACE)) == (FLAG_PLUS | FLAG_SPACE) ||
+					(flags & (FLAG_LEFT_JUSTIFY | FLAG_ZERO)) == (FLAG_LEFT_JUSTIFY | FLAG_ZERO)))
+				return result.fail("Flags = '" + toFlagString(flags) + "'");
+			if ((flags & (FLAG_LEFT_JUSTIFY | FLAG_ZERO)) != 0 && !hasWidth)
+				return result.fail(message.substring(start, end));
+
+			if (acceptedTypes == NONE)
+				continue;
+
+			int argumentIndex;
+			if ((flags & FLAG_PREVIOUS) != 0) {
+				if (lastIndex == -1)
+					return result.fail("Format specifier '" + message.substring(start, end) + "'");
+				argumentIndex = lastIndex;
+			} else if (explicitIndex > 0)
+				argumentIndex = explicitIndex - 1;
+			else
+				argumentIndex = ordinaryIndex++;
+
+			lastIndex = argumentIndex;
+			result.add(new Placeholder(message, start, end, argumentIndex, conversion, acceptedTypes));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parses a message using the syntax of java.text.MessageFormat.
+	 *
+	 * @param message the message to parse.
+	 * @return the placeholders of the message.
+	 */
+	@NotNull
+	static MessagePlaceholders parseMessageFormat(@NotNull String message) {
+		MessagePlaceholders result = new MessagePlaceholders();
+
+		// Segment offsets: [start, end) of the argument index, the format type and the format style.
+		int[] segments = new int[6];
+		int part = -1, start = -1, braceStack = 0;
+		boolean inQuote = false;
+
+		for (int i = 0, len = message.length(); i < len; i++) {
+			char c = message.charAt(i);
+			if (part == -1) {
+				if (c == '\'') {
+					if (i + 1 < len && message.charAt(i + 1) == '\'')
+						i++;
+					else
+						inQuote = !inQuote;
+				} else if (c == '{' && !inQuote) {
+					start = i;
+					part = 0;
+					segments[0] = segments[1] = i + 1;
+					segments[2] = segments[3] = segments[4] = segments[5] = -1;
+				}
+			} else if (inQuote) {
+				inQuote = c != '\'';
+				segments[part * 2 + 1] = i + 1;
+			} else {
+				switch (c) {
+					case ',':
+						if (part < 2) {
+							segments[part * 2 + 1] = i;
+							part++;
+							segments[part * 2] = segments[part * 2 + 1] = i + 1;
+							continue;
+						}
+						break;
+					case '{':
+						braceStack++;
+						break;
+					case '}':
+						if (braceStack == 0) {
+							segments[part * 2 + 1] = i;
+							part = -1;
+							String error = result.addMessageFormatPlaceholder(message, start, i + 1, segments);
+							if (error != null)
+								return result.fail(error);
+							continue;
+						}
+						braceStack--;
+						break;
+					case ' ':
+						// Leading spaces of the format type are skipped.
+						if (part == 1 && segments[2] == i) {
+							segments[2] = segments[3] = i + 1;
+							continue;
+						}
+						break;
+					case '\'':
+						inQuote = true;
+						break;
+				}
+				segments[part * 2 + 1] = i + 1;
+			}
+		}
+
+		if (part != -1 && braceStack == 0)
+			return result.fail("Unmatched braces in the pattern.");
+
+		return result;
+	}
+
+	/**
+	 * Parses a message that uses a custom placeholder expression.
+	 *
+	 * @param message			the message to parse.
+	 * @param placeholderPattern the regular expression that matches a single placeholder.
+	 * @return the placeholders of the message.
+	 */
+	@NotNull
+	static MessagePlaceholders parseCustom(@NotNull String message, @NotNull Pattern placeholderPattern) {
+		MessagePlaceholders result = new MessagePlaceholders();
+
+		// Padding the message keeps placeholders at the beginning and end countable (as with String.split()).
+		String paddedMessage = ' ' + message + ' ';
+		Matcher matcher = placeholderPattern.matcher(paddedMessage);
+		for (int index = 0; matcher.find(); index++)
+			result.add(new Placeholder(paddedMessage, matcher.start(), matcher.end(), index, (char) 0, ArgumentType.ANY));
+
+		return result;
+	}
+
+	private static String unknownConversion(String message, int placeholderStart) {
+		int i = placeholderStart + 1;
+		return "Conversion = '" + (i < message.length() ? message.charAt(i) : '%') + "'";
+	}
+
+	private static String toFlagString(int flags) {
+		StringBuilder builder = new StringBuilder(PRINTF_FLAGS.length());
+		for (int i = 0; i < PRINTF_FLAGS.length(); i++) {
+			if ((flags & (1 << i)) != 0)
+				builder.append(PRINTF_FLAGS.charAt(i));
+		}
+		return builder.toString();
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static int skipDigits(String text, int index) {
+		while (index < text.length() && isDigit(text.charAt(index)))
+			index++;
+		return index;
+	}
+
+	private static int parseIndex(String text, int start, int end) {
+		long value = 0;
+		for (int i = start; i < end && value <= Integer.MAX_VALUE; i++)
+			value = value * 10 + (text.charAt(i) - '0');
+		return value > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) value;
+	}
+
+	@Nullable
+	private static String findKeyword(String text, String[] keywords) {
+		String keyword = text.trim().toLowerCase(Locale.ROOT);
+		for (String k : keywords) {
+			if (k.equals(keyword))
+				return k;
+		}
+		return null;
+	}
+
+	private final List<Placeholder> placeholders = new ArrayList<Placeholder>();
+	private String formatError;
+	private int argumentCount;
+
+	private MessagePlaceholders() {
+	}
+
+	private void add(Placeholder placeholder) {
+		placeholders.add(placeholder);
+		argumentCount = Math.max(argumentCount, placeholder.argumentIndex + 1);
+	}
+
+	private MessagePlaceholders fail(String error) {
+		placeholders.clear();
+		argumentCount = 0;
+		formatError = error;
+		return this;
+	}
+
+	private String addMessageFormatPlaceholder(String message, int start, int end, int[] segments) {
+		String index = message.substring(segments[0], segments[1]);
+		int argumentIndex;
+		try {
+			argumentIndex = Integer.parseInt(index);
+		} catch (NumberFormatException e) {
+			return "can't parse argument number" + (index.length() == 0 ? "" : ": " + index);
+		}
+		if (argumentIndex < 0)
+			return "negative argument number: " + argumentIndex;
+
+		String type = segments[2] == -1 ? "" : message.substring(segments[2], segments[3]);
+		String style = segments[4] == -1 ? "" : message.substring(segments[4], segments[5]);
+
+		Set<ArgumentType> acceptedTypes;
+		String keyword = findKeyword(type, MF_TYPES);
+		try {
+			if (keyword == null)
+				return "unknown format type: " + type;
+			else if (keyword.length() == 0)
+				acceptedTypes = ArgumentType.ANY;
+			else if ("number".equals(keyword)) {
+				if (findKeyword(style, MF_NUMBER_STYLES) == null)
+					new DecimalFormat(style);
+				acceptedTypes = ArgumentType.NUMBERS;
+			} else if ("choice".equals(keyword)) {
+				new ChoiceFormat(style);
+				acceptedTypes = ArgumentType.NUMBERS;
+			} else {
+				if (findKeyword(style, MF_DATE_STYLES) == null)
+					new SimpleDateFormat(style);
+				acceptedTypes = DATES;
+			}
+		} catch (IllegalArgumentException e) {
+			// Custom format styles are compiled (once per message) to verify their syntax.
+			return e.getMessage();
+		}
+
+		add(new Placeholder(message, start, end, argumentIndex, (char) 0, acceptedTypes));
+		return null;
+	}
+
+	/**
+	 * Returns the reason why the message cannot be parsed or 'null' if the message is valid.
+	 *
+	 * @return the reason why the message cannot be parsed or 'null' if the message is valid.
+	 */
+	@Nullable
+	String getFormatError() {
+		return formatError;
+	}
+
+	/**
+	 * Returns the number of arguments that the message refers to (highest referenced index + 1).
+	 *
+	 * @return the number of arguments that the message refers to.
+	 */
+	int getArgumentCount() {
+		return argumentCount;
+	}
+
+	/**
+	 * Returns all placeholders in the order they appear inside the message.
+	 *
+	 * @return all placeholders in the order they appear inside the message.
+	 */
+	@NotNull
+	List<Placeholder> getPlaceholders() {
+		return placeholders;
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.inspections;
+
+import com.intellij.openapi.diagnostic.Logger;
+import net.sf.logsupport.config.LogFramework.MessageFormatType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Is a bounded, thread safe cache of parsed message placeholders keyed by format type and message text.
+ * <p/>
+ * Parsed placeholders are immutable and don't refer to PSI elements, therefore they remain valid across
+ * highlighting passes and files. The cache is dropped as a whole when it reaches its maximum size.
+ *
+ * @author Juergen_Kellerer, 2011-10-10
+ * @version 1.0
+ */
+class MessagePlaceholdersCache {
+
+	private static final Logger LOG = Logger.getInstance("#net.sf.logsupport.inspections.MessagePlaceholdersCache");
+
+	/**
+	 * Is the default amount of messages that are cached.
+	 */
+	static final int DEFAULT_MAX_SIZE = 4096;
+
+	private static final int MAX_CUSTOM_PATTERNS = 64;
+	static final int STATISTICS_INTERVAL = 1000;
+
+	private final int maxSize;
+	private final ConcurrentMap<CacheKey, MessagePlaceholders> entries =
+			new ConcurrentHashMap<CacheKey, MessagePlaceholders>();
+	private final ConcurrentMap<String, Pattern> customPatterns = new ConcurrentHashMap<String, Pattern>();
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+	MessagePlaceholdersCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	MessagePlaceholdersCache(int maxSize) {
+		this.maxSize = Math.max(1, maxSize);
+	}
+
+	/**
+	 * Returns the placeholders of the given message, parsing the message only if it is not cached.
+	 *
+	 * @param formatType	the format type of the log framework (must not be {@link MessageFormatType#none}).
+	 * @param message	   the log message.
+	 * @param customPattern the custom placeholder expression, only used with {@link MessageFormatType#custom}.
+	 * @return the placeholders of the given message.
+	 */
+	@NotNull
+	MessagePlaceholders get(@NotNull MessageFormatType formatType, @NotNull String message,
+							@Nullable String customPattern) {
+		if (formatType != MessageFormatType.custom)
+			customPattern = null;
+
+		CacheKey key = new CacheKey(formatType, message, customPattern);
+		MessagePlaceholders placeholders = entries.get(key);
+		long lookups;
+		if (placeholders == null) {
+			lookups = misses.incrementAndGet() + hits.get();
+			placeholders = parse(formatType, message, customPattern);
+
+			if (entries.size() >= maxSize)
+				entries.clear();
+			entries.put(key, placeholders);
+		} else
+			lookups = hits.incrementAndGet() + misses.get();
+
+		if (lookups % STATISTICS_INTERVAL == 0)
+			logStatistics();
+
+		return placeholders;
+	}
+
+	/**
+	 * Is called every {@link #STATISTICS_INTERVAL} lookups to log the hit rate of the cache.
+	 */
+	void logStatistics() {
+		if (LOG.isDebugEnabled())
+			LOG.debug(toString());
+	}
+
+	private MessagePlaceholders parse(MessageFormatType formatType, String message, String customPattern) {
+		switch (formatType) {
+			case printf:
+				return MessagePlaceholders.parsePrintf(message);
+			case messageformat:
+				return MessagePlaceholders.parseMessageFormat(message);
+			case custom:
+				return MessagePlaceholders.parseCustom(message, getCustomPattern(customPattern));
+			default:
+				throw new IllegalArgumentException("Messages of type '" + formatType + "' have no placeholders.");
+		}
+	}
+
+	private Pattern getCustomPattern(String customPattern) {
+		Pattern pattern = customPatterns.get(customPattern);
+		if (pattern == null) {
+			pattern = Pattern.compile(customPattern);
+			if (customPatterns.size() >= MAX_CUSTOM_PATTERNS)
+				customPatterns.clear();
+			customPatterns.put(customPattern, pattern);
+		}
+		return pattern;
+	}
+
+	/**
+	 * Returns the share of lookups that were answered from the cache.
+	 *
+	 * @return the share of lookups that were answered from the cache (0 - 1).
+	 */
+	double getHitRate() {
+		long h = hits.get(), total = h + misses.get();
+		return total == 0 ? 0D : (double) h / total;
+	}
+
+	long getHitCount() {
+		return hits.get();
+	}
+
+	long getMissCount() {
+		return misses.get();
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes all cached entries and resets the statistics.
+	 */
+	void clear() {
+		entries.clear();
+		customPatterns.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("MessagePlaceholdersCache{size=%d, hitRate=%.1f%%, hits=%d, misses=%d}",
+				entries.size(), getHitRate() * 100D, hits.get(), misses.get());
+	}
+
+	private static final class CacheKey {
+
+		private final MessageFormatType formatType;
+		private final String message, customPattern;
+		private final int hashCode;
+
+		CacheKey(MessageFormatType formatType, String message, String customPattern) {
+			this.formatType = formatType;
+			this.message = message;
+			this.customPattern = customPattern;
+
+			int result = formatType.hashCode();
+			result = 31 * result + message.hashCode();
+			result = 31 * result + (customPattern != null ? customPattern.hashCode() : 0);
+			hashCode = result;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof CacheKey)) return false;
+
+			CacheKey cacheKey = (CacheKey) o;
+			return hashCode == cacheKey.hashCode && formatType == cacheKey.formatType &&
+					message.equals(cacheKey.message) &&
+					(customPattern != null ? customPattern.equals(cacheKey.customPattern) : cacheKey.customPattern == null);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -21,6 +21,8 @@ import com.intellij.codeInspection.InspectionManager;
 import com.intellij.psi.PsiMethodCallExpression;
 import net.sf.logsupport.L10N;
 import net.sf.logsupport.config.LogFramework;
+import net.sf.logsupport.util.ArgumentType;
+import net.sf.logsupport.util.LogCallInfo;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
 
@@ -65,14 +67,15 @@ public class ThrowableInFormattedMessage extends AbstractFormattedMessageInspect
 	 * {@inheritDoc}
 	 */
 	@Override
-	public String checkLogMethodCall(@NotNull LogFramework framework,
+	public String checkLogMethodCall(@NotNull LogCallInfo info,
 									 @NotNull PsiMethodCallExpression expression,
 									 @NotNull InspectionManager manager, boolean isOnTheFly) {
-		if (!framework.isPlaceholdersCanBeUsedWithThrowables()) {
-			List<Object> callArgumentDefaults = getLogCallArgumentDefaults(expression, true);
-			if (callArgumentDefaults.size() > 1) {
-				for (Object argumentDefault : callArgumentDefaults) {
-					if (argumentDefault instanceof Throwable)
+		LogFramework framework = info.getFramework();
+		if (framework != null && !framework.isPlaceholdersCanBeUsedWithThrowables()) {
+			List<ArgumentType> argumentTypes = info.getArgumentTypes(true);
+			if (argumentTypes.size() > 1) {
+				for (ArgumentType argumentType : argumentTypes) {
+					if (argumentType == ArgumentType.THROWABLE)
 						return L10N.message("Inspections.ThrowableInFormattedMessage.problemMessage");
 				}
 			}
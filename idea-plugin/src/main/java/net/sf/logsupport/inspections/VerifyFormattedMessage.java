@@ -20,14 +20,13 @@ import com.intellij.codeInspection.InspectionManager;
 import com.intellij.psi.PsiMethodCallExpression;
 import net.sf.logsupport.L10N;
 import net.sf.logsupport.config.LogFramework;
+import net.sf.logsupport.config.LogFramework.MessageFormatType;
+import net.sf.logsupport.util.ArgumentType;
+import net.sf.logsupport.util.LogCallInfo;
 import net.sf.logsupport.util.LogMessageUtil;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
 
-import java.text.Format;
-import java.text.MessageFormat;
-import java.util.Formatter;
-import java.util.IllegalFormatException;
 import java.util.List;
 
 /**
@@ -37,6 +36,9 @@ import java.util.List;
  * @version 1.0
  */
 public class VerifyFormattedMessage extends AbstractFormattedMessageInspection {
+
+	private static final MessagePlaceholdersCache PLACEHOLDERS_CACHE = new MessagePlaceholdersCache();
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -60,65 +62,62 @@ public class VerifyFormattedMessage extends AbstractFormattedMessageInspection {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public String checkLogMethodCall(@NotNull LogFramework framework,
+	public String checkLogMethodCall(@NotNull LogCallInfo info,
 									 @NotNull PsiMethodCallExpression expression,
 									 @NotNull InspectionManager manager, boolean isOnTheFly) {
+		LogFramework framework = info.getFramework();
 		String logMessage = LogMessageUtil.toMessage(expression, true).toString();
-		List<Object> callArgumentDefaults = getLogCallArgumentDefaults(expression, false);
+		List<ArgumentType> argumentTypes = info.getArgumentTypes(false);
+		ArgumentType[] args = argumentTypes.toArray(new ArgumentType[argumentTypes.size()]);
 
 		switch (framework.getLogMessageFormatType()) {
 			case printf:
-				return evaluatePrintf(logMessage, callArgumentDefaults.toArray());
+				return evaluatePrintf(logMessage, args);
 			case messageformat:
-				return evaluateMessageFormat(logMessage, callArgumentDefaults.toArray());
+				return evaluateMessageFormat(logMessage, args);
 			case custom:
 				String pattern = framework.getPlaceholderCustomFormat();
-				return evaluateCustom(logMessage, pattern, callArgumentDefaults.toArray());
+				if (pattern != null && pattern.length() != 0)
+					return evaluateCustom(logMessage, pattern, args);
 		}
 
 		return null;
 	}
 
-	String evaluatePrintf(String logMessage, Object... args) {
-		try {
-			new Formatter().format(logMessage, args);
-		} catch (IllegalFormatException e) {
-			return createInvalidFormatMessage(e.getLocalizedMessage());
+	String evaluatePrintf(String logMessage, ArgumentType... args) {
+		MessagePlaceholders placeholders = PLACEHOLDERS_CACHE.get(MessageFormatType.printf, logMessage, null);
+		if (placeholders.getFormatError() != null)
+			return createInvalidFormatMessage(placeholders.getFormatError());
+
+		for (MessagePlaceholders.Placeholder placeholder : placeholders.getPlaceholders()) {
+			int index = placeholder.getArgumentIndex();
+			if (index >= args.length)
+				return createInvalidFormatMessage("Format specifier '" + placeholder + "'");
+			if (!placeholder.accepts(args[index]))
+				return createInvalidFormatMessage(placeholder.getConversion() + " != " + args[index].getClassName());
 		}
 		return null;
 	}
 
-	String evaluateMessageFormat(String logMessage, Object... args) {
-		MessageFormat mf = null;
-		try {
-			mf = new MessageFormat(logMessage);
-		} catch (Exception e) {
-			return createInvalidFormatMessage(e.getMessage());
-		}
+	String evaluateMessageFormat(String logMessage, ArgumentType... args) {
+		MessagePlaceholders placeholders = PLACEHOLDERS_CACHE.get(MessageFormatType.messageformat, logMessage, null);
+		if (placeholders.getFormatError() != null)
+			return createInvalidFormatMessage(placeholders.getFormatError());
+
+		if (placeholders.getArgumentCount() != args.length)
+			return createInvalidArgumentCountMessage(placeholders.getArgumentCount(), args.length);
 
-		Format[] formats = mf.getFormatsByArgumentIndex();
-
-		if (formats.length != args.length)
-			return createInvalidArgumentCountMessage(formats.length, args.length);
-
-		for (int i = 0; i < formats.length; i++) {
-			Format format = formats[i];
-			if (format == null)
-				continue;
-			try {
-				format.format(args[i]);
-			} catch (IllegalArgumentException e) {
-				// TODO Log
-				return createInvalidArgumentTypeMessage(i + 1);
-			}
+		for (MessagePlaceholders.Placeholder placeholder : placeholders.getPlaceholders()) {
+			int index = placeholder.getArgumentIndex();
+			if (!placeholder.accepts(args[index]))
+				return createInvalidArgumentTypeMessage(index + 1);
 		}
 		return null;
 	}
 
-	String evaluateCustom(String logMessage, String placeholderPattern, Object... args) {
-		logMessage = ' ' + logMessage + ' ';
-		String[] elements = logMessage.split(placeholderPattern);
-		int placeHolderCount = elements.length - 1;
+	String evaluateCustom(String logMessage, String placeholderPattern, ArgumentType... args) {
+		MessagePlaceholders placeholders = PLACEHOLDERS_CACHE.get(MessageFormatType.custom, logMessage, placeholderPattern);
+		int placeHolderCount = placeholders.getArgumentCount();
 		if (placeHolderCount != args.length)
 			return createInvalidArgumentCountMessage(placeHolderCount, args.length);
 		return null;
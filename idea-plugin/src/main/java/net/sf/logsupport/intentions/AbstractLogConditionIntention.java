@@ -16,7 +16,6 @@
 
 package net.sf.logsupport.intentions;
 
-import com.intellij.codeInsight.template.macro.MacroUtil;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.project.Project;
@@ -26,19 +25,10 @@ import com.intellij.psi.codeStyle.CodeStyleManager;
 import com.intellij.psi.util.PsiElementFilter;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.util.PsiUtil;
-import net.sf.logsupport.config.ConditionFormat;
 import net.sf.logsupport.config.LogConfiguration;
-import net.sf.logsupport.config.LogFramework;
-import net.sf.logsupport.config.LogLevel;
-import net.sf.logsupport.util.LogPsiElementFactory;
-import net.sf.logsupport.util.LogPsiUtil;
-import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import static java.lang.String.format;
 import static net.sf.logsupport.config.ConditionFormat.blockWithNewLine;
+import static net.sf.logsupport.util.LogConditionUtil.createPlainIfCondition;
 
 /**
  * Defines a base class to support condition handling.
@@ -49,12 +39,6 @@ import static net.sf.logsupport.config.ConditionFormat.blockWithNewLine;
 public abstract class AbstractLogConditionIntention extends AbstractLogIntention {
 
 	private static final Logger LOG = Logger.getInstance("#net.sf.logsupport.intentions.AbstractLogConditionIntention");
-	private static final Map<ConditionFormat, String> conditionTemplates = new HashMap<ConditionFormat, String>();
-
-	static {
-		conditionTemplates.put(ConditionFormat.simpleWithNewLine, "if (%s) \n log()");
-		conditionTemplates.put(ConditionFormat.simple, "if (%s) log()");
-	}
 
 	static PsiElementFilter dummyLogMethodCallFilter = new PsiElementFilter() {
 		public boolean isAccepted(PsiElement element) {
@@ -62,119 +46,6 @@ public abstract class AbstractLogConditionIntention extends AbstractLogIntention
 		}
 	};
 
-	/**
-	 * Finds the surrounding if condition that covers the conditional logger call.
-	 *
-	 * @param expression the log method call expression.
-	 * @return the surrounding if condition that covers the conditional logger call, or 'null' if not found.
-	 */
-	@Nullable
-	public static PsiIfStatement findSurroundingCondition(PsiMethodCallExpression expression) {
-		LogFramework framework = LogPsiUtil.getLogFramework(expression);
-		LogLevel level = framework == null ? null : LogPsiUtil.findLogLevel(expression);
-
-		if (framework != null && level != null) {
-			final PsiMethodCallExpression expectedCondition = createExpectedConditionFor(expression);
-			if (expectedCondition == null)
-				return null;
-
-			int searchLevels = 65;
-			PsiElement element = expression;
-			while (searchLevels-- > 0 && element != null && !(element instanceof PsiMethod)) {
-				element = element.getParent();
-				if (element instanceof PsiIfStatement) {
-					PsiExpression condition = ((PsiIfStatement) element).getCondition();
-					if (condition instanceof PsiReferenceExpression)
-						condition = LogPsiUtil.resolveVariableInitializer((PsiReferenceExpression) condition);
-
-					if (isValidCondition(expectedCondition, condition)) {
-						return (PsiIfStatement) element;
-					}
-				}
-			}
-		}
-
-		return null;
-	}
-
-	@Nullable
-	private static PsiMethodCallExpression createExpectedConditionFor(PsiMethodCallExpression expression) {
-		PsiIfStatement expectedStatement = createPlainIfCondition(expression, true, false);
-		PsiExpression expectedCondition = expectedStatement == null ? null : expectedStatement.getCondition();
-		if (!(expectedCondition instanceof PsiMethodCallExpression))
-			return null;
-		return (PsiMethodCallExpression) expectedCondition;
-	}
-
-	private static boolean isValidCondition(PsiMethodCallExpression expectedCondition, PsiExpression condition) {
-		return condition instanceof PsiMethodCallExpression &&
-				LogPsiUtil.isEquivalentTo((PsiMethodCallExpression) condition, expectedCondition);
-	}
-
-	/**
-	 * Creates a plain if statement that may be used to surround a logger call.
-	 *
-	 * @param expression			 the logger call expression to wrap.
-	 * @param ignoreDisabledLevels   whether non-conditional levels are not considered.
-	 * @param preferCustomConditions whether custom conditions (e.g. constants) are preferred over
-	 *                               direct calls to the log framework.
-	 * @return a plain if statement or 'null' if no framework is configured or the level could not be extracted.
-	 */
-	@Nullable
-	public static PsiIfStatement createPlainIfCondition(PsiMethodCallExpression expression,
-														boolean ignoreDisabledLevels,
-														boolean preferCustomConditions) {
-		LogFramework framework = LogPsiUtil.getLogFramework(expression);
-		LogLevel level = framework == null ? null : LogPsiUtil.findLogLevel(expression);
-
-		if (framework != null && level != null) {
-			LogPsiElementFactory factory = LogPsiUtil.getFactory(expression.getContainingFile());
-			PsiExpression qualifier = expression.getMethodExpression().getQualifierExpression();
-			LogConfiguration config = LogConfiguration.getInstance(expression.getContainingFile());
-			String conditionalMethod = framework.getEnabledGetterMethod().get(level);
-
-			if ((ignoreDisabledLevels || config.getConditionalLogLevels().contains(level)) &&
-					qualifier != null && conditionalMethod != null && !conditionalMethod.isEmpty()) {
-
-				final PsiElement context = expression.getContext();
-
-				boolean useCustomCondition = false;
-				if (preferCustomConditions) {
-					PsiVariable[] variables = MacroUtil.getVariablesVisibleAt(context, "");
-					if (variables.length > 0) {
-						final PsiMethodCallExpression expectedCondition = createExpectedConditionFor(expression);
-						if (expectedCondition != null) {
-							for (PsiVariable variable : variables) {
-								final PsiExpression condition = LogPsiUtil.resolveVariableInitializer(variable);
-								if (isValidCondition(expectedCondition, condition)) {
-									PsiIdentifier nameIdentifier = variable.getNameIdentifier();
-									if (nameIdentifier != null) {
-										useCustomCondition = true;
-										conditionalMethod = nameIdentifier.getText();
-										break;
-									}
-								}
-							}
-						}
-					}
-				}
-
-				if (!useCustomCondition) {
-					if (!conditionalMethod.contains("("))
-						conditionalMethod += "()";
-
-					if (!qualifier.getText().isEmpty())
-						conditionalMethod = qualifier.getText() + '.' + conditionalMethod;
-				}
-
-				String template = conditionTemplates.get(config.getConditionFormat().toNonBlockFormat());
-				return (PsiIfStatement) factory.createStatementFromText(format(template, conditionalMethod), context);
-			}
-		}
-
-		return null;
-	}
-
 	private static PsiIfStatement createIfCondition(PsiMethodCallExpression expression) {
 		PsiIfStatement statement = createPlainIfCondition(expression, false, true);
 
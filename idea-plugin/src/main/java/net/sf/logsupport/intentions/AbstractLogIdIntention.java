@@ -22,7 +22,13 @@ import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
 import com.intellij.psi.util.PsiUtil;
 import com.intellij.util.IncorrectOperationException;
+import net.sf.logsupport.L10N;
+import net.sf.logsupport.util.LeasingLogIdGenerator;
+import net.sf.logsupport.util.LogIdExhaustedException;
+import net.sf.logsupport.util.NotificationUtil;
+import net.sf.logsupport.util.NumericLogIdGenerator;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import static net.sf.logsupport.util.LogPsiUtil.*;
 
@@ -33,6 +39,9 @@ import static net.sf.logsupport.util.LogPsiUtil.*;
  * @version 1.0
  */
 public abstract class AbstractLogIdIntention extends AbstractIntentionAction {
+
+	private LeasingLogIdGenerator.Lease lease;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -58,6 +67,30 @@ public abstract class AbstractLogIdIntention extends AbstractIntentionAction {
 	 */
 	public abstract String adjustId(PsiClass target, String literalText);
 
+	/**
+	 * Sets a block of leased IDs that is used before new IDs are requested from the generator.
+	 * <p/>
+	 * Is used by bulk operations that lease the IDs of a whole file at once, the intention must then be used
+	 * by a single thread only.
+	 *
+	 * @param lease the leased IDs or 'null' to request every ID from the generator.
+	 */
+	public void setLease(@Nullable LeasingLogIdGenerator.Lease lease) {
+		this.lease = lease;
+	}
+
+	/**
+	 * Returns the next ID, using the leased IDs if they were leased from the given generator.
+	 *
+	 * @param generator the generator of the file that receives the ID.
+	 * @return the next ID.
+	 */
+	protected String nextId(NumericLogIdGenerator generator) {
+		if (lease != null && lease.getGenerator() == generator && lease.hasNext())
+			return lease.nextId();
+		return generator.nextId();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -73,20 +106,46 @@ public abstract class AbstractLogIdIntention extends AbstractIntentionAction {
 	 * {@inheritDoc}
 	 */
 	public void invoke(@NotNull Project project, Editor editor, PsiFile file) throws IncorrectOperationException {
-		invoke(findSupportedLiteralExpression(editor, file));
+		try {
+			invoke(findSupportedLiteralExpression(editor, file));
+		} catch (LogIdExhaustedException e) {
+			notifyLogIdsExhausted(e, project);
+		}
 	}
 
-	public void invoke(PsiLiteralExpression literalExpression) {
-		if (literalExpression != null &&
-				getLogIdGenerator(literalExpression.getContainingFile()) != null &&
-				isAvailable(literalExpression)) {
-			
-			String literalText = literalExpression.getText();
-			String adjustedLiteralText = adjustId(PsiUtil.getTopLevelClass(literalExpression), literalText);
+	/**
+	 * Notifies the user that no more log IDs can be created.
+	 *
+	 * @param e	   the exception signalling that the IDs are exhausted.
+	 * @param project the project that the IDs were created for.
+	 */
+	public static void notifyLogIdsExhausted(LogIdExhaustedException e, Project project) {
+		NotificationUtil.notifyError(L10N.message("Intentions.AbstractLogIdIntention.idsExhausted",
+				e.getMaxSequenceValue()), project);
+	}
 
+	public void invoke(PsiLiteralExpression literalExpression) {
+		String adjustedLiteralText = getAdjustedText(literalExpression);
+		if (adjustedLiteralText != null) {
 			PsiElement replacement = getFactory(literalExpression.getContainingFile()).createExpressionFromText(
 					adjustedLiteralText, literalExpression.getContext());
 			literalExpression.replace(replacement);
 		}
 	}
+
+	/**
+	 * Computes the adjusted text of the given literal expression without modifying the expression.
+	 *
+	 * @param literalExpression The literal expression to adjust.
+	 * @return the adjusted literal text or 'null' if the intention is not available for the given input.
+	 */
+	@Nullable
+	public String getAdjustedText(PsiLiteralExpression literalExpression) {
+		if (literalExpression != null &&
+				getLogIdGenerator(literalExpression.getContainingFile()) != null &&
+				isAvailable(literalExpression)) {
+			return adjustId(PsiUtil.getTopLevelClass(literalExpression), literalExpression.getText());
+		}
+		return null;
+	}
 }
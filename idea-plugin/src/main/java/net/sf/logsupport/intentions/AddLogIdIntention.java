@@ -48,7 +48,7 @@ public class AddLogIdIntention extends AbstractLogIdIntention {
 		NumericLogIdGenerator generator = getLogIdGenerator(target.getContainingFile());
 		if (generator == null)
 			return literalText;
-		return '"' + generator.nextId() + literalText.substring(1);
+		return '"' + nextId(generator) + literalText.substring(1);
 	}
 
 	/**
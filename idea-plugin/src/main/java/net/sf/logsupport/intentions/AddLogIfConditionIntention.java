@@ -1,8 +1,14 @@
 package net.sf.logsupport.intentions;
 
-import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.*;
 import net.sf.logsupport.L10N;
+import net.sf.logsupport.config.ConditionFormat;
+import net.sf.logsupport.config.LogConfiguration;
+import net.sf.logsupport.util.LogCallInfo;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static net.sf.logsupport.util.LogConditionUtil.createPlainIfCondition;
 
 /**
  * Add a IfStatement to support conditional logging for improved performance.
@@ -17,7 +23,8 @@ public class AddLogIfConditionIntention extends AbstractLogConditionIntention {
 	 */
 	@Override
 	public boolean isAvailable(PsiMethodCallExpression expression) {
-		return findSurroundingCondition(expression) == null && createPlainIfCondition(expression, false, false) != null;
+		LogCallInfo info = LogCallInfo.getInstance(expression);
+		return !info.isGuarded() && info.isConditionRequired();
 	}
 
 	/**
@@ -28,6 +35,41 @@ public class AddLogIfConditionIntention extends AbstractLogConditionIntention {
 		wrapInIfConditionIfRequired(expression);
 	}
 
+	/**
+	 * Computes the text of the statement that wraps the given logger call inside an if condition, without
+	 * modifying anything.
+	 * <p/>
+	 * The returned text replaces the statement of the call (see {@link PsiElement#getParent()}) and is not
+	 * indented, it must be reformatted after it was inserted.
+	 *
+	 * @param expression the logger call to wrap.
+	 * @return the text of the wrapped statement or 'null' if the call is not a statement on its own or if
+	 *         no condition can be created for it.
+	 */
+	@Nullable
+	public String getWrappedStatementText(PsiMethodCallExpression expression) {
+		if (!(expression.getParent() instanceof PsiExpressionStatement))
+			return null;
+
+		PsiIfStatement ifStatement = createPlainIfCondition(expression, false, true);
+		PsiExpression condition = ifStatement == null ? null : ifStatement.getCondition();
+		if (condition == null)
+			return null;
+
+		String statement = expression.getParent().getText(), head = "if (" + condition.getText() + ")";
+		ConditionFormat format = LogConfiguration.getInstance(expression.getContainingFile()).getConditionFormat();
+		switch (format) {
+			case simpleWithNewLine:
+				return head + '\n' + statement;
+			case block:
+				return head + " { " + statement + " }";
+			case blockWithNewLine:
+				return head + " {\n" + statement + "\n}";
+			default:
+				return head + ' ' + statement;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
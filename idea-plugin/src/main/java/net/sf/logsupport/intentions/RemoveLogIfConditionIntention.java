@@ -18,7 +18,11 @@ package net.sf.logsupport.intentions;
 
 import com.intellij.psi.*;
 import net.sf.logsupport.L10N;
+import net.sf.logsupport.util.LogCallInfo;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static net.sf.logsupport.util.LogConditionUtil.findSurroundingCondition;
 
 /**
  * Removes an if condition.
@@ -33,7 +37,7 @@ public class RemoveLogIfConditionIntention extends AbstractLogConditionIntention
 	 */
 	@Override
 	public boolean isAvailable(PsiMethodCallExpression expression) {
-		return findSurroundingCondition(expression) != null;
+		return LogCallInfo.getInstance(expression).isGuarded();
 	}
 
 	/**
@@ -60,6 +64,37 @@ public class RemoveLogIfConditionIntention extends AbstractLogConditionIntention
 		statement.delete();
 	}
 
+	/**
+	 * Computes the text that replaces the given if statement when the condition is removed, without modifying
+	 * anything.
+	 * <p/>
+	 * The returned text contains the statements of the then branch and is not indented, it must be reformatted
+	 * after it was inserted.
+	 *
+	 * @param statement the if statement to remove.
+	 * @return the statements of the then branch or 'null' if the condition cannot be removed without
+	 *         changing the code (e.g. if the statement has an else branch).
+	 */
+	@Nullable
+	public String getUnwrappedStatementsText(PsiIfStatement statement) {
+		PsiStatement branch = statement == null ? null : statement.getThenBranch();
+		if (branch == null || statement.getElseBranch() != null)
+			return null;
+
+		if (branch instanceof PsiBlockStatement) {
+			PsiCodeBlock block = ((PsiBlockStatement) branch).getCodeBlock();
+			PsiJavaToken lBrace = block.getLBrace(), rBrace = block.getRBrace();
+			if (lBrace == null || rBrace == null)
+				return null;
+
+			int offset = block.getTextRange().getStartOffset();
+			return block.getText().substring(lBrace.getTextRange().getEndOffset() - offset,
+					rBrace.getTextRange().getStartOffset() - offset).trim();
+		}
+
+		return branch.getText();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -67,4 +102,4 @@ public class RemoveLogIfConditionIntention extends AbstractLogConditionIntention
 	public String getText() {
 		return L10N.message("Intentions.RemoveLogIfConditionIntention.name");
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
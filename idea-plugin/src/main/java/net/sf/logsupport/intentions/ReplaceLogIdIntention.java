@@ -62,10 +62,10 @@ public class ReplaceLogIdIntention extends AbstractLogIdIntention {
 
 		String updatedId, previousId = generator.extractId(literalText.substring(1));
 		if (forceReplace)
-			updatedId = generator.nextId();
+			updatedId = nextId(generator);
 		else {
 			int id = generator.parseSequenceValue(previousId);
-			updatedId = id == -1 ? generator.nextId() : generator.createId(id);
+			updatedId = id == -1 ? nextId(generator) : generator.createId(id);
 		}
 
 		return literalText.replace(previousId, updatedId);
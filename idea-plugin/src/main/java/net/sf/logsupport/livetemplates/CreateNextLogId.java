@@ -23,9 +23,12 @@ import com.intellij.codeInsight.template.TextResult;
 import com.intellij.psi.PsiFile;
 import net.sf.logsupport.config.LogConfiguration;
 import net.sf.logsupport.config.LogLevel;
+import net.sf.logsupport.util.LogIdExhaustedException;
 import net.sf.logsupport.util.NumericLogIdGenerator;
 import org.jetbrains.annotations.NotNull;
 
+import static net.sf.logsupport.intentions.AbstractLogIdIntention.notifyLogIdsExhausted;
+
 /**
  * Creates the next log ID and returns it if logIds are enabled.
  *
@@ -68,8 +71,12 @@ public class CreateNextLogId extends AbstractMacro {
 				else {
 					NumericLogIdGenerator generator = config.getLogIdGenerator();
 					if (generator != null) {
-						result = lastIdResult = new TextResult(generator.nextId());
-						lastIdResultKey = key;
+						try {
+							result = lastIdResult = new TextResult(generator.nextId());
+							lastIdResultKey = key;
+						} catch (LogIdExhaustedException e) {
+							notifyLogIdsExhausted(e, file.getProject());
+						}
 					}
 				}
 			}
@@ -16,23 +16,36 @@
 
 package net.sf.logsupport.ui;
 
-import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiLiteralExpression;
 import com.intellij.psi.PsiMethodCallExpression;
 import net.sf.logsupport.config.LogLevel;
 import net.sf.logsupport.config.ProjectConfiguration;
+import net.sf.logsupport.intentions.AbstractLogIdIntention;
+import net.sf.logsupport.util.DocumentEditBatch;
+import net.sf.logsupport.util.LeasingLogIdGenerator;
+import net.sf.logsupport.util.LogIdExhaustedException;
 import net.sf.logsupport.util.LogPsiUtil;
+import net.sf.logsupport.util.LoggerCallIndex;
+import net.sf.logsupport.util.NumericLogIdGenerator;
+import org.jetbrains.annotations.NotNull;
 
 import javax.swing.border.TitledBorder;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import java.awt.*;
+import java.util.*;
 import java.util.List;
-import java.util.Set;
+
+import static net.sf.logsupport.intentions.AbstractLogIdIntention.notifyLogIdsExhausted;
 
 /**
  * Implements a processing dialog that supports log level filtering.
@@ -82,55 +95,179 @@ public abstract class AbstractLogLevelAwareDialog extends AbstractProcessingDial
 		if (selectionPanel.isAllSelected())
 			return true;
 
-		LogLevel level = LogPsiUtil.findLogLevel(expression);
-		return level != null && selectionPanel.isLevelSelected(level);
+		return isLoggerCallInSelectedLevel(LogPsiUtil.findLogLevel(expression));
+	}
+
+	protected boolean isLoggerCallInSelectedLevel(LogLevel level) {
+		return selectionPanel.isAllSelected() || (level != null && selectionPanel.isLevelSelected(level));
 	}
 
-	protected abstract class AbstractLogLevelAwareRunnable implements Runnable {
+	/**
+	 * Implements a write operation that collects the changes of every selected logger call as text edits and
+	 * applies them per file in a single pass on the document.
+	 * <p/>
+	 * Edits are collected for read-only files as well, the files are made writable (e.g. checked out) by the
+	 * write command that applies the changes.
+	 * <p/>
+	 * Intentions that were registered with {@link #withLeasedIds} receive the log IDs of a file as one block
+	 * leased from the generator, unused IDs of the block are returned when the file is done.
+	 */
+	protected abstract class AbstractLogLevelAwareRunnable implements PreparedWriteOperation {
 
 		private final List<PsiFile> files;
-		private boolean changed;
+		private final Map<PsiFile, DocumentEditBatch> batches = new LinkedHashMap<PsiFile, DocumentEditBatch>();
+		private final List<AbstractLogIdIntention> idIntentions = new ArrayList<AbstractLogIdIntention>();
+		private DocumentEditBatch edits;
+		private boolean prepared;
 
 		protected AbstractLogLevelAwareRunnable(List<PsiFile> files) {
 			this.files = files;
 		}
 
-		public void run() {
-			for (PsiFile psiFile : files) {
-				if (!psiFile.isWritable())
-					continue;
+		/**
+		 * Collects the edits file by file, every file inside its own read action.
+		 */
+		public void prepare() {
+			ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+			for (final PsiFile psiFile : files) {
+				if (indicator != null && indicator.isCanceled())
+					throw new ProcessCanceledException();
 
-				processFile(psiFile);
+				try {
+					ApplicationManager.getApplication().runReadAction(new Runnable() {
+						public void run() {
+							edits = new DocumentEditBatch(psiFile);
+							collectEdits(psiFile);
+						}
+					});
+				} catch (LogIdExhaustedException e) {
+					// Applying the edits that received an ID, the remaining calls are left unchanged.
+					notifyLogIdsExhausted(e, getProject());
+					break;
+				} finally {
+					if (edits != null && !edits.isEmpty())
+						batches.put(psiFile, edits);
+					edits = null;
+				}
 			}
+			prepared = true;
+		}
+
+		@NotNull
+		public Collection<PsiFile> getChangedFiles() {
+			return batches.keySet();
+		}
+
+		public void apply(@NotNull PsiFile file) {
+			DocumentEditBatch batch = batches.get(file);
+			if (batch != null && file.isValid())
+				batch.apply();
+		}
+
+		public void run() {
+			if (!prepared)
+				prepare();
+
+			for (PsiFile file : getChangedFiles())
+				apply(file);
 		}
 
-		protected void processFile(PsiFile psiFile) {
-			changed = false;
-			for (PsiMethodCallExpression expression : LogPsiUtil.findSupportedLoggerCalls(psiFile)) {
-				if (!isLoggerCallInSelectedLevel(expression))
+		protected void collectEdits(PsiFile psiFile) {
+			List<PsiMethodCallExpression> expressions = new ArrayList<PsiMethodCallExpression>();
+			for (LoggerCallIndex.LoggerCall call : LoggerCallIndex.getInstance(psiFile).getLoggerCalls()) {
+				if (!isLoggerCallInSelectedLevel(call.getLevel()))
 					continue;
-				processExpression(expression);
+
+				PsiMethodCallExpression expression = call.getExpression();
+				if (expression != null)
+					expressions.add(expression);
 			}
 
-			// Committing the changes
-			if (isChanged()) {
-				PsiDocumentManager manager = PsiDocumentManager.getInstance(psiFile.getProject());
-				Document doc = psiFile.getViewProvider().getDocument();
-				if (doc == null)
-					manager.commitAllDocuments();
-				else
-					manager.commitDocument(doc);
+			LeasingLogIdGenerator.Lease lease = leaseIds(psiFile, expressions);
+			try {
+				for (PsiMethodCallExpression expression : expressions)
+					processExpression(expression);
+			} finally {
+				if (lease != null) {
+					lease.release();
+					for (AbstractLogIdIntention intention : idIntentions)
+						intention.setLease(null);
+				}
 			}
 		}
 
-		protected void markChanged() {
-			changed = true;
+		/**
+		 * Registers an intention that receives the log IDs that are leased per file.
+		 *
+		 * @param intention the intention that creates log IDs.
+		 * @return the given intention.
+		 */
+		protected <T extends AbstractLogIdIntention> T withLeasedIds(T intention) {
+			idIntentions.add(intention);
+			return intention;
+		}
+
+		/**
+		 * Leases one ID for every call that a registered intention is available for.
+		 *
+		 * @param psiFile	 the file to lease the IDs for.
+		 * @param expressions the calls that are processed.
+		 * @return the lease or 'null' if IDs are requested one by one.
+		 */
+		private LeasingLogIdGenerator.Lease leaseIds(PsiFile psiFile, List<PsiMethodCallExpression> expressions) {
+			if (idIntentions.isEmpty())
+				return null;
+
+			NumericLogIdGenerator generator = LogPsiUtil.getLogIdGenerator(psiFile);
+			if (!(generator instanceof LeasingLogIdGenerator))
+				return null;
+
+			int count = 0;
+			for (PsiMethodCallExpression expression : expressions) {
+				PsiLiteralExpression literal = LogPsiUtil.findSupportedLiteralExpression(expression.getArgumentList());
+				for (AbstractLogIdIntention intention : idIntentions) {
+					if (literal != null && intention.isAvailable(literal)) {
+						count++;
+						break;
+					}
+				}
+			}
+
+			if (count == 0)
+				return null;
+
+			LeasingLogIdGenerator.Lease lease;
+			try {
+				lease = ((LeasingLogIdGenerator) generator).lease(count);
+			} catch (LogIdExhaustedException e) {
+				// Not enough IDs for a block, requesting them one by one assigns the remaining ones.
+				return null;
+			}
+
+			for (AbstractLogIdIntention intention : idIntentions)
+				intention.setLease(lease);
+
+			return lease;
 		}
 
-		protected boolean isChanged() {
-			return changed;
+		/**
+		 * Schedules the replacement of the given element, must be called from within {@link #processExpression}.
+		 *
+		 * @param element  the element to replace, ignored if 'null'.
+		 * @param newText  the text that replaces the element, ignored if 'null'.
+		 * @param reformat whether the replaced range is reformatted after it was changed.
+		 */
+		protected void replace(PsiElement element, String newText, boolean reformat) {
+			edits.replace(element, newText, reformat);
 		}
 
+		/**
+		 * Computes the changes for the given logger call and schedules them using {@link #replace}.
+		 * <p/>
+		 * Is called inside a read action, implementations must not modify the call.
+		 *
+		 * @param expression the logger call to process.
+		 */
 		protected abstract void processExpression(PsiMethodCallExpression expression);
 	}
 }
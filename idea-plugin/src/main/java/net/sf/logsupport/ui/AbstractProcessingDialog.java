@@ -16,8 +16,11 @@
 
 package net.sf.logsupport.ui;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
@@ -28,6 +31,7 @@ import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiMethodCallExpression;
 import net.sf.logsupport.util.LogPsiUtil;
+import net.sf.logsupport.util.ParallelFileScanner;
 import net.sf.logsupport.util.VirtualFileUtil;
 import org.jetbrains.annotations.NotNull;
 
@@ -98,6 +102,38 @@ public abstract class AbstractProcessingDialog extends DialogWrapper {
 	@NotNull
 	public abstract Runnable getWriteOperation(@NotNull List<PsiFile> files);
 
+	/**
+	 * Is implemented by write operations that compute their changes upfront.
+	 * <p/>
+	 * {@link #prepare()} is called before the write operation is started, the write operation itself applies
+	 * the prepared changes only. Prepared changes are applied file by file, which allows to split the write
+	 * operation into several shorter write commands.
+	 */
+	public interface PreparedWriteOperation extends Runnable {
+		/**
+		 * Computes the changes to apply, is called outside of any read or write action.
+		 * <p/>
+		 * Implementations acquire read access in short steps (e.g. per file) and check for cancellation in
+		 * between, so that pending write actions are not blocked for the whole preparation.
+		 */
+		void prepare();
+
+		/**
+		 * Returns the files that have prepared changes.
+		 *
+		 * @return the files that have prepared changes.
+		 */
+		@NotNull
+		Collection<PsiFile> getChangedFiles();
+
+		/**
+		 * Applies the prepared changes of the given file, is called inside a write action.
+		 *
+		 * @param file the file to apply the changes for.
+		 */
+		void apply(@NotNull PsiFile file);
+	}
+
 	public boolean isAllFiles() {
 		return allFiles.isVisible() && allFiles.isEnabled() && allFiles.isSelected();
 	}
@@ -218,14 +254,65 @@ public abstract class AbstractProcessingDialog extends DialogWrapper {
 			button.setText(button.getText() + ' ' + descriptiveText);
 	}
 
-	protected class DefaultReadOperation implements Computable<List<PsiFile>> {
+	/**
+	 * Returns true if the read operation scans the selected files on parallel workers
+	 * (see {@link DefaultReadOperation#compute(ProgressIndicator)}).
+	 *
+	 * @return true if the read operation scans the selected files on parallel workers.
+	 */
+	public boolean isParallelScan() {
+		return true;
+	}
+
+	public class DefaultReadOperation implements Computable<List<PsiFile>> {
 
 		boolean wholeProjectSelected = wholeProject.isSelected();
 		boolean moduleSelected = module.isSelected();
 		boolean allFiles = isAllFiles();
 		boolean recursive = isRecursive();
 
+		/**
+		 * Scans all selected files sequentially, must be called inside a read action.
+		 *
+		 * @return the list of files that were accepted.
+		 */
 		public List<PsiFile> compute() {
+			List<VirtualFile> files = getSelectedFiles();
+			List<PsiFile> sourceFiles = new ArrayList<PsiFile>(files.size());
+			for (VirtualFile file : files) {
+				PsiFile pf = scanFile(file);
+				if (pf != null)
+					sourceFiles.add(pf);
+			}
+			return sourceFiles;
+		}
+
+		/**
+		 * Scans all selected files on parallel workers, using one short read action per chunk of files.
+		 * <p/>
+		 * Must not be called inside a read action, {@link #acceptFile(PsiFile, List)} is called
+		 * concurrently when using this method.
+		 *
+		 * @param indicator the indicator to report progress to and to check for cancellation.
+		 * @return the list of files that were accepted.
+		 * @throws ProcessCanceledException if the indicator was canceled.
+		 */
+		public List<PsiFile> compute(ProgressIndicator indicator) {
+			List<VirtualFile> files = ApplicationManager.getApplication().runReadAction(
+					new Computable<List<VirtualFile>>() {
+						public List<VirtualFile> compute() {
+							return getSelectedFiles();
+						}
+					});
+
+			return new ParallelFileScanner<PsiFile>(new ParallelFileScanner.FileProcessor<PsiFile>() {
+				public PsiFile process(@NotNull VirtualFile file) {
+					return scanFile(file);
+				}
+			}).scan(files, indicator);
+		}
+
+		protected List<VirtualFile> getSelectedFiles() {
 			List<VirtualFile> files;
 
 			if (wholeProjectSelected) {
@@ -242,20 +329,14 @@ public abstract class AbstractProcessingDialog extends DialogWrapper {
 				files = VirtualFileUtil.toFiles(project, sourceSelection, false);
 			}
 
-			PsiManager manager = PsiManager.getInstance(project);
-			List<PsiFile> sourceFiles = new ArrayList<PsiFile>(files.size());
-
-			for (VirtualFile file : files) {
-				if (!VirtualFileUtil.isSupportedFile(file))
-					continue;
-
-				PsiFile pf = manager.findFile(file);
-				if (pf == null || !acceptFile(pf, LogPsiUtil.findSupportedLoggerCalls(pf)))
-					continue;
+			return VirtualFileUtil.toSupportedFiles(files, false);
+		}
 
-				sourceFiles.add(pf);
-			}
-			return sourceFiles;
+		protected PsiFile scanFile(VirtualFile file) {
+			PsiFile pf = PsiManager.getInstance(project).findFile(file);
+			if (pf == null || !acceptFile(pf, LogPsiUtil.findSupportedLoggerCalls(pf)))
+				return null;
+			return pf;
 		}
 
 		protected boolean acceptFile(PsiFile file, List<PsiMethodCallExpression> loggerCalls) {
@@ -51,13 +51,12 @@ public class AddLogIdsDialog extends AbstractLogLevelAwareDialog {
 	public Runnable getWriteOperation(@NotNull List<PsiFile> files) {
 		return new AbstractLogLevelAwareRunnable(files) {
 
-			private final AddLogIdIntention addLogIdIntention = new AddLogIdIntention();
+			private final AddLogIdIntention addLogIdIntention = withLeasedIds(new AddLogIdIntention());
 
 			@Override
 			protected void processExpression(PsiMethodCallExpression expression) {
 				PsiLiteralExpression le = findSupportedLiteralExpression(expression.getArgumentList());
-				addLogIdIntention.invoke(le);
-				markChanged();
+				replace(le, addLogIdIntention.getAdjustedText(le), false);
 			}
 		};
 	}
@@ -71,22 +71,8 @@ public class AddLogIfConditionsDialog extends AbstractLogLevelAwareDialog {
 
 			@Override
 			protected void processExpression(PsiMethodCallExpression expression) {
-				if (expression != null && intention.isAvailable(expression)) {
-					intention.doInvoke(expression);
-					markChanged();
-				}
-			}
-
-			@Override
-			protected void processFile(PsiFile psiFile) {
-				super.processFile(psiFile);
-
-				if (isChanged()) {
-					// THIS DOESN'T WORK (and it doesn't seem to be necessary either...)
-					/*ReformatCodeProcessor processor =
-							new ReformatCodeProcessor(psiFile.getProject(), psiFile, psiFile.getTextRange());
-					processor.runWithoutProgress();*/
-				}
+				if (expression != null && intention.isAvailable(expression))
+					replace(expression.getParent(), intention.getWrappedStatementText(expression), true);
 			}
 		};
 	}
@@ -58,8 +58,8 @@ public class AddOrReplaceLogIdsDialog extends AbstractLogLevelAwareDialog {
 	public Runnable getWriteOperation(@NotNull List<PsiFile> files) {
 		return new AbstractLogLevelAwareRunnable(files) {
 
-			private final AddLogIdIntention addLogIdIntention = new AddLogIdIntention();
-			private final ReplaceLogIdIntention replaceLogIdIntention = new ReplaceLogIdIntention();
+			private final AddLogIdIntention addLogIdIntention = withLeasedIds(new AddLogIdIntention());
+			private final ReplaceLogIdIntention replaceLogIdIntention = withLeasedIds(new ReplaceLogIdIntention());
 
 			{
 				boolean replaceAll = AddOrReplaceLogIdsDialog.this.replaceAll.isSelected();
@@ -71,12 +71,10 @@ public class AddOrReplaceLogIdsDialog extends AbstractLogLevelAwareDialog {
 				PsiLiteralExpression le = findSupportedLiteralExpression(expression.getArgumentList());
 
 				if (addLogIdIntention.isAvailable(le))
-					addLogIdIntention.invoke(le);
+					replace(le, addLogIdIntention.getAdjustedText(le), false);
 				else
-					replaceLogIdIntention.invoke(le);
-
-				markChanged();
+					replace(le, replaceLogIdIntention.getAdjustedText(le), false);
 			}
 		};
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
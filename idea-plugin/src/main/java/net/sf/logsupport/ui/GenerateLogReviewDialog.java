@@ -29,7 +29,9 @@ import net.sf.logsupport.config.LogLevel;
 import net.sf.logsupport.ui.util.AbstractEventListener;
 import net.sf.logsupport.ui.util.Dialogs;
 import net.sf.logsupport.util.Codec;
-import net.sf.logsupport.util.LogPsiUtil;
+import net.sf.logsupport.util.LogMessageUtil;
+import net.sf.logsupport.util.LogMessageUtil.LogMessage;
+import net.sf.logsupport.util.LoggerCallIndex;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
@@ -53,40 +55,30 @@ public class GenerateLogReviewDialog extends AbstractLogLevelAwareDialog {
 	static final Key<Comparator[]> SORT_ORDER = Key.create("LOG_SUPPORT_GENERATE_REVIEW_SORT_ORDER");
 
 	static final Comparator[] SORT_COMPARATORS = {
-			new AbstractMethodComparator("Package Name") {
-				public int compare(PsiMethodCallExpression o1, PsiMethodCallExpression o2) {
-					PsiClassOwner co1 = (PsiClassOwner) o1.getContainingFile();
-					PsiClassOwner co2 = (PsiClassOwner) o2.getContainingFile();
-					return co1.getPackageName().compareTo(co2.getPackageName());
+			new AbstractCallComparator("Package Name") {
+				public int compare(ReviewableCall o1, ReviewableCall o2) {
+					return o1.packageName.compareTo(o2.packageName);
 				}
 			},
-			new AbstractMethodComparator("File") {
-				public int compare(PsiMethodCallExpression o1, PsiMethodCallExpression o2) {
-					VirtualFile v1 = o1.getContainingFile().getVirtualFile();
-					VirtualFile v2 = o2.getContainingFile().getVirtualFile();
-
-					int value = (v1 == null ? "" : v1.getUrl()).compareTo((v2 == null ? "" : v2.getUrl()));
+			new AbstractCallComparator("File") {
+				public int compare(ReviewableCall o1, ReviewableCall o2) {
+					int value = o1.fileUrl.compareTo(o2.fileUrl);
 
 					// If the calls are in the same file, we sort by the order inside the file.
 					if (value == 0)
-						value = Math.max(-1, Math.min(1, o1.getTextOffset() - o2.getTextOffset()));
+						value = o1.textOffset < o2.textOffset ? -1 : (o1.textOffset == o2.textOffset ? 0 : 1);
 
 					return value;
 				}
 			},
-			new AbstractMethodComparator("Log Level") {
-				public int compare(PsiMethodCallExpression o1, PsiMethodCallExpression o2) {
-					LogLevel l1 = LogPsiUtil.findLogLevel(o1), l2 = LogPsiUtil.findLogLevel(o2);
-					if (l1 == null)
-						l1 = LogLevel.debug;
-					if (l2 == null)
-						l2 = LogLevel.debug;
-					return l1.compareTo(l2);
+			new AbstractCallComparator("Log Level") {
+				public int compare(ReviewableCall o1, ReviewableCall o2) {
+					return o1.level.compareTo(o2.level);
 				}
 			},
-			new AbstractMethodComparator("Log Message") {
-				public int compare(PsiMethodCallExpression o1, PsiMethodCallExpression o2) {
-					return o1.getText().compareTo(o2.getText());
+			new AbstractCallComparator("Log Message") {
+				public int compare(ReviewableCall o1, ReviewableCall o2) {
+					return o1.text.compareTo(o2.text);
 				}
 			},
 	};
@@ -100,7 +92,7 @@ public class GenerateLogReviewDialog extends AbstractLogLevelAwareDialog {
 	private JButton moveDownButton;
 	private JList outputSortOrder;
 
-	List<PsiMethodCallExpression> reviewableCalls = new LinkedList<PsiMethodCallExpression>();
+	List<ReviewableCall> reviewableCalls = Collections.synchronizedList(new ArrayList<ReviewableCall>());
 
 	AbstractEventListener okEnabledListener = new AbstractEventListener() {
 		@Override
@@ -225,14 +217,38 @@ public class GenerateLogReviewDialog extends AbstractLogLevelAwareDialog {
 	public Computable<List<PsiFile>> getReadOperation() {
 		reviewableCalls.clear();
 
+		// Snapshot of the level selection, files may be accepted on worker threads.
+		final boolean allLevelsSelected = selectionPanel.isAllSelected();
+		final Set<LogLevel> selectedLevels = selectionPanel.getSelectedLevels();
+
 		return new DefaultReadOperation() {
 
 			@Override
 			protected boolean acceptFile(PsiFile file, List<PsiMethodCallExpression> loggerCalls) {
-				for (PsiMethodCallExpression callExpression : loggerCalls) {
-					if (!isLoggerCallInSelectedLevel(callExpression))
+				// The sort keys are extracted here as files are accepted in parallel.
+				VirtualFile virtualFile = file.getVirtualFile();
+				String fileUrl = virtualFile == null ? "" : virtualFile.getUrl();
+				String packageName = file instanceof PsiClassOwner ? ((PsiClassOwner) file).getPackageName() : "";
+
+				List<LogLevel> levels = new ArrayList<LogLevel>();
+				List<PsiMethodCallExpression> calls = new ArrayList<PsiMethodCallExpression>();
+				for (LoggerCallIndex.LoggerCall call : LoggerCallIndex.getInstance(file).getLoggerCalls()) {
+					if (!allLevelsSelected && !selectedLevels.contains(call.getLevel()))
 						continue;
-					reviewableCalls.add(callExpression);
+
+					PsiMethodCallExpression callExpression = call.getExpression();
+					if (callExpression != null) {
+						calls.add(callExpression);
+						levels.add(call.getLevel());
+					}
+				}
+
+				// The file is reduced to detached messages right away, so that its PSI is not kept.
+				List<LogMessage> messages = LogMessageUtil.toDetachedMessages(calls);
+				for (int i = 0, len = calls.size(); i < len; i++) {
+					PsiMethodCallExpression callExpression = calls.get(i);
+					reviewableCalls.add(new ReviewableCall(messages.get(i), levels.get(i), packageName, fileUrl,
+							callExpression.getText(), callExpression.getTextOffset()));
 				}
 
 				// We always return false, as we do not want to write any files.
@@ -260,28 +276,32 @@ public class GenerateLogReviewDialog extends AbstractLogLevelAwareDialog {
 				}
 
 				// Sorting the calls first
-				Collections.sort(reviewableCalls, new Comparator<PsiMethodCallExpression>() {
-
-					Comparator[] comparators = getProject().getUserData(SORT_ORDER);
+				Comparator[] sortOrder = getProject().getUserData(SORT_ORDER);
+				final Comparator[] comparators = sortOrder == null ? SORT_COMPARATORS : sortOrder;
 
+				ReviewableCall[] sortedCalls = reviewableCalls.toArray(new ReviewableCall[reviewableCalls.size()]);
+				Arrays.sort(sortedCalls, new Comparator<ReviewableCall>() {
 					@SuppressWarnings("unchecked")
-					public int compare(PsiMethodCallExpression o1, PsiMethodCallExpression o2) {
+					public int compare(ReviewableCall o1, ReviewableCall o2) {
 						int c = 0;
-						if (comparators != null)
-							for (Comparator comparator : comparators) {
-								c = comparator.compare(o1, o2);
-								if (c != 0)
-									break;
-							}
+						for (Comparator comparator : comparators) {
+							c = comparator.compare(o1, o2);
+							if (c != 0)
+								break;
+						}
 						return c;
 					}
 				});
 
+				List<LogMessage> messages = new ArrayList<LogMessage>(sortedCalls.length);
+				for (ReviewableCall call : sortedCalls)
+					messages.add(call.message);
+
 				// Create the report.
 				try {
 					Codec codec = Codec.SELECTOR.select(reviewFile);
 					if (codec != null)
-						codec.encode(reviewableCalls, reviewFile);
+						codec.encode(messages.iterator(), getProject().getName(), reviewFile);
 
 					// Open the file afterwards, using the system default viewer.
 					if (Desktop.isDesktopSupported() && reviewFile.exists())
@@ -326,11 +346,34 @@ public class GenerateLogReviewDialog extends AbstractLogLevelAwareDialog {
 		}
 	}
 
-	private abstract static class AbstractMethodComparator implements Comparator<PsiMethodCallExpression> {
+	/**
+	 * Holds the detached message of a call that is written into the review together with the keys it is sorted by.
+	 * <p/>
+	 * Keys are extracted once per call, comparing them does not access any PSI.
+	 */
+	static final class ReviewableCall {
+
+		final LogMessage message;
+		final LogLevel level;
+		final String packageName, fileUrl, text;
+		final int textOffset;
+
+		ReviewableCall(LogMessage message, LogLevel level, String packageName, String fileUrl,
+					   String text, int textOffset) {
+			this.message = message;
+			this.level = level == null ? LogLevel.debug : level;
+			this.packageName = packageName;
+			this.fileUrl = fileUrl;
+			this.text = text;
+			this.textOffset = textOffset;
+		}
+	}
+
+	private abstract static class AbstractCallComparator implements Comparator<ReviewableCall> {
 
 		String name;
 
-		private AbstractMethodComparator(String name) {
+		private AbstractCallComparator(String name) {
 			this.name = name;
 		}
 
@@ -16,7 +16,11 @@
 
 package net.sf.logsupport.ui;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.util.ProgressIndicatorBase;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import net.sf.logsupport.L10N;
@@ -29,8 +33,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
-import java.util.Collections;
-import java.util.EventObject;
+import java.util.*;
 import java.util.List;
 
 /**
@@ -48,6 +51,19 @@ public class IntegrateLogReviewDialog extends DialogWrapper {
 	private static final Icon INFO = new ImageIcon(
 			IntegrateLogReviewDialog.class.getResource("/icons/info.png"));
 
+	private static final int MAX_DECODED_REVIEWS = 2;
+
+	/**
+	 * Caches the messages of the last decoded reviews, so that reopening the dialog for the same file is instant.
+	 */
+	private static final Map<ReviewFile, List<LogMessageUtil.LogMessage>> DECODED_REVIEWS =
+			Collections.synchronizedMap(new LinkedHashMap<ReviewFile, List<LogMessageUtil.LogMessage>>(4, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<ReviewFile, List<LogMessageUtil.LogMessage>> eldest) {
+					return size() > MAX_DECODED_REVIEWS;
+				}
+			});
+
 	private JPanel centerPanel = new JPanel(new BorderLayout());
 
 	private ReviewSelectionTextField reviewFileLabel;
@@ -56,7 +72,11 @@ public class IntegrateLogReviewDialog extends DialogWrapper {
 			L10N.message("IntegrateLogReview.invalidReview"), WARN, SwingConstants.LEADING);
 	private JLabel contentInfoLabel = new JLabel("", INFO, SwingConstants.LEADING);
 
-	private File parsedFile;
+	private JCheckBox locateMessages = new JCheckBox(L10N.message("IntegrateLogReview.locateMessages"), true);
+	private JCheckBox reformatStatements = new JCheckBox(L10N.message("IntegrateLogReview.reformatStatements"), true);
+
+	private ReviewFile parsedFile;
+	private DecodeTask decodeTask;
 	private List<LogMessageUtil.LogMessage> reviewedMessages = Collections.emptyList();
 
 	/**
@@ -86,7 +106,15 @@ public class IntegrateLogReviewDialog extends DialogWrapper {
 
 		JPanel spacer = new JPanel();
 		spacer.setPreferredSize(new Dimension(280, 4));
-		centerPanel.add(BorderLayout.CENTER, spacer);
+
+		locateMessages.setToolTipText(L10N.message("IntegrateLogReview.locateMessagesTooltip"));
+		reformatStatements.setToolTipText(L10N.message("IntegrateLogReview.reformatStatementsTooltip"));
+
+		JPanel optionsPanel = new JPanel(new BorderLayout());
+		optionsPanel.add(BorderLayout.NORTH, spacer);
+		optionsPanel.add(BorderLayout.CENTER, locateMessages);
+		optionsPanel.add(BorderLayout.SOUTH, reformatStatements);
+		centerPanel.add(BorderLayout.CENTER, optionsPanel);
 		centerPanel.setBorder(BorderFactory.createTitledBorder(L10N.message("IntegrateLogReview.selectTitle")));
 
 		centerPanel.add(BorderLayout.NORTH, reviewFileLabel);
@@ -110,36 +138,181 @@ public class IntegrateLogReviewDialog extends DialogWrapper {
 		return reviewedMessages;
 	}
 
+	/**
+	 * Returns true if changed messages are located using the source locations recorded in the review.
+	 *
+	 * @return true if changed messages are located using the source locations recorded in the review.
+	 */
+	public boolean isLocateMessages() {
+		return locateMessages.isSelected();
+	}
+
+	/**
+	 * Returns true if the statements that contain changed messages are reformatted after the integration.
+	 *
+	 * @return true if the statements that contain changed messages are reformatted.
+	 */
+	public boolean isReformatStatements() {
+		return reformatStatements.isSelected();
+	}
+
+	@Override
+	protected void dispose() {
+		cancelDecoding();
+		super.dispose();
+	}
+
+	/**
+	 * Starts decoding the selected review in the background, canceling the decoding of a previous selection.
+	 */
 	private void parseReviewDocument() {
 		File file = reviewFileLabel.getReviewFile();
-		if (file != null && file.isFile() && file.canRead()) {
+		ReviewFile reviewFile = file != null && file.isFile() && file.canRead() ? new ReviewFile(file) : null;
 
-			// Avoid that we double-parse the same file.
-			if (parsedFile != null && parsedFile.equals(file))
-				return;
+		if (decodeTask != null && !decodeTask.reviewFile.equals(reviewFile))
+			cancelDecoding();
+
+		// Avoid that we double-parse the same file.
+		if (reviewFile == null || reviewFile.equals(parsedFile) || decodeTask != null)
+			return;
+
+		parsedFile = null;
+		reviewedMessages = Collections.emptyList();
+
+		List<LogMessageUtil.LogMessage> messages = DECODED_REVIEWS.get(reviewFile);
+		if (messages != null) {
+			decodingFinished(reviewFile, messages);
+			return;
+		}
+
+		decodeTask = new DecodeTask(reviewFile);
+		showLabel(contentInfoLabel, L10N.message("IntegrateLogReview.decoding"));
+		ApplicationManager.getApplication().executeOnPooledThread(decodeTask);
+	}
+
+	private void cancelDecoding() {
+		if (decodeTask != null) {
+			decodeTask.indicator.cancel();
+			decodeTask = null;
+		}
+	}
+
+	private void decodingFinished(ReviewFile reviewFile, List<LogMessageUtil.LogMessage> messages) {
+		if (messages == null)
+			showLabel(invalidFileLabel, null);
+		else {
+			reviewedMessages = messages;
+			parsedFile = reviewFile;
+			showLabel(contentInfoLabel, L10N.message("IntegrateLogReview.contentInfo", messages.size()));
+		}
+
+		setOKActionEnabled(!reviewedMessages.isEmpty());
+	}
 
-			// Remove info labels.
+	private void showLabel(JLabel label, String text) {
+		if (text != null)
+			label.setText(text);
+
+		if (label.getParent() != centerPanel) {
 			centerPanel.remove(invalidFileLabel);
-			invalidFileLabel.setIcon(WARN);
 			centerPanel.remove(contentInfoLabel);
+			centerPanel.add(BorderLayout.SOUTH, label);
+			centerPanel.invalidate();
+			pack();
+		}
+	}
 
+	/**
+	 * Identifies a review file by path, size and modification time.
+	 */
+	private static final class ReviewFile {
+
+		final File file;
+		final long length, lastModified;
+
+		ReviewFile(File file) {
+			this.file = file.getAbsoluteFile();
+			length = file.length();
+			lastModified = file.lastModified();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof ReviewFile)) return false;
+
+			ReviewFile that = (ReviewFile) o;
+			return length == that.length && lastModified == that.lastModified && file.equals(that.file);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = file.hashCode();
+			result = 31 * result + (int) (length ^ (length >>> 32));
+			result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+			return result;
+		}
+	}
+
+	/**
+	 * Decodes a review on a pooled thread, reporting the progress to the dialog.
+	 */
+	private final class DecodeTask implements Runnable {
+
+		final ReviewFile reviewFile;
+		final ProgressIndicatorBase indicator = new ProgressIndicatorBase() {
+			@Override
+			public void setText2(final String text) {
+				super.setText2(text);
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if (decodeTask == DecodeTask.this)
+							showLabel(contentInfoLabel, text);
+					}
+				});
+			}
+		};
+
+		List<LogMessageUtil.LogMessage> messages;
+
+		DecodeTask(ReviewFile reviewFile) {
+			this.reviewFile = reviewFile;
+		}
+
+		public void run() {
+			try {
+				ProgressManager.getInstance().runProcess(new Runnable() {
+					public void run() {
+						messages = decode(reviewFile.file);
+					}
+				}, indicator);
+			} catch (ProcessCanceledException e) {
+				return;
+			}
+
+			if (messages != null)
+				DECODED_REVIEWS.put(reviewFile, Collections.unmodifiableList(messages));
+
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if (decodeTask == DecodeTask.this) {
+						decodeTask = null;
+						decodingFinished(reviewFile, messages);
+					}
+				}
+			});
+		}
+
+		private List<LogMessageUtil.LogMessage> decode(File file) {
 			try {
 				Codec codec = Codec.SELECTOR.select(file);
 				if (codec == null)
 					throw new IOException("Did not find a codec to decode the file '" + file + "'.");
-
-				reviewedMessages = codec.decode(file);
-				parsedFile = file;
-
-				contentInfoLabel.setText(L10N.message("IntegrateLogReview.contentInfo", reviewedMessages.size()));
-				centerPanel.add(BorderLayout.SOUTH, contentInfoLabel);
-			} catch (IOException e1) {
-				LOG.warn("Failed to read the log review on the attempt to prepare a log integration.", e1);
-				centerPanel.add(BorderLayout.SOUTH, invalidFileLabel);
+				return codec.decode(file);
+			} catch (IOException e) {
+				LOG.warn("Failed to read the log review on the attempt to prepare a log integration.", e);
+				return null;
 			}
-
-			centerPanel.invalidate();
-			pack();
 		}
 	}
 }
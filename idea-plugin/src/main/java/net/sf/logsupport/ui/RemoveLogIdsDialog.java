@@ -56,9 +56,8 @@ public class RemoveLogIdsDialog extends AbstractLogLevelAwareDialog {
 			@Override
 			protected void processExpression(PsiMethodCallExpression expression) {
 				PsiLiteralExpression le = findSupportedLiteralExpression(expression.getArgumentList());
-				removeLogIdIntention.invoke(le);
-				markChanged();
+				replace(le, removeLogIdIntention.getAdjustedText(le), false);
 			}
 		};
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -20,6 +20,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIfStatement;
 import com.intellij.psi.PsiMethodCallExpression;
 import net.sf.logsupport.config.LogLevel;
 import net.sf.logsupport.config.ProjectConfiguration;
@@ -28,9 +29,13 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import static net.sf.logsupport.util.LogConditionUtil.findSurroundingCondition;
+
 /**
  * Dialog that adds log Ids on selected files.
  *
@@ -71,24 +76,25 @@ public class RemoveLogIfConditionsDialog extends AbstractLogLevelAwareDialog {
 
 			private final RemoveLogIfConditionIntention intention = new RemoveLogIfConditionIntention();
 
+			// Conditions that were unwrapped in the current file, a condition may guard more than one call.
+			private final Map<PsiIfStatement, Boolean> unwrappedStatements =
+					new IdentityHashMap<PsiIfStatement, Boolean>();
+
 			@Override
-			protected void processExpression(PsiMethodCallExpression expression) {
-				if (expression != null && intention.isAvailable(expression)) {
-					intention.doInvoke(expression);
-					markChanged();
+			protected void collectEdits(PsiFile psiFile) {
+				try {
+					super.collectEdits(psiFile);
+				} finally {
+					unwrappedStatements.clear();
 				}
 			}
 
 			@Override
-			protected void processFile(PsiFile psiFile) {
-				super.processFile(psiFile);
-
-				// We need to apply code formatting when changes occurred.
-				if (isChanged()) {
-					// THIS DOESN'T WORK (and it doesn't seem to be necessary either...)
-					/*ReformatCodeProcessor processor =
-							new ReformatCodeProcessor(psiFile.getProject(), psiFile, psiFile.getTextRange());
-					processor.runWithoutProgress();*/
+			protected void processExpression(PsiMethodCallExpression expression) {
+				if (expression != null && intention.isAvailable(expression)) {
+					PsiIfStatement statement = findSurroundingCondition(expression);
+					if (statement != null && unwrappedStatements.put(statement, Boolean.TRUE) == null)
+						replace(statement, intention.getUnwrappedStatementsText(statement), true);
 				}
 			}
 		};
@@ -16,6 +16,7 @@
 
 package net.sf.logsupport.ui.config;
 
+import com.intellij.openapi.options.ConfigurationException;
 import com.intellij.openapi.ui.NamedConfigurable;
 import net.sf.logsupport.LogSupportComponent;
 import net.sf.logsupport.config.LogFramework;
@@ -75,6 +76,15 @@ public class LogFrameworksPanel extends AbstractMasterDetailsPanel<LogFramework>
 		element.setName(name);
 	}
 
+	@Override
+	public void apply() throws ConfigurationException {
+		try {
+			super.apply();
+		} finally {
+			logSupport.getState().frameworksChanged();
+		}
+	}
+
 	@Override
 	protected List<LogFramework> getElementsFromBackingStore() {
 		return logSupport.getState().getFrameworks();
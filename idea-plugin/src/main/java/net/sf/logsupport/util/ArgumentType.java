@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Classifies the arguments of formatted log calls by the kind of value they pass to the formatter.
+ * <p/>
+ * Every type corresponds to the runtime class that is used by the formatter to decide whether a placeholder
+ * accepts the value, arguments that don't match any specific type are treated like strings ({@link #OTHER}).
+ *
+ * @author Juergen_Kellerer, 2011-10-09
+ * @version 1.0
+ */
+public enum ArgumentType {
+	DATE("java.util.Date"),
+	THROWABLE("java.lang.Throwable"),
+	DOUBLE("java.lang.Double"),
+	FLOAT("java.lang.Float"),
+	LONG("java.lang.Long"),
+	INT("java.lang.Integer"),
+	SHORT("java.lang.Short"),
+	CHAR("java.lang.Character"),
+	BYTE("java.lang.Byte"),
+	BOOLEAN("java.lang.Boolean"),
+	OTHER("java.lang.String");
+
+	/**
+	 * Is the set of all argument types.
+	 */
+	public static final Set<ArgumentType> ANY = EnumSet.allOf(ArgumentType.class);
+
+	/**
+	 * Is the set of argument types that are instances of java.lang.Number.
+	 */
+	public static final Set<ArgumentType> NUMBERS = EnumSet.of(DOUBLE, FLOAT, LONG, INT, SHORT, BYTE);
+
+	/**
+	 * Is the set of argument types that are integral numbers.
+	 */
+	public static final Set<ArgumentType> INTEGRALS = EnumSet.of(LONG, INT, SHORT, BYTE);
+
+	/**
+	 * Is the set of argument types that are floating point numbers.
+	 */
+	public static final Set<ArgumentType> FLOATING_POINTS = EnumSet.of(DOUBLE, FLOAT);
+
+	private final String className;
+
+	ArgumentType(String className) {
+		this.className = className;
+	}
+
+	/**
+	 * Returns the name of the class that represents the argument at runtime.
+	 *
+	 * @return the name of the class that represents the argument at runtime.
+	 */
+	public String getClassName() {
+		return className;
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.PsiTypeParameter;
+import com.intellij.psi.util.InheritanceUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Classifies PSI types into {@link ArgumentType}s, memorizing the result per canonical type text.
+ * <p/>
+ * Type parameters are not memorized, as their text (e.g. "T") is shared by unrelated declarations
+ * with different bounds.
+ * <p/>
+ * A classifier lives as long as the code structure of the project is unchanged, it is shared by all
+ * inspections that run within this period. Class types are checked against java.util.Date and java.lang.Throwable
+ * using InheritanceUtil; types that don't resolve are walked breadth first with a visited-set, so that shared
+ * ancestors of deep or diamond shaped hierarchies are visited only once.
+ *
+ * @author Juergen_Kellerer, 2011-10-10
+ * @version 1.0
+ */
+final class ArgumentTypeClassifier {
+
+	private static final Key<ArgumentTypeClassifier> ARGUMENT_TYPE_CLASSIFIER =
+			Key.create("LOG_SUPPORT_ARGUMENT_TYPE_CLASSIFIER");
+
+	private static final int MAX_TYPES = 4096;
+
+	private static final String DATE_CLASS = "java.util.Date", THROWABLE_CLASS = "java.lang.Throwable";
+
+	private static final PsiType DOUBLE = ReflectionUtil.getField(PsiType.class, "DOUBLE");
+	private static final PsiType FLOAT = ReflectionUtil.getField(PsiType.class, "FLOAT");
+	private static final PsiType LONG = ReflectionUtil.getField(PsiType.class, "LONG");
+	private static final PsiType INT = ReflectionUtil.getField(PsiType.class, "INT");
+	private static final PsiType SHORT = ReflectionUtil.getField(PsiType.class, "SHORT");
+	private static final PsiType CHAR = ReflectionUtil.getField(PsiType.class, "CHAR");
+	private static final PsiType BYTE = ReflectionUtil.getField(PsiType.class, "BYTE");
+	private static final PsiType BOOLEAN = ReflectionUtil.getField(PsiType.class, "BOOLEAN");
+
+	/**
+	 * Returns the up-to-date classifier for the given project.
+	 *
+	 * @param project the project to return the classifier for.
+	 * @return the up-to-date classifier for the given project.
+	 */
+	@NotNull
+	static ArgumentTypeClassifier getInstance(@NotNull Project project) {
+		final long structureStamp = PsiManager.getInstance(project).getModificationTracker().
+				getOutOfCodeBlockModificationCount();
+
+		ArgumentTypeClassifier classifier = project.getUserData(ARGUMENT_TYPE_CLASSIFIER);
+		if (classifier == null || classifier.structureStamp != structureStamp) {
+			classifier = new ArgumentTypeClassifier(structureStamp);
+			project.putUserData(ARGUMENT_TYPE_CLASSIFIER, classifier);
+		}
+
+		return classifier;
+	}
+
+	private final long structureStamp;
+	private final ConcurrentMap<String, ArgumentType> types = new ConcurrentHashMap<String, ArgumentType>();
+
+	private ArgumentTypeClassifier(long structureStamp) {
+		this.structureStamp = structureStamp;
+	}
+
+	/**
+	 * Classifies the given type.
+	 *
+	 * @param type the type of a log call argument.
+	 * @return the classification of the type, {@link ArgumentType#OTHER} if the type is not known.
+	 */
+	@NotNull
+	ArgumentType classify(@NotNull PsiType type) {
+		String typeText = type.getCanonicalText();
+		if (typeText == null)
+			return computeType(type);
+
+		// Type parameters have unqualified names, only these need to be resolved before using the memo.
+		if (typeText.indexOf('.') == -1 && type instanceof PsiClassType &&
+				((PsiClassType) type).resolve() instanceof PsiTypeParameter)
+			return computeType(type);
+
+		ArgumentType result = types.get(typeText);
+		if (result == null) {
+			result = computeType(type);
+			if (types.size() >= MAX_TYPES)
+				types.clear();
+			types.put(typeText, result);
+		}
+		return result;
+	}
+
+	private static ArgumentType computeType(PsiType type) {
+		PsiClass psiClass = type instanceof PsiClassType ? ((PsiClassType) type).resolve() : null;
+		if (psiClass != null) {
+			if (isInheritor(psiClass, DATE_CLASS))
+				return ArgumentType.DATE;
+			if (isInheritor(psiClass, THROWABLE_CLASS))
+				return ArgumentType.THROWABLE;
+		} else {
+			String superType = findSuperType(type, DATE_CLASS, THROWABLE_CLASS);
+			if (DATE_CLASS.equals(superType))
+				return ArgumentType.DATE;
+			if (THROWABLE_CLASS.equals(superType))
+				return ArgumentType.THROWABLE;
+		}
+
+		if (type.isAssignableFrom(DOUBLE))
+			return ArgumentType.DOUBLE;
+		if (type.isAssignableFrom(FLOAT))
+			return ArgumentType.FLOAT;
+		if (type.isAssignableFrom(LONG))
+			return ArgumentType.LONG;
+		if (type.isAssignableFrom(INT))
+			return ArgumentType.INT;
+		if (type.isAssignableFrom(SHORT))
+			return ArgumentType.SHORT;
+		if (type.isAssignableFrom(CHAR))
+			return ArgumentType.CHAR;
+		if (type.isAssignableFrom(BYTE))
+			return ArgumentType.BYTE;
+		if (type.isAssignableFrom(BOOLEAN))
+			return ArgumentType.BOOLEAN;
+
+		return ArgumentType.OTHER;
+	}
+
+	private static boolean isInheritor(PsiClass psiClass, String className) {
+		return className.equals(psiClass.getQualifiedName()) || InheritanceUtil.isInheritor(psiClass, className);
+	}
+
+	/**
+	 * Walks the super types of the given type breadth first and returns the first of the given class names
+	 * that is found (checking the first class name before the second on the same level).
+	 *
+	 * @param type       the type to start from.
+	 * @param classNames the class names to look for.
+	 * @return the class name that was found or 'null' if the type has none of the given super types.
+	 */
+	private static String findSuperType(@NotNull PsiType type, @NotNull String... classNames) {
+		final Set<String> visitedTypes = new HashSet<String>();
+
+		List<PsiType> types = Arrays.asList(type);
+		while (!types.isEmpty()) {
+			for (String className : classNames) {
+				for (PsiType t : types) {
+					if (className.equals(t.getCanonicalText()))
+						return className;
+				}
+			}
+
+			List<PsiType> superTypes = new ArrayList<PsiType>(types.size() * 2);
+			for (PsiType t : types) {
+				for (PsiType st : t.getSuperTypes()) {
+					if (visitedTypes.add(st.getCanonicalText()))
+						superTypes.add(st);
+				}
+			}
+
+			types = superTypes;
+		}
+
+		return null;
+	}
+}
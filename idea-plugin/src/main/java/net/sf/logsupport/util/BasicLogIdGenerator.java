@@ -17,24 +17,26 @@
 package net.sf.logsupport.util;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Basic implementation of a log id generator.
+ * <p/>
+ * Increment, min and max value are held as one immutable snapshot (see {@link Bounds}), so that they can be
+ * read consistently without locking.
  *
  * @author Juergen_Kellerer, 2010-04-02
  * @version 1.0
  */
 public class BasicLogIdGenerator implements NumericLogIdGenerator {
 
-	static Pattern extractSequenceSplitPattern = Pattern.compile("[^A-Fa-f0-9]+");
-
 	final String idFormat;
+	final LogIdFormat format;
 	final Pattern idPattern;
 
-	int increment, minValue, maxValue;
-
+	final AtomicReference<Bounds> bounds;
 	final AtomicInteger sequence;
 
 	public BasicLogIdGenerator() {
@@ -44,24 +46,17 @@ public class BasicLogIdGenerator implements NumericLogIdGenerator {
 	public BasicLogIdGenerator(String idFormat, Pattern idPattern, int sequence, int increment) {
 		this.idFormat = idFormat;
 		this.idPattern = idPattern;
+		format = LogIdFormat.compile(idFormat);
 
 		this.sequence = new AtomicInteger(sequence);
-		setSequenceIncrement(increment);
+		bounds = new AtomicReference<Bounds>(new Bounds(increment, 0, 0));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public int parseSequenceValue(String id) {
-		if (id != null) {
-			String[] parts = extractSequenceSplitPattern.split(id);
-			if (parts.length > 0) {
-				if (createId(Integer.decode("#ffff")).contains("ffff"))
-					return Integer.parseInt(parts[parts.length - 1], 16);
-				return Integer.parseInt(parts[parts.length - 1]);
-			}
-		}
-		return -1;
+		return format.parse(id);
 	}
 
 	/**
@@ -75,53 +70,63 @@ public class BasicLogIdGenerator implements NumericLogIdGenerator {
 	 * {@inheritDoc}
 	 */
 	public void setSequenceValue(int value) {
-		if (value < minValue)
-			value = minValue;
-		sequence.set(value);
+		sequence.set(Math.max(value, bounds.get().minValue));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public int getSequenceIncrement() {
-		return increment;
+		return bounds.get().increment;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void setSequenceIncrement(int increment) {
-		this.increment = Math.max(1, increment);
+		Bounds current;
+		do {
+			current = bounds.get();
+		} while (!bounds.compareAndSet(current, new Bounds(increment, current.minValue, current.maxValue)));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public int getMinSequenceValue() {
-		return minValue;
+		return bounds.get().minValue;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void setMinSequenceValue(int minValue) {
-		this.minValue = minValue;
-		if (sequence.get() < minValue)
-			sequence.set(minValue);
+		Bounds current;
+		do {
+			current = bounds.get();
+		} while (!bounds.compareAndSet(current, new Bounds(current.increment, minValue, current.maxValue)));
+
+		int value;
+		while ((value = sequence.get()) < minValue && !sequence.compareAndSet(value, minValue)) {
+			// retry until the sequence is at least at the min value.
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public int getMaxSequenceValue() {
-		return maxValue;
+		return bounds.get().maxValue;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void setMaxSequenceValue(int maxValue) {
-		this.maxValue = maxValue;
+		Bounds current;
+		do {
+			current = bounds.get();
+		} while (!bounds.compareAndSet(current, new Bounds(current.increment, current.minValue, maxValue)));
 	}
 
 	/**
@@ -138,7 +143,7 @@ public class BasicLogIdGenerator implements NumericLogIdGenerator {
 	 * {@inheritDoc}
 	 */
 	public String nextId() {
-		return createId(sequence.getAndAdd(increment));
+		return createId(sequence.getAndAdd(bounds.get().increment));
 	}
 
 	/**
@@ -152,8 +157,42 @@ public class BasicLogIdGenerator implements NumericLogIdGenerator {
 	 * {@inheritDoc}
 	 */
 	public String createId(int sequenceValue) {
+		int maxValue = bounds.get().maxValue;
 		if (maxValue > 0)
 			sequenceValue = Math.min(maxValue, sequenceValue);
-		return String.format(idFormat, sequenceValue);
+		return formatId(sequenceValue);
+	}
+
+	/**
+	 * Formats the given sequence value without applying any bounds.
+	 *
+	 * @param sequenceValue the sequence value to format.
+	 * @return the formatted id.
+	 */
+	String formatId(int sequenceValue) {
+		return format.format(sequenceValue);
+	}
+
+	/**
+	 * Is an immutable snapshot of the bounds, allowing to read them consistently without locking.
+	 */
+	static final class Bounds {
+
+		final int increment, minValue, maxValue;
+
+		Bounds(int increment, int minValue, int maxValue) {
+			this.increment = Math.max(1, increment);
+			this.minValue = minValue;
+			this.maxValue = maxValue;
+		}
+
+		/**
+		 * Returns the highest value that may be allocated.
+		 *
+		 * @return the highest value that may be allocated.
+		 */
+		int getLimit() {
+			return maxValue > 0 ? maxValue : Integer.MAX_VALUE;
+		}
 	}
 }
@@ -6,6 +6,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ServiceLoader;
 
@@ -88,6 +89,24 @@ public interface Codec {
 	 */
 	void encode(@NotNull List<PsiMethodCallExpression> expressionList, @NotNull File logReview) throws IOException;
 
+	/**
+	 * Encodes detached log messages into the specified review file.
+	 * <p/>
+	 * Every message represents one log call (see {@link LogMessageUtil#toDetachedMessages(List)}), messages are
+	 * written in the order they are returned while occurrences of the same message are grouped into one entry.
+	 * <p/>
+	 * Note: This is not a streaming encoder. Grouping needs all occurrences of a message before its entry can be
+	 * written, therefore implementations consume the whole iterator and hold all (detached) messages in memory
+	 * before the first entry is written. Only the output is written incrementally.
+	 *
+	 * @param messages	the detached log messages to write into the review file.
+	 * @param projectName the name of the project the review is created for.
+	 * @param logReview   the file to create.
+	 * @throws IOException if codec could not access or encode the file.
+	 */
+	void encode(@NotNull Iterator<LogMessageUtil.LogMessage> messages, @NotNull String projectName,
+				@NotNull File logReview) throws IOException;
+
 	/**
 	 * Selects the installed codecs.
 	 */
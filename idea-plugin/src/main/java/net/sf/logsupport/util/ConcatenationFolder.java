@@ -0,0 +1,299 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.psi.*;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.sf.logsupport.util.LogMessageUtil.DELIMITED_ARTIFACT;
+import static net.sf.logsupport.util.LogMessageUtil.VARIABLE_ARTIFACT;
+
+/**
+ * Splits a log message expression into its artifacts using a single, iterative constant fold.
+ * <p/>
+ * Every operand of the expression tree is evaluated exactly once (bottom-up) and string concatenations are folded
+ * from the values of their operands instead of evaluating the complete sub tree again on every level. The
+ * produced artifacts are the same as the ones of the former recursive implementation, which treated a
+ * concatenation as a chain of left associative binary expressions.
+ * <p/>
+ * Polyadic expressions (used by IDEA 10.5 and newer for chains of the same operator) are accessed via reflection
+ * as they don't exist in the API that the plugin is compiled against.
+ *
+ * @author Juergen_Kellerer, 2011-10-12
+ * @version 1.0
+ */
+final class ConcatenationFolder {
+
+	private static final Logger LOG = Logger.getInstance("#net.sf.logsupport.util.ConcatenationFolder");
+
+	private static final Class<?> POLYADIC_EXPRESSION;
+	private static final Method GET_OPERANDS, GET_OPERATION_TOKEN_TYPE;
+
+	static {
+		Class<?> polyadicExpression = null;
+		Method getOperands = null, getOperationTokenType = null;
+		try {
+			polyadicExpression = Class.forName("com.intellij.psi.PsiPolyadicExpression", false,
+					PsiExpression.class.getClassLoader());
+			getOperands = polyadicExpression.getMethod("getOperands");
+			getOperationTokenType = polyadicExpression.getMethod("getOperationTokenType");
+		} catch (ClassNotFoundException ignored) {
+			// IDEA versions prior to 10.5 use binary expressions only.
+		} catch (NoSuchMethodException e) {
+			LOG.warn("Failed to access polyadic expressions, concatenations may not be split into artifacts.", e);
+			polyadicExpression = null;
+		}
+
+		POLYADIC_EXPRESSION = polyadicExpression;
+		GET_OPERANDS = getOperands;
+		GET_OPERATION_TOKEN_TYPE = getOperationTokenType;
+	}
+
+	/**
+	 * Returns true if the given element is a binary or polyadic expression.
+	 *
+	 * @param element the element to test.
+	 * @return true if the given element is a binary or polyadic expression.
+	 */
+	static boolean isConcatenation(@Nullable PsiElement element) {
+		return element instanceof PsiBinaryExpression ||
+				(POLYADIC_EXPRESSION != null && POLYADIC_EXPRESSION.isInstance(element));
+	}
+
+	/**
+	 * Splits the given expression into artifacts.
+	 *
+	 * @param expression			   the top most expression of the log message.
+	 * @param mergeConstantExpressions Try to merge constant expression and create only one artifact where possible.
+	 * @return the artifacts in order of appearance, either literal expressions or constant strings.
+	 */
+	@NotNull
+	static List<Object> fold(@Nullable PsiExpression expression, boolean mergeConstantExpressions) {
+		List<Object> artifacts = new ArrayList<Object>();
+		if (expression != null) {
+			ConcatenationFolder folder = new ConcatenationFolder(mergeConstantExpressions);
+			folder.evaluate(expression);
+			folder.emit(expression, artifacts);
+		}
+		return artifacts;
+	}
+
+	private final boolean mergeConstantExpressions;
+	private final Map<PsiExpression, Node> nodes = new IdentityHashMap<PsiExpression, Node>();
+
+	private ConcatenationFolder(boolean mergeConstantExpressions) {
+		this.mergeConstantExpressions = mergeConstantExpressions;
+	}
+
+	/**
+	 * Evaluates all operands of the given expression in post order.
+	 *
+	 * @param expression the expression to evaluate.
+	 */
+	private void evaluate(PsiExpression expression) {
+		List<PsiExpression> stack = new ArrayList<PsiExpression>();
+		stack.add(expression);
+
+		while (!stack.isEmpty()) {
+			PsiExpression current = stack.get(stack.size() - 1);
+			Node node = nodes.get(current);
+
+			if (node == null) {
+				node = new Node(current);
+				nodes.put(current, node);
+				if (node.operands != null) {
+					for (PsiExpression operand : node.operands) {
+						if (operand != null)
+							stack.add(operand);
+					}
+					continue;
+				}
+				evaluateOperand(node);
+			} else
+				evaluateConcatenation(node);
+
+			stack.remove(stack.size() - 1);
+		}
+	}
+
+	private void evaluateOperand(Node node) {
+		PsiExpression expression = node.expression;
+		node.value = expression instanceof PsiLiteralExpression ?
+				((PsiLiteralExpression) expression).getValue() : LogPsiUtil.computeConstantExpression(expression);
+
+		PsiType type = expression.getType();
+		node.string = type != null && type.equalsToText("java.lang.String");
+	}
+
+	private void evaluateConcatenation(Node node) {
+		PsiExpression[] operands = node.operands;
+		int last = operands.length - 1;
+
+		int leadingConstants = 0, firstString = -1;
+		while (leadingConstants <= last && isConstant(operands[leadingConstants]))
+			leadingConstants++;
+		for (int i = 0; i <= last && firstString == -1; i++) {
+			if (operands[i] != null && nodes.get(operands[i]).string)
+				firstString = i;
+		}
+
+		boolean plus = node.operationType == JavaTokenType.PLUS;
+		node.string = plus && firstString != -1;
+
+		if (node.string && firstString <= 1) {
+			// Every prefix of the chain is a string concatenation, its value is built from the operands on demand.
+			node.stringConcatenation = true;
+			node.constantPrefixes = Math.max(0, leadingConstants - 1);
+		} else {
+			if (leadingConstants > last)
+				node.value = LogPsiUtil.computeConstantExpression(node.expression);
+			node.constantPrefixes = node.value == null ? 0 : last;
+		}
+	}
+
+	private boolean isConstant(PsiExpression operand) {
+		return operand != null && nodes.get(operand).isConstant();
+	}
+
+	/**
+	 * Emits the artifacts of the given expression in pre order.
+	 *
+	 * @param expression the expression to emit.
+	 * @param artifacts  the list to add the artifacts to.
+	 */
+	private void emit(PsiExpression expression, List<Object> artifacts) {
+		List<Object> stack = new ArrayList<Object>();
+		stack.add(expression);
+
+		List<Object> items = new ArrayList<Object>();
+		while (!stack.isEmpty()) {
+			Object current = stack.remove(stack.size() - 1);
+			if (current instanceof String || current instanceof PsiLiteralExpression) {
+				artifacts.add(current);
+				continue;
+			}
+
+			Node node = nodes.get((PsiExpression) current);
+			if (node.operands == null) {
+				artifacts.add(VARIABLE_ARTIFACT);
+				continue;
+			}
+
+			items.clear();
+			PsiExpression[] operands = node.operands;
+			int constantPrefixes = node.constantPrefixes, first = 0;
+			if (mergeConstantExpressions && constantPrefixes > 0) {
+				items.add(toString(node, constantPrefixes));
+				first = constantPrefixes + 1;
+			}
+			for (int i = first; i < operands.length; i++) {
+				if (i > 0 && i <= constantPrefixes)
+					items.add(DELIMITED_ARTIFACT);
+				if (operands[i] != null)
+					items.add(operands[i]);
+			}
+
+			for (int i = items.size() - 1; i >= 0; i--)
+				stack.add(items.get(i));
+		}
+	}
+
+	/**
+	 * Returns the value of the constant prefix of the given concatenation.
+	 *
+	 * @param node		   the concatenation.
+	 * @param constantPrefix the index of the last operand to include.
+	 * @return the value of the constant prefix of the given concatenation.
+	 */
+	private String toString(Node node, int constantPrefix) {
+		if (!node.stringConcatenation)
+			return String.valueOf(node.value);
+
+		StringBuilder builder = new StringBuilder();
+		List<PsiExpression> stack = new ArrayList<PsiExpression>();
+		for (int i = constantPrefix; i >= 0; i--)
+			stack.add(node.operands[i]);
+
+		while (!stack.isEmpty()) {
+			Node operand = nodes.get(stack.remove(stack.size() - 1));
+			if (operand.stringConcatenation) {
+				for (int i = operand.operands.length - 1; i >= 0; i--)
+					stack.add(operand.operands[i]);
+			} else
+				builder.append(operand.value);
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Holds the evaluation result of a single expression.
+	 */
+	private static final class Node {
+
+		final PsiExpression expression;
+		final PsiExpression[] operands;
+		final IElementType operationType;
+
+		Object value;
+		boolean string, stringConcatenation;
+		int constantPrefixes;
+
+		Node(PsiExpression expression) {
+			this.expression = expression;
+
+			if (expression instanceof PsiBinaryExpression) {
+				PsiBinaryExpression binaryExpression = (PsiBinaryExpression) expression;
+				operands = new PsiExpression[]{binaryExpression.getLOperand(), binaryExpression.getROperand()};
+				operationType = binaryExpression.getOperationSign().getTokenType();
+			} else if (POLYADIC_EXPRESSION != null && POLYADIC_EXPRESSION.isInstance(expression)) {
+				operands = invoke(GET_OPERANDS, expression);
+				operationType = invoke(GET_OPERATION_TOKEN_TYPE, expression);
+			} else {
+				operands = null;
+				operationType = null;
+			}
+		}
+
+		/**
+		 * Returns true if the complete expression is a compile time constant.
+		 *
+		 * @return true if the complete expression is a compile time constant.
+		 */
+		boolean isConstant() {
+			return operands == null ? value != null : constantPrefixes == operands.length - 1;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> T invoke(Method method, PsiExpression expression) {
+			try {
+				return (T) method.invoke(expression);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects text replacements inside a single file and applies them to the document of the file in one pass.
+ * <p/>
+ * Edits are collected without modifying anything (e.g. inside a read action). When applied, they are sorted
+ * by position and replaced from the end of the file towards the start, so that the ranges of pending edits
+ * remain valid. The document is committed only once, instead of creating and reparsing PSI for every edit.
+ * Adding the same edit more than once (e.g. for every call inside a statement that is replaced) has no effect.
+ * <p/>
+ * Edits may request reformatting of a range around them (e.g. the enclosing statement). These ranges are
+ * mapped to the changed document, merged and reformatted after the commit, so that only the changed parts of
+ * the file are formatted.
+ *
+ * @author Juergen_Kellerer, 2011-10-16
+ * @version 1.0
+ */
+public final class DocumentEditBatch {
+
+	private static final Logger LOG = Logger.getInstance("#net.sf.logsupport.util.DocumentEditBatch");
+
+	private static final Comparator<Edit> POSITION_ORDER = new Comparator<Edit>() {
+		public int compare(Edit o1, Edit o2) {
+			return o1.range.getStartOffset() - o2.range.getStartOffset();
+		}
+	};
+
+	private final PsiFile file;
+	private final Set<Edit> edits = new LinkedHashSet<Edit>();
+
+	public DocumentEditBatch(@NotNull PsiFile file) {
+		this.file = file;
+	}
+
+	public PsiFile getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns true if the batch does not contain any edits.
+	 *
+	 * @return true if the batch does not contain any edits.
+	 */
+	public boolean isEmpty() {
+		return edits.isEmpty();
+	}
+
+	/**
+	 * Returns the number of collected edits.
+	 *
+	 * @return the number of collected edits.
+	 */
+	public int size() {
+		return edits.size();
+	}
+
+	/**
+	 * Adds an edit that replaces the text of the given element.
+	 *
+	 * @param element  the element to replace, ignored if 'null'.
+	 * @param newText  the text that replaces the element, ignored if 'null' or equal to the current text.
+	 * @param reformat whether the replaced range is reformatted after the edits were applied.
+	 */
+	public void replace(PsiElement element, String newText, boolean reformat) {
+		if (element != null && newText != null)
+			replace(element.getTextRange(), element.getText(), newText, reformat);
+	}
+
+	/**
+	 * Adds an edit that replaces the given range.
+	 *
+	 * @param range	the range to replace.
+	 * @param oldText  the text that is expected inside the range when the edit is applied.
+	 * @param newText  the text that replaces the range.
+	 * @param reformat whether the replaced range is reformatted after the edits were applied.
+	 */
+	public void replace(@NotNull TextRange range, @NotNull String oldText, @NotNull String newText, boolean reformat) {
+		replace(range, oldText, newText, reformat ? range : null);
+	}
+
+	/**
+	 * Adds an edit that replaces the given range.
+	 *
+	 * @param range		 the range to replace.
+	 * @param oldText	   the text that is expected inside the range when the edit is applied.
+	 * @param newText	   the text that replaces the range.
+	 * @param reformatRange the range to reformat after the edits were applied (in positions before the edit),
+	 *                      'null' to not reformat. The range is extended to contain the replaced range.
+	 */
+	public void replace(@NotNull TextRange range, @NotNull String oldText, @NotNull String newText,
+						@Nullable TextRange reformatRange) {
+		if (reformatRange == null && oldText.equals(newText))
+			return;
+
+		if (reformatRange != null && !reformatRange.contains(range)) {
+			reformatRange = new TextRange(Math.min(range.getStartOffset(), reformatRange.getStartOffset()),
+					Math.max(range.getEndOffset(), reformatRange.getEndOffset()));
+		}
+
+		edits.add(new Edit(range, oldText, newText, reformatRange));
+	}
+
+	/**
+	 * Applies all edits to the document of the file and commits the document.
+	 * <p/>
+	 * Must be called inside a write action. Edits whose range no longer contains the expected text, or which
+	 * overlap with a preceding edit are skipped.
+	 *
+	 * @return the number of edits that were applied.
+	 */
+	public int apply() {
+		if (edits.isEmpty())
+			return 0;
+
+		PsiDocumentManager documentManager = PsiDocumentManager.getInstance(file.getProject());
+		Document document = documentManager.getDocument(file);
+		if (document == null) {
+			LOG.warn("Cannot apply changes to " + file.getName() + ", the file has no document.");
+			return 0;
+		}
+
+		List<Edit> sortedEdits = new ArrayList<Edit>(edits);
+		Collections.sort(sortedEdits, POSITION_ORDER);
+
+		CharSequence text = document.getCharsSequence();
+		List<Edit> accepted = new ArrayList<Edit>(sortedEdits.size());
+		int lastEnd = 0;
+		for (Edit edit : sortedEdits) {
+			TextRange range = edit.range;
+			if (range.getStartOffset() < lastEnd || range.getEndOffset() > text.length() ||
+					!edit.oldText.equals(text.subSequence(range.getStartOffset(), range.getEndOffset()).toString())) {
+				LOG.warn("Skipping change in " + file.getName() + range + ", the source was modified or " +
+						"the change overlaps a previous change.");
+				continue;
+			}
+
+			accepted.add(edit);
+			lastEnd = range.getEndOffset();
+		}
+
+		// Apply from the end of the file, so that the ranges of pending edits remain valid.
+		for (int i = accepted.size() - 1; i >= 0; i--) {
+			Edit edit = accepted.get(i);
+			document.replaceString(edit.range.getStartOffset(), edit.range.getEndOffset(), edit.newText);
+		}
+
+		if (!accepted.isEmpty()) {
+			documentManager.commitDocument(document);
+			reformat(documentManager, document, accepted);
+		}
+
+		edits.clear();
+		return accepted.size();
+	}
+
+	private void reformat(PsiDocumentManager documentManager, Document document, List<Edit> appliedEdits) {
+		List<TextRange> ranges = new ArrayList<TextRange>();
+		for (Edit edit : appliedEdits) {
+			if (edit.reformatRange != null)
+				ranges.add(toChangedRange(edit.reformatRange, appliedEdits));
+		}
+
+		if (ranges.isEmpty())
+			return;
+
+		Collections.sort(ranges, new Comparator<TextRange>() {
+			public int compare(TextRange o1, TextRange o2) {
+				return o1.getStartOffset() - o2.getStartOffset();
+			}
+		});
+
+		// Reformatting from the end of the file keeps the preceding ranges valid.
+		CodeStyleManager styleManager = CodeStyleManager.getInstance(file.getProject());
+		int start = -1, end = -1;
+		for (int i = ranges.size() - 1; i >= 0; i--) {
+			TextRange range = ranges.get(i);
+			if (start != -1 && range.getEndOffset() >= start) {
+				start = range.getStartOffset();
+				end = Math.max(end, range.getEndOffset());
+				continue;
+			}
+
+			if (start != -1)
+				styleManager.reformatRange(file, start, end);
+			start = range.getStartOffset();
+			end = range.getEndOffset();
+		}
+		styleManager.reformatRange(file, start, end);
+
+		documentManager.doPostponedOperationsAndUnblockDocument(document);
+	}
+
+	/**
+	 * Maps a range of the unchanged document to the changed document.
+	 *
+	 * @param range		the range to map, must contain the edits it intersects with.
+	 * @param appliedEdits the applied edits ordered by position.
+	 * @return the range inside the changed document.
+	 */
+	private static TextRange toChangedRange(TextRange range, List<Edit> appliedEdits) {
+		int startShift = 0, endShift = 0;
+		for (Edit edit : appliedEdits) {
+			TextRange editRange = edit.range;
+			if (editRange.getStartOffset() >= range.getEndOffset() && !editRange.equals(range))
+				break;
+
+			int delta = edit.newText.length() - editRange.getLength();
+			endShift += delta;
+			if (!range.contains(editRange))
+				startShift += delta;
+		}
+
+		return new TextRange(range.getStartOffset() + startShift, range.getEndOffset() + endShift);
+	}
+
+	private static final class Edit {
+
+		final TextRange range, reformatRange;
+		final String oldText, newText;
+
+		Edit(TextRange range, String oldText, String newText, TextRange reformatRange) {
+			this.range = range;
+			this.oldText = oldText;
+			this.newText = newText;
+			this.reformatRange = reformatRange;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Edit)) return false;
+
+			Edit edit = (Edit) o;
+			return range.equals(edit.range) && oldText.equals(edit.oldText) && newText.equals(edit.newText) &&
+					(reformatRange != null ? reformatRange.equals(edit.reformatRange) : edit.reformatRange == null);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = range.hashCode();
+			result = 31 * result + oldText.hashCode();
+			result = 31 * result + newText.hashCode();
+			result = 31 * result + (reformatRange != null ? reformatRange.hashCode() : 0);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * Implements a log id generator that allocates sequence values lock-free and never hands out a value twice.
+ * <p/>
+ * The sequence holds the next free value. Allocations read the current bounds (increment, min and max value)
+ * as one snapshot and advance the sequence using a compare-and-set loop, a value beyond the max
+ * value is never allocated, instead {@link LogIdExhaustedException} is thrown. Workers that need many IDs may
+ * lease a contiguous block of values with a single allocation (see {@link #lease(int)}) and return the unused
+ * rest of the block when done, which keeps the allocated IDs dense.
+ * <p/>
+ * Unlike {@link BasicLogIdGenerator}, {@link #createId(int)} does not clamp the value to the max value, as
+ * clamping turns values that are out of range into duplicates.
+ *
+ * @author Juergen_Kellerer, 2011-10-17
+ * @version 1.0
+ */
+public class LeasingLogIdGenerator extends BasicLogIdGenerator {
+
+	public LeasingLogIdGenerator(String idFormat, Pattern idPattern, int sequence, int increment) {
+		super(idFormat, idPattern, sequence, increment);
+	}
+
+	/**
+	 * Leases a block of contiguous sequence values.
+	 *
+	 * @param count the number of values to lease.
+	 * @return a lease that hands out the values, the lease must be used by a single thread only.
+	 * @throws LogIdExhaustedException if the sequence range does not contain enough free values.
+	 */
+	public Lease lease(int count) {
+		if (count < 1)
+			throw new IllegalArgumentException("Cannot lease " + count + " IDs.");
+
+		Bounds current = bounds.get();
+		return new Lease(allocate(count, current), count, current.increment);
+	}
+
+	/**
+	 * Allocates a block of sequence values.
+	 *
+	 * @param count  the number of values to allocate.
+	 * @param bounds the bounds to apply.
+	 * @return the first allocated value.
+	 */
+	private int allocate(int count, Bounds bounds) {
+		while (true) {
+			int current = sequence.get();
+			long first = Math.max(current, bounds.minValue);
+			long next = first + (long) count * bounds.increment;
+
+			if (next - bounds.increment > bounds.getLimit() || next > Integer.MAX_VALUE)
+				throw new LogIdExhaustedException(bounds.getLimit());
+
+			if (sequence.compareAndSet(current, (int) next))
+				return (int) first;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws LogIdExhaustedException if all values of the sequence range are in use.
+	 */
+	@Override
+	public String nextId() {
+		return createId(allocate(1, bounds.get()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String createId(int sequenceValue) {
+		return formatId(sequenceValue);
+	}
+
+	/**
+	 * Is a block of contiguous sequence values that was leased by a single worker.
+	 */
+	public final class Lease {
+
+		private final int end, increment;
+		private int next;
+
+		Lease(int first, int count, int increment) {
+			this.next = first;
+			this.end = first + count * increment;
+			this.increment = increment;
+		}
+
+		/**
+		 * Returns true if the lease contains unused values.
+		 *
+		 * @return true if the lease contains unused values.
+		 */
+		public boolean hasNext() {
+			return next < end;
+		}
+
+		/**
+		 * Returns the next unused value of the lease.
+		 *
+		 * @return the next unused value of the lease.
+		 * @throws LogIdExhaustedException if all values of the lease were used.
+		 */
+		public int nextValue() {
+			if (!hasNext())
+				throw new LogIdExhaustedException(end - increment);
+			int value = next;
+			next += increment;
+			return value;
+		}
+
+		/**
+		 * Returns the id of the next unused value of the lease.
+		 *
+		 * @return the id of the next unused value of the lease.
+		 * @throws LogIdExhaustedException if all values of the lease were used.
+		 */
+		public String nextId() {
+			return createId(nextValue());
+		}
+
+		/**
+		 * Returns the generator that the values were leased from.
+		 *
+		 * @return the generator that the values were leased from.
+		 */
+		public LeasingLogIdGenerator getGenerator() {
+			return LeasingLogIdGenerator.this;
+		}
+
+		/**
+		 * Returns the unused values of the lease to the generator.
+		 * <p/>
+		 * The values are only returned if no other values were allocated after the lease, as the sequence
+		 * would contain a gap otherwise.
+		 *
+		 * @return true if the unused values were returned.
+		 */
+		public boolean release() {
+			boolean released = !hasNext() || sequence.compareAndSet(end, next);
+			if (released)
+				next = end;
+			return released;
+		}
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.*;
+import net.sf.logsupport.config.ApplicationConfiguration;
+import net.sf.logsupport.config.LogFramework;
+import net.sf.logsupport.config.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Is the result of analyzing a single log call, shared by all inspections and intentions.
+ * <p/>
+ * Framework, level, literal and argument types are analyzed eagerly, whether the call is guarded by a condition
+ * or requires one is only checked on first access, as only some inspections need to know.
+ * <p/>
+ * Results are cached per file and are reused as long as the PSI modification count and the log configuration
+ * remain unchanged. This way every log call is analyzed once per modification, regardless of how many
+ * inspections or intentions look at it.
+ *
+ * @author Juergen_Kellerer, 2011-10-11
+ * @version 1.0
+ */
+public final class LogCallInfo {
+
+	private static final Logger LOG = Logger.getInstance("#net.sf.logsupport.util.LogCallInfo");
+
+	private static final Key<FileCallInfos> FILE_CALL_INFOS = Key.create("LOG_SUPPORT_FILE_CALL_INFOS");
+
+	/**
+	 * Is the shared result for all calls that are not supported logger calls.
+	 */
+	private static final LogCallInfo UNSUPPORTED = new LogCallInfo();
+
+	/**
+	 * Returns the analysis of the given call, analyzing the call only if no up-to-date result exists.
+	 *
+	 * @param expression the method call to analyze.
+	 * @return the analysis of the given call.
+	 */
+	@NotNull
+	public static LogCallInfo getInstance(@NotNull PsiMethodCallExpression expression) {
+		PsiFile file = expression.getContainingFile();
+		if (file == null || !file.isPhysical())
+			return analyze(expression);
+
+		ConcurrentMap<PsiMethodCallExpression, LogCallInfo> infos = getFileCallInfos(file).infos;
+		LogCallInfo info = infos.get(expression);
+		if (info == null) {
+			info = analyze(expression);
+			infos.put(expression, info);
+		}
+
+		return info;
+	}
+
+	private static FileCallInfos getFileCallInfos(PsiFile file) {
+		final long modificationStamp = file.getManager().getModificationTracker().getModificationCount();
+		final long configurationStamp = ApplicationConfiguration.getConfigurationModificationCount();
+
+		FileCallInfos callInfos = file.getUserData(FILE_CALL_INFOS);
+		if (callInfos == null || !callInfos.isUpToDate(modificationStamp, configurationStamp)) {
+			callInfos = new FileCallInfos(modificationStamp, configurationStamp);
+			file.putUserData(FILE_CALL_INFOS, callInfos);
+		}
+
+		return callInfos;
+	}
+
+	private static LogCallInfo analyze(PsiMethodCallExpression expression) {
+		if (!LogPsiUtil.isSupportedLoggerCall(expression))
+			return UNSUPPORTED;
+
+		LogFramework framework = LogPsiUtil.getLogFramework(expression);
+		LogLevel level = framework == null ? null : LogPsiUtil.findLogLevel(expression);
+		PsiLiteralExpression literal = LogPsiUtil.findSupportedLiteralExpression(expression.getArgumentList());
+
+		List<ArgumentType> argumentTypes = Collections.emptyList();
+		if (literal != null && framework != null && framework.isLogMessagesCanUsePlaceholders())
+			argumentTypes = classifyArguments(expression, literal);
+
+		return new LogCallInfo(expression, framework, level, literal, argumentTypes);
+	}
+
+	private static List<ArgumentType> classifyArguments(PsiMethodCallExpression expression,
+														PsiLiteralExpression literalExpression) {
+		List<ArgumentType> results = new ArrayList<ArgumentType>();
+
+		// find index in list
+		PsiElement hookExpression = literalExpression;
+		while (ConcatenationFolder.isConcatenation(hookExpression.getParent()))
+			hookExpression = hookExpression.getParent();
+
+		boolean collect = false;
+
+		PsiExpression[] arguments = expression.getArgumentList().getExpressions();
+		for (PsiExpression argument : arguments) {
+			if (!collect) {
+				collect = argument == hookExpression;
+			} else {
+				if (argument.getType() instanceof PsiArrayType) {
+					PsiArrayInitializerExpression initializer = null;
+					if (argument instanceof PsiNewExpression) {
+						PsiNewExpression ne = (PsiNewExpression) argument;
+						initializer = ne.getArrayInitializer();
+					} else if (argument instanceof PsiReferenceExpression) {
+						PsiExpression pe = LogPsiUtil.resolveVariableInitializer((PsiReferenceExpression) argument);
+						if (pe instanceof PsiArrayInitializerExpression)
+							initializer = (PsiArrayInitializerExpression) pe;
+					}
+
+					if (initializer != null) {
+						for (PsiExpression e : initializer.getInitializers())
+							results.add(classifyArgument(e));
+					}
+				} else {
+					results.add(classifyArgument(argument));
+				}
+			}
+		}
+
+		return results.isEmpty() ? Collections.<ArgumentType>emptyList() : Collections.unmodifiableList(results);
+	}
+
+	private static ArgumentType classifyArgument(PsiExpression expression) {
+		PsiType type = expression.getType();
+		if (type != null) {
+			try {
+				return ArgumentTypeClassifier.getInstance(expression.getProject()).classify(type);
+			} catch (ProcessCanceledException e) {
+				throw e;
+			} catch (Throwable e) {
+				LOG.error("Failed to determine a value type for " + expression +
+						", will treat the value as string.", e);
+			}
+		}
+
+		return ArgumentType.OTHER;
+	}
+
+	private final boolean supported;
+	private final LogFramework framework;
+	private final LogLevel level;
+	private final PsiLiteralExpression literal;
+	private final List<ArgumentType> argumentTypes;
+	private final int trailingThrowables;
+
+	private final PsiMethodCallExpression expression;
+	private volatile Boolean guarded, conditionRequired;
+
+	private LogCallInfo() {
+		supported = false;
+		framework = null;
+		level = null;
+		literal = null;
+		argumentTypes = Collections.emptyList();
+		trailingThrowables = 0;
+		expression = null;
+		guarded = conditionRequired = false;
+	}
+
+	private LogCallInfo(PsiMethodCallExpression expression, LogFramework framework, LogLevel level,
+						PsiLiteralExpression literal, List<ArgumentType> argumentTypes) {
+		this.supported = true;
+		this.expression = expression;
+		this.framework = framework;
+		this.level = level;
+		this.literal = literal;
+		this.argumentTypes = argumentTypes;
+		if (level == null)
+			guarded = conditionRequired = false;
+
+		int throwables = 0;
+		for (int i = argumentTypes.size() - 1; i >= 0 && argumentTypes.get(i) == ArgumentType.THROWABLE; i--)
+			throwables++;
+		trailingThrowables = throwables;
+	}
+
+	/**
+	 * Returns true if the call is a supported logger call, all other properties are empty if not.
+	 *
+	 * @return true if the call is a supported logger call.
+	 */
+	public boolean isSupported() {
+		return supported;
+	}
+
+	/**
+	 * Returns the log framework that backs the call.
+	 *
+	 * @return the log framework that backs the call or 'null' if not known.
+	 */
+	@Nullable
+	public LogFramework getFramework() {
+		return framework;
+	}
+
+	/**
+	 * Returns the log level of the call.
+	 *
+	 * @return the log level of the call or 'null' if not known.
+	 */
+	@Nullable
+	public LogLevel getLevel() {
+		return level;
+	}
+
+	/**
+	 * Returns the string literal that starts the log message.
+	 *
+	 * @return the string literal that starts the log message or 'null' if the call has no message literal.
+	 */
+	@Nullable
+	public PsiLiteralExpression getLiteral() {
+		return literal;
+	}
+
+	/**
+	 * Returns the types of the arguments that are passed after the log message.
+	 * <p/>
+	 * Arguments are only classified if the framework supports placeholders, the list is empty otherwise.
+	 *
+	 * @param includeThrowables whether trailing throwables are included.
+	 * @return the types of the arguments that are passed after the log message.
+	 */
+	@NotNull
+	public List<ArgumentType> getArgumentTypes(boolean includeThrowables) {
+		return includeThrowables || trailingThrowables == 0 ? argumentTypes :
+				argumentTypes.subList(0, argumentTypes.size() - trailingThrowables);
+	}
+
+	/**
+	 * Returns true if the call is surrounded by a condition that checks whether its log level is enabled.
+	 *
+	 * @return true if the call is surrounded by a condition that checks its log level.
+	 */
+	public boolean isGuarded() {
+		Boolean result = guarded;
+		if (result == null)
+			guarded = result = LogConditionUtil.findSurroundingCondition(expression) != null;
+		return result;
+	}
+
+	/**
+	 * Returns true if the log configuration requires calls of this level to be wrapped in a condition.
+	 *
+	 * @return true if the log configuration requires calls of this level to be wrapped in a condition.
+	 */
+	public boolean isConditionRequired() {
+		Boolean result = conditionRequired;
+		if (result == null)
+			conditionRequired = result = LogConditionUtil.isConditionRequired(expression);
+		return result;
+	}
+
+	private static final class FileCallInfos {
+
+		final long modificationStamp, configurationStamp;
+		final ConcurrentMap<PsiMethodCallExpression, LogCallInfo> infos =
+				new ConcurrentHashMap<PsiMethodCallExpression, LogCallInfo>();
+
+		FileCallInfos(long modificationStamp, long configurationStamp) {
+			this.modificationStamp = modificationStamp;
+			this.configurationStamp = configurationStamp;
+		}
+
+		boolean isUpToDate(long modificationStamp, long configurationStamp) {
+			return this.modificationStamp == modificationStamp && this.configurationStamp == configurationStamp;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.codeInsight.template.macro.MacroUtil;
+import com.intellij.psi.*;
+import net.sf.logsupport.config.ConditionFormat;
+import net.sf.logsupport.config.LogConfiguration;
+import net.sf.logsupport.config.LogFramework;
+import net.sf.logsupport.config.LogLevel;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Common set of utility methods to find and create the conditions that check whether a log level is enabled.
+ *
+ * @author Juergen_Kellerer, 2011-10-18
+ * @version 1.0
+ */
+public class LogConditionUtil {
+
+	private static final int MAX_SEARCH_LEVELS = 65;
+
+	private static final Map<ConditionFormat, String> conditionTemplates = new HashMap<ConditionFormat, String>();
+
+	static {
+		conditionTemplates.put(ConditionFormat.simpleWithNewLine, "if (%s) \n log()");
+		conditionTemplates.put(ConditionFormat.simple, "if (%s) log()");
+	}
+
+	private LogConditionUtil() {
+	}
+
+	/**
+	 * Finds the surrounding if condition that covers the conditional logger call.
+	 * <p/>
+	 * The expected condition is only created if the call is nested inside an if statement.
+	 *
+	 * @param expression the log method call expression.
+	 * @return the surrounding if condition that covers the conditional logger call, or 'null' if not found.
+	 */
+	@Nullable
+	public static PsiIfStatement findSurroundingCondition(PsiMethodCallExpression expression) {
+		List<PsiIfStatement> statements = findSurroundingIfStatements(expression);
+		if (statements.isEmpty())
+			return null;
+
+		LogFramework framework = LogPsiUtil.getLogFramework(expression);
+		LogLevel level = framework == null ? null : LogPsiUtil.findLogLevel(expression);
+
+		if (framework != null && level != null) {
+			final PsiMethodCallExpression expectedCondition = createExpectedConditionFor(expression);
+			if (expectedCondition == null)
+				return null;
+
+			for (PsiIfStatement statement : statements) {
+				PsiExpression condition = statement.getCondition();
+				if (condition instanceof PsiReferenceExpression)
+					condition = LogPsiUtil.resolveVariableInitializer((PsiReferenceExpression) condition);
+
+				if (isValidCondition(expectedCondition, condition))
+					return statement;
+			}
+		}
+
+		return null;
+	}
+
+	private static List<PsiIfStatement> findSurroundingIfStatements(PsiMethodCallExpression expression) {
+		List<PsiIfStatement> statements = Collections.emptyList();
+
+		int searchLevels = MAX_SEARCH_LEVELS;
+		PsiElement element = expression;
+		while (searchLevels-- > 0 && element != null && !(element instanceof PsiMethod)) {
+			element = element.getParent();
+			if (element instanceof PsiIfStatement) {
+				if (statements.isEmpty())
+					statements = new ArrayList<PsiIfStatement>(2);
+				statements.add((PsiIfStatement) element);
+			}
+		}
+
+		return statements;
+	}
+
+	@Nullable
+	private static PsiMethodCallExpression createExpectedConditionFor(PsiMethodCallExpression expression) {
+		PsiIfStatement expectedStatement = createPlainIfCondition(expression, true, false);
+		PsiExpression expectedCondition = expectedStatement == null ? null : expectedStatement.getCondition();
+		if (!(expectedCondition instanceof PsiMethodCallExpression))
+			return null;
+		return (PsiMethodCallExpression) expectedCondition;
+	}
+
+	private static boolean isValidCondition(PsiMethodCallExpression expectedCondition, PsiExpression condition) {
+		return condition instanceof PsiMethodCallExpression &&
+				LogPsiUtil.isEquivalentTo((PsiMethodCallExpression) condition, expectedCondition);
+	}
+
+	/**
+	 * Returns true if the log configuration requires the given logger call to be wrapped in a condition.
+	 * <p/>
+	 * This is the same check that {@link #createPlainIfCondition} applies, without creating the statement.
+	 *
+	 * @param expression the logger call expression.
+	 * @return true if the log configuration requires the given logger call to be wrapped in a condition.
+	 */
+	public static boolean isConditionRequired(PsiMethodCallExpression expression) {
+		return getConditionalMethod(expression, false) != null;
+	}
+
+	/**
+	 * Returns the method that checks whether the level of the given call is enabled.
+	 *
+	 * @param expression		   the logger call expression.
+	 * @param ignoreDisabledLevels whether non-conditional levels are not considered.
+	 * @return the name of the method or 'null' if no condition applies to the call.
+	 */
+	@Nullable
+	private static String getConditionalMethod(PsiMethodCallExpression expression, boolean ignoreDisabledLevels) {
+		LogFramework framework = LogPsiUtil.getLogFramework(expression);
+		LogLevel level = framework == null ? null : LogPsiUtil.findLogLevel(expression);
+
+		if (framework != null && level != null) {
+			PsiExpression qualifier = expression.getMethodExpression().getQualifierExpression();
+			LogConfiguration config = LogConfiguration.getInstance(expression.getContainingFile());
+			String conditionalMethod = framework.getEnabledGetterMethod().get(level);
+
+			if ((ignoreDisabledLevels || config.getConditionalLogLevels().contains(level)) &&
+					qualifier != null && conditionalMethod != null && !conditionalMethod.isEmpty())
+				return conditionalMethod;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Creates a plain if statement that may be used to surround a logger call.
+	 *
+	 * @param expression			 the logger call expression to wrap.
+	 * @param ignoreDisabledLevels   whether non-conditional levels are not considered.
+	 * @param preferCustomConditions whether custom conditions (e.g. constants) are preferred over
+	 *                               direct calls to the log framework.
+	 * @return a plain if statement or 'null' if no framework is configured or the level could not be extracted.
+	 */
+	@Nullable
+	public static PsiIfStatement createPlainIfCondition(PsiMethodCallExpression expression,
+														boolean ignoreDisabledLevels,
+														boolean preferCustomConditions) {
+		String conditionalMethod = getConditionalMethod(expression, ignoreDisabledLevels);
+		if (conditionalMethod == null)
+			return null;
+
+		LogPsiElementFactory factory = LogPsiUtil.getFactory(expression.getContainingFile());
+		PsiExpression qualifier = expression.getMethodExpression().getQualifierExpression();
+		LogConfiguration config = LogConfiguration.getInstance(expression.getContainingFile());
+
+		final PsiElement context = expression.getContext();
+
+		boolean useCustomCondition = false;
+		if (preferCustomConditions) {
+			PsiVariable[] variables = MacroUtil.getVariablesVisibleAt(context, "");
+			if (variables.length > 0) {
+				final PsiMethodCallExpression expectedCondition = createExpectedConditionFor(expression);
+				if (expectedCondition != null) {
+					for (PsiVariable variable : variables) {
+						final PsiExpression condition = LogPsiUtil.resolveVariableInitializer(variable);
+						if (isValidCondition(expectedCondition, condition)) {
+							PsiIdentifier nameIdentifier = variable.getNameIdentifier();
+							if (nameIdentifier != null) {
+								useCustomCondition = true;
+								conditionalMethod = nameIdentifier.getText();
+								break;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		if (!useCustomCondition) {
+			if (!conditionalMethod.contains("("))
+				conditionalMethod += "()";
+
+			if (qualifier != null && !qualifier.getText().isEmpty())
+				conditionalMethod = qualifier.getText() + '.' + conditionalMethod;
+		}
+
+		String template = conditionTemplates.get(config.getConditionFormat().toNonBlockFormat());
+		return (PsiIfStatement) factory.createStatementFromText(format(template, conditionalMethod), context);
+	}
+}
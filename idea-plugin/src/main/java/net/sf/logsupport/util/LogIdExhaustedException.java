@@ -0,0 +1,42 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+/**
+ * Is thrown by log id generators that cannot create a new id as the configured sequence range is used up.
+ *
+ * @author Juergen_Kellerer, 2011-10-17
+ * @version 1.0
+ */
+public class LogIdExhaustedException extends IllegalStateException {
+
+	private final int maxSequenceValue;
+
+	public LogIdExhaustedException(int maxSequenceValue) {
+		super("All log IDs up to the sequence value " + maxSequenceValue + " are in use.");
+		this.maxSequenceValue = maxSequenceValue;
+	}
+
+	/**
+	 * Returns the highest sequence value that the generator may use.
+	 *
+	 * @return the highest sequence value that the generator may use.
+	 */
+	public int getMaxSequenceValue() {
+		return maxSequenceValue;
+	}
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+/**
+ * Is a precompiled log id format that formats and parses sequence values without using {@link String#format}
+ * or regular expressions.
+ * <p/>
+ * The id format (e.g. "LOG%05d:") is split once into prefix, digit width, padding, radix and trailer. Formatting
+ * writes the digits straight into the target buffer and parsing reads them in place. Formats that use other
+ * conversions or flags than {@code %d}, {@code %x}, {@code %X}, {@code 0} and a width are not compiled, these
+ * are formatted using {@link String#format} like before.
+ *
+ * @author Juergen_Kellerer, 2011-10-18
+ * @version 1.0
+ */
+final class LogIdFormat {
+
+	private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+	private static final char[] UPPER_CASE_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * Compiles the given id format.
+	 *
+	 * @param idFormat the format as used with {@link String#format}, containing one integer conversion.
+	 * @return the compiled format.
+	 */
+	static LogIdFormat compile(String idFormat) {
+		StringBuilder prefix = new StringBuilder(), trailer = new StringBuilder();
+		int width = 0, radix = 0;
+		boolean zeroPadded = false, upperCase = false;
+
+		for (int i = 0, len = idFormat.length(); i < len; i++) {
+			char c = idFormat.charAt(i);
+			if (c != '%') {
+				(radix == 0 ? prefix : trailer).append(c);
+				continue;
+			}
+
+			if (++i == len)
+				return new LogIdFormat(idFormat);
+
+			c = idFormat.charAt(i);
+			if (c == '%') {
+				(radix == 0 ? prefix : trailer).append(c);
+				continue;
+			}
+
+			if (radix != 0)
+				return new LogIdFormat(idFormat);
+
+			if (c == '0') {
+				zeroPadded = true;
+				if (++i == len)
+					return new LogIdFormat(idFormat);
+				c = idFormat.charAt(i);
+
+				// A repeated flag like in "%004X" is rejected by String.format (DuplicateFormatFlagsException).
+				if (c == '0')
+					return new LogIdFormat(idFormat);
+			}
+
+			for (; c >= '0' && c <= '9' && width < 1000; c = ++i < len ? idFormat.charAt(i) : 0)
+				width = width * 10 + (c - '0');
+
+			switch (c) {
+				case 'd':
+					radix = 10;
+					break;
+				case 'X':
+					upperCase = true;
+					// fall through
+				case 'x':
+					radix = 16;
+					break;
+				default:
+					return new LogIdFormat(idFormat);
+			}
+
+			if (zeroPadded && width == 0)
+				return new LogIdFormat(idFormat);
+		}
+
+		if (radix == 0)
+			return new LogIdFormat(idFormat);
+
+		return new LogIdFormat(idFormat, prefix.toString(), trailer.toString(), width, zeroPadded, radix, upperCase);
+	}
+
+	private final String idFormat;
+	private final boolean compiled;
+	private final String prefix, trailer;
+	private final int width, radix;
+	private final char padding;
+	private final char[] digits;
+
+	private LogIdFormat(String idFormat) {
+		this.idFormat = idFormat;
+		compiled = false;
+		prefix = trailer = "";
+		width = 0;
+		padding = ' ';
+		digits = DIGITS;
+
+		// Detecting hexadecimal formats by example, as the conversion is unknown.
+		boolean hexadecimal;
+		try {
+			hexadecimal = String.format(idFormat, 0xffff).toLowerCase().contains("ffff");
+		} catch (RuntimeException e) {
+			hexadecimal = false;
+		}
+		radix = hexadecimal ? 16 : 10;
+	}
+
+	private LogIdFormat(String idFormat, String prefix, String trailer, int width,
+						boolean zeroPadded, int radix, boolean upperCase) {
+		this.idFormat = idFormat;
+		compiled = true;
+		this.prefix = prefix;
+		this.trailer = trailer;
+		this.width = width;
+		this.radix = radix;
+		padding = zeroPadded ? '0' : ' ';
+		digits = upperCase ? UPPER_CASE_DIGITS : DIGITS;
+	}
+
+	/**
+	 * Returns true if the format was compiled, false if formatting falls back to {@link String#format}.
+	 *
+	 * @return true if the format was compiled.
+	 */
+	boolean isCompiled() {
+		return compiled;
+	}
+
+	/**
+	 * Returns the radix of the sequence values inside formatted ids.
+	 *
+	 * @return the radix of the sequence values inside formatted ids (10 or 16).
+	 */
+	int getRadix() {
+		return radix;
+	}
+
+	/**
+	 * Formats the given sequence value.
+	 *
+	 * @param sequenceValue the value to format.
+	 * @return the formatted id.
+	 */
+	String format(int sequenceValue) {
+		if (!compiled || sequenceValue < 0)
+			return String.format(idFormat, sequenceValue);
+
+		int digitCount = countDigits(sequenceValue);
+		int valueLength = Math.max(width, digitCount);
+		char[] id = new char[prefix.length() + valueLength + trailer.length()];
+
+		prefix.getChars(0, prefix.length(), id, 0);
+		int end = prefix.length() + valueLength;
+		writeDigits(sequenceValue, id, end, valueLength - digitCount);
+		trailer.getChars(0, trailer.length(), id, end);
+
+		return new String(id);
+	}
+
+	/**
+	 * Formats the given sequence value into the given builder.
+	 *
+	 * @param sequenceValue the value to format.
+	 * @param target		the builder to append the id to.
+	 * @return the given builder.
+	 */
+	StringBuilder format(int sequenceValue, StringBuilder target) {
+		if (!compiled || sequenceValue < 0)
+			return target.append(String.format(idFormat, sequenceValue));
+
+		int digitCount = countDigits(sequenceValue);
+		target.append(prefix);
+		for (int i = digitCount; i < width; i++)
+			target.append(padding);
+
+		int start = target.length();
+		target.setLength(start + digitCount);
+		for (int i = start + digitCount - 1, value = sequenceValue; i >= start; i--, value /= radix)
+			target.setCharAt(i, digits[value % radix]);
+
+		return target.append(trailer);
+	}
+
+	private int countDigits(int value) {
+		int count = 1;
+		while ((value /= radix) != 0)
+			count++;
+		return count;
+	}
+
+	private void writeDigits(int value, char[] target, int end, int paddingCount) {
+		int i = end - 1;
+		do {
+			target[i--] = digits[value % radix];
+			value /= radix;
+		} while (value != 0);
+
+		while (paddingCount-- > 0)
+			target[i--] = padding;
+	}
+
+	/**
+	 * Parses the sequence value of the given id.
+	 * <p/>
+	 * Ids that match prefix and trailer of the format are read between the two, all other ids are parsed from
+	 * the last block of hexadecimal digits (like former versions did).
+	 *
+	 * @param id the id to parse.
+	 * @return the sequence value or -1 if the id contains no valid sequence value.
+	 */
+	int parse(CharSequence id) {
+		if (id == null)
+			return -1;
+
+		int length = id.length();
+		if (compiled && length > prefix.length() + trailer.length() &&
+				regionMatches(id, 0, prefix) && regionMatches(id, length - trailer.length(), trailer)) {
+
+			int start = prefix.length(), end = length - trailer.length();
+			while (start < end - 1 && id.charAt(start) == ' ')
+				start++;
+
+			int value = parseDigits(id, start, end);
+			if (value != -1)
+				return value;
+		}
+
+		int end = length;
+		while (end > 0 && !isHexDigit(id.charAt(end - 1)))
+			end--;
+		int start = end;
+		while (start > 0 && isHexDigit(id.charAt(start - 1)))
+			start--;
+
+		return start == end ? -1 : parseDigits(id, start, end);
+	}
+
+	private int parseDigits(CharSequence text, int start, int end) {
+		if (start >= end)
+			return -1;
+
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = Character.digit(text.charAt(i), radix);
+			if (digit == -1)
+				return -1;
+
+			value = value * radix + digit;
+			if (value > Integer.MAX_VALUE)
+				return -1;
+		}
+
+		return (int) value;
+	}
+
+	private static boolean isHexDigit(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+	}
+
+	private static boolean regionMatches(CharSequence text, int offset, String part) {
+		for (int i = 0, len = part.length(); i < len; i++) {
+			if (text.charAt(offset + i) != part.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return idFormat;
+	}
+}
@@ -35,6 +35,7 @@ public interface LogIdGenerator {
 	 * Returns the next id for the given target package or class.
 	 *
 	 * @return the next id for the given target package or class.
+	 * @throws LogIdExhaustedException if the generator cannot create more IDs (depends on the implementation).
 	 */
 	String nextId();
 
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.psi.PsiElement;
+import net.sf.logsupport.config.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Maps method names and fixed argument shapes to the log level of a single log framework.
+ * <p/>
+ * Log method fragments like {@code debug} or {@code log(java.util.logging.Level.FINE, } are split
+ * into the method name and the fixed leading arguments once. Detecting the level of a call is then a
+ * lookup by the referenced method name followed by comparing the texts of the fixed arguments
+ * (an argument matches if the fragment argument ends with the text of the actual argument).
+ *
+ * @author Juergen_Kellerer, 2011-10-03
+ * @version 1.0
+ */
+public final class LogLevelTable {
+
+	private static final String[] NO_ARGUMENTS = {};
+
+	private final Map<String, Pattern[]> patterns;
+
+	/**
+	 * Creates the table for the given log methods.
+	 *
+	 * @param logMethods the log method fragments by log level.
+	 */
+	public LogLevelTable(@NotNull Map<LogLevel, String> logMethods) {
+		Map<String, List<Pattern>> patterns = new HashMap<String, List<Pattern>>();
+		for (LogLevel level : LogLevel.values()) {
+			String methodFragment = logMethods.get(level);
+			Pattern pattern = methodFragment == null ? null : Pattern.parse(level, methodFragment);
+			if (pattern == null)
+				continue;
+
+			List<Pattern> list = patterns.get(pattern.methodName);
+			if (list == null)
+				patterns.put(pattern.methodName, list = new ArrayList<Pattern>(2));
+			list.add(pattern);
+		}
+
+		this.patterns = new HashMap<String, Pattern[]>(patterns.size() * 2);
+		for (Map.Entry<String, List<Pattern>> entry : patterns.entrySet())
+			this.patterns.put(entry.getKey(), entry.getValue().toArray(new Pattern[entry.getValue().size()]));
+	}
+
+	/**
+	 * Returns the level of a call to the given method with the given arguments.
+	 *
+	 * @param methodName the name of the called method.
+	 * @param arguments  the arguments of the call, either PsiElements or plain argument texts.
+	 * @return the log level or 'null' if the call doesn't match any log method.
+	 */
+	@Nullable
+	public LogLevel findLevel(@NotNull String methodName, @NotNull Object[] arguments) {
+		Pattern[] candidates = patterns.get(methodName);
+		if (candidates != null) {
+			for (Pattern pattern : candidates) {
+				if (pattern.matches(arguments))
+					return pattern.level;
+			}
+		}
+		return null;
+	}
+
+	private static final class Pattern {
+
+		/**
+		 * Parses a log method fragment like "name", "name(arg, " or "name(arg)".
+		 *
+		 * @param level          the level the fragment belongs to.
+		 * @param methodFragment the fragment to parse.
+		 * @return the pattern or 'null' if the fragment cannot be matched against a qualified call.
+		 */
+		static Pattern parse(LogLevel level, String methodFragment) {
+			String fragment = methodFragment.trim();
+			int argumentsStart = fragment.indexOf('(');
+			String methodName = (argumentsStart == -1 ? fragment : fragment.substring(0, argumentsStart)).trim();
+
+			// Fragments without a plain method name are never equivalent to a call on the logger itself.
+			if (methodName.length() == 0 || methodName.indexOf('.') != -1)
+				return null;
+
+			String[] arguments = NO_ARGUMENTS;
+			if (argumentsStart != -1)
+				arguments = splitArguments(fragment.substring(argumentsStart + 1));
+
+			return new Pattern(level, methodName, arguments);
+		}
+
+		static String[] splitArguments(String text) {
+			List<String> arguments = new ArrayList<String>();
+			int depth = 0, start = 0;
+			char quote = 0;
+
+			for (int i = 0, len = text.length(); i < len; i++) {
+				char c = text.charAt(i);
+				if (quote != 0) {
+					if (c == '\\')
+						i++;
+					else if (c == quote)
+						quote = 0;
+				} else if (c == '"' || c == '\'') {
+					quote = c;
+				} else if (c == '(' || c == '[' || c == '{') {
+					depth++;
+				} else if (c == ')' || c == ']' || c == '}') {
+					if (depth-- == 0) {
+						// Closing bracket of the argument list.
+						arguments.add(text.substring(start, i).trim());
+						start = -1;
+						break;
+					}
+				} else if (c == ',' && depth == 0) {
+					arguments.add(text.substring(start, i).trim());
+					start = i + 1;
+				}
+			}
+
+			if (start != -1)
+				arguments.add(text.substring(start).trim());
+
+			return arguments.toArray(new String[arguments.size()]);
+		}
+
+		final LogLevel level;
+		final String methodName;
+		final String[] arguments;
+
+		Pattern(LogLevel level, String methodName, String[] arguments) {
+			this.level = level;
+			this.methodName = methodName;
+			this.arguments = arguments;
+		}
+
+		boolean matches(Object[] actualArguments) {
+			for (int i = 0; i < arguments.length; i++) {
+				String argument = arguments[i];
+				if (argument.length() == 0)
+					continue;
+				if (i >= actualArguments.length || !argument.endsWith(toText(actualArguments[i])))
+					return false;
+			}
+			return true;
+		}
+
+		static String toText(Object argument) {
+			return argument instanceof PsiElement ? ((PsiElement) argument).getText() : String.valueOf(argument);
+		}
+	}
+}
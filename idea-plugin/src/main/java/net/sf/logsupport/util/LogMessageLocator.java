@@ -0,0 +1,245 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiMethodCallExpression;
+import net.sf.logsupport.util.LogMessageUtil.IdVersion;
+import net.sf.logsupport.util.LogMessageUtil.LogMessage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Locates the source files of log messages without scanning the whole project.
+ * <p/>
+ * Files are resolved from the source locations recorded in a review ("[module]: path:line" or "path:line").
+ * As a fallback, every log message that is created from a log call records the file it was found in,
+ * building a project level index of message id to all files that contained the message. Messages are indexed
+ * under the ids of all {@link LogMessageUtil.IdVersion}s, so that reviews created with older versions find
+ * them as well. The index is bounded, files that became invalid are dropped when the index is full or when
+ * they are looked up.
+ *
+ * @author Juergen_Kellerer, 2011-10-08
+ * @version 1.0
+ */
+public final class LogMessageLocator {
+
+	private static final Key<ConcurrentMap<String, Set<VirtualFile>>> MESSAGE_LOCATIONS =
+			Key.create("LOG_SUPPORT_MESSAGE_LOCATIONS");
+
+	/**
+	 * Is the maximum number of message ids that are kept in the location index of a project.
+	 */
+	static final int MAX_INDEXED_MESSAGES = 50000;
+
+	private static final Pattern MODULE_LOCATION = Pattern.compile("^\\[(.+?)\\]: (.+?)(?::\\d+)?$");
+	private static final Pattern FILE_LOCATION = Pattern.compile("^(.+?)(?::\\d+)?$");
+
+	/**
+	 * Records the file containing the given log call in the location index of the project.
+	 *
+	 * @param expression the log call.
+	 * @param message	the log message created from the call.
+	 */
+	static void recordLocation(@NotNull PsiMethodCallExpression expression, @NotNull LogMessage message) {
+		PsiFile file = expression.getContainingFile();
+		VirtualFile virtualFile = file == null ? null : file.getVirtualFile();
+		if (virtualFile == null)
+			return;
+
+		ConcurrentMap<String, Set<VirtualFile>> locations = getLocations(expression.getProject());
+		for (IdVersion idVersion : IdVersion.values())
+			recordLocation(locations, message.getId(idVersion), virtualFile);
+	}
+
+	private static void recordLocation(ConcurrentMap<String, Set<VirtualFile>> locations, String id,
+									   VirtualFile virtualFile) {
+		while (true) {
+			Set<VirtualFile> files = locations.get(id);
+			if (files == null) {
+				if (locations.size() >= MAX_INDEXED_MESSAGES)
+					prune(locations);
+				if (locations.putIfAbsent(id, Collections.singleton(virtualFile)) == null)
+					return;
+			} else {
+				if (files.contains(virtualFile))
+					return;
+
+				Set<VirtualFile> newFiles = new HashSet<VirtualFile>(files);
+				newFiles.add(virtualFile);
+				if (locations.replace(id, files, Collections.unmodifiableSet(newFiles)))
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Drops all files that became invalid from the index and clears the index if it remains full.
+	 *
+	 * @param locations the index to prune.
+	 */
+	private static void prune(ConcurrentMap<String, Set<VirtualFile>> locations) {
+		for (Iterator<Map.Entry<String, Set<VirtualFile>>> i = locations.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<String, Set<VirtualFile>> entry = i.next();
+			Set<VirtualFile> validFiles = getValidFiles(entry.getValue());
+			if (validFiles.isEmpty())
+				i.remove();
+			else if (validFiles.size() != entry.getValue().size())
+				locations.replace(entry.getKey(), entry.getValue(), Collections.unmodifiableSet(validFiles));
+		}
+
+		if (locations.size() >= MAX_INDEXED_MESSAGES)
+			locations.clear();
+	}
+
+	private static Set<VirtualFile> getValidFiles(Set<VirtualFile> files) {
+		Set<VirtualFile> validFiles = new LinkedHashSet<VirtualFile>(files.size());
+		for (VirtualFile file : files) {
+			if (file.isValid())
+				validFiles.add(file);
+		}
+		return validFiles;
+	}
+
+	private static ConcurrentMap<String, Set<VirtualFile>> getLocations(Project project) {
+		ConcurrentMap<String, Set<VirtualFile>> locations = project.getUserData(MESSAGE_LOCATIONS);
+		if (locations == null) {
+			synchronized (MESSAGE_LOCATIONS) {
+				locations = project.getUserData(MESSAGE_LOCATIONS);
+				if (locations == null) {
+					project.putUserData(MESSAGE_LOCATIONS,
+							locations = new ConcurrentHashMap<String, Set<VirtualFile>>());
+				}
+			}
+		}
+		return locations;
+	}
+
+	private final Project project;
+
+	public LogMessageLocator(@NotNull Project project) {
+		this.project = project;
+	}
+
+	/**
+	 * Resolves the files referenced by the source locations of the given messages.
+	 *
+	 * @param messages the messages to resolve the files for.
+	 * @return the files that could be resolved.
+	 */
+	@NotNull
+	public Set<VirtualFile> findReviewedFiles(@NotNull Collection<LogMessage> messages) {
+		Set<VirtualFile> files = new LinkedHashSet<VirtualFile>();
+		for (LogMessage message : messages) {
+			for (String location : message.getLocations()) {
+				VirtualFile file = resolve(location);
+				if (file != null)
+					files.add(file);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Resolves the files referenced by the source locations of the given message.
+	 *
+	 * @param message the message to resolve the files for.
+	 * @return the files of all source locations or 'null' if a location cannot be resolved.
+	 */
+	@Nullable
+	public Set<VirtualFile> findReviewedFiles(@NotNull LogMessage message) {
+		Set<VirtualFile> files = new LinkedHashSet<VirtualFile>();
+		for (String location : message.getLocations()) {
+			VirtualFile file = resolve(location);
+			if (file == null)
+				return null;
+			files.add(file);
+		}
+		return files;
+	}
+
+	/**
+	 * Returns all valid files that contained the given message id when they were seen.
+	 *
+	 * @param id the id of the message to find.
+	 * @return the files that are known to contain the message.
+	 */
+	@NotNull
+	public Set<VirtualFile> findIndexedFiles(@NotNull String id) {
+		ConcurrentMap<String, Set<VirtualFile>> locations = getLocations(project);
+		Set<VirtualFile> files = locations.get(id);
+		if (files == null)
+			return Collections.emptySet();
+
+		Set<VirtualFile> validFiles = getValidFiles(files);
+		if (validFiles.isEmpty())
+			locations.remove(id, files);
+		else if (validFiles.size() != files.size())
+			locations.replace(id, files, Collections.unmodifiableSet(validFiles));
+
+		return validFiles;
+	}
+
+	/**
+	 * Resolves a single source location as it is created by {@link LogMessage#getSource()}.
+	 *
+	 * @param location the location to resolve.
+	 * @return the file or 'null' if the location cannot be resolved.
+	 */
+	@Nullable
+	public VirtualFile resolve(@NotNull String location) {
+		Matcher matcher = MODULE_LOCATION.matcher(location);
+		if (matcher.matches()) {
+			Module module = ModuleManager.getInstance(project).findModuleByName(matcher.group(1));
+			if (module != null) {
+				for (VirtualFile sourceDirectory : VirtualFileUtil.getSourceDirectories(module, true)) {
+					VirtualFile file = sourceDirectory.findFileByRelativePath(matcher.group(2));
+					if (file != null && !file.isDirectory())
+						return file;
+				}
+			}
+			return null;
+		}
+
+		matcher = FILE_LOCATION.matcher(location);
+		if (matcher.matches()) {
+			VirtualFile file = LocalFileSystem.getInstance().findFileByPath(matcher.group(1).replace('\\', '/'));
+			if (file != null && !file.isDirectory())
+				return file;
+		}
+
+		return null;
+	}
+}
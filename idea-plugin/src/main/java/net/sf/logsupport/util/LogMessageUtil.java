@@ -17,8 +17,6 @@
 package net.sf.logsupport.util;
 
 import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.module.Module;
-import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import net.sf.logsupport.config.LogConfiguration;
@@ -44,6 +42,54 @@ public class LogMessageUtil {
 
 	static final Charset UTF8 = Charset.forName("UTF-8");
 
+	/**
+	 * Enumerates the algorithms that are used to compute the IDs of log messages.
+	 * <p/>
+	 * The version is recorded as a prefix of every ID, this way reviews created with older versions
+	 * can still be integrated by computing the IDs of the project's messages with the same algorithm.
+	 */
+	public enum IdVersion {
+		/**
+		 * Hex encoded MD5 hash without prefix, used by reviews created with older versions.
+		 */
+		MD5(""),
+		/**
+		 * Hex encoded 128 bit MurmurHash3, computed directly over the message artifacts.
+		 */
+		MURMUR3("v2-");
+
+		/**
+		 * Is the version that is used for new log messages.
+		 */
+		public static final IdVersion CURRENT = MURMUR3;
+
+		private final String prefix;
+
+		IdVersion(String prefix) {
+			this.prefix = prefix;
+		}
+
+		/**
+		 * Returns the version that was used to compute the given ID.
+		 *
+		 * @param id the ID of a log message.
+		 * @return the version that was used to compute the given ID.
+		 */
+		public static IdVersion of(String id) {
+			return id != null && id.startsWith(MURMUR3.prefix) ? MURMUR3 : MD5;
+		}
+
+		/**
+		 * Returns the version that was used to compute the IDs of the given (reviewed) messages.
+		 *
+		 * @param messages the messages to check.
+		 * @return the version of the first message or {@link #CURRENT} if the list is empty.
+		 */
+		public static IdVersion of(List<LogMessage> messages) {
+			return messages.isEmpty() ? CURRENT : of(messages.get(0).getId());
+		}
+	}
+
 	/**
 	 * Converts the given list of log expression to an message map.
 	 *
@@ -54,10 +100,25 @@ public class LogMessageUtil {
 	 */
 	public static Map<LogMessage, List<LogMessage>> toMessages(
 			List<PsiMethodCallExpression> expressionList, boolean mergeConstantExpressions) {
+		return toMessages(expressionList, mergeConstantExpressions, IdVersion.CURRENT);
+	}
+
+	/**
+	 * Converts the given list of log expression to an message map.
+	 *
+	 * @param expressionList		   The list of expression to convert.
+	 * @param mergeConstantExpressions Try to merge constant expression and create only one artifact where possible.
+	 * @param idVersion				The algorithm to use for computing the message IDs.
+	 * @return A map of log messages, where the unique log message is the key and multiple
+	 *         occurrences of the same message is the value.
+	 */
+	public static Map<LogMessage, List<LogMessage>> toMessages(
+			List<PsiMethodCallExpression> expressionList, boolean mergeConstantExpressions, IdVersion idVersion) {
 		Map<LogMessage, List<LogMessage>> entries = new LinkedHashMap<LogMessage, List<LogMessage>>();
 
 		for (PsiMethodCallExpression expression : expressionList) {
-			LogMessage message = new LogMessage(expression, mergeConstantExpressions);
+			LogMessage message = new LogMessage(expression, mergeConstantExpressions, idVersion);
+			LogMessageLocator.recordLocation(expression, message);
 			if (entries.containsKey(message))
 				entries.get(message).add(message);
 			else
@@ -75,7 +136,7 @@ public class LogMessageUtil {
 	 * @return A new instance of LogMessage that is based on the given expression.
 	 */
 	public static LogMessage toMessage(PsiMethodCallExpression expression, boolean mergeConstantExpressions) {
-		return new LogMessage(expression, mergeConstantExpressions);
+		return new LogMessage(expression, mergeConstantExpressions, IdVersion.CURRENT);
 	}
 
 	/**
@@ -91,6 +152,158 @@ public class LogMessageUtil {
 		return new LogMessage(id, logLevel, logId, Arrays.asList(messageArtifacts));
 	}
 
+	/**
+	 * Creates a new log message instance with the given values and source locations.
+	 *
+	 * @param id			   The string ID of the message.
+	 * @param logLevel		 The log level.
+	 * @param logId			The log ID.
+	 * @param locations		The source locations of the message as recorded in a review.
+	 * @param messageArtifacts The message artifacts as string array.
+	 * @return A new instance of log message.
+	 */
+	public static LogMessage newMessage(String id, String logLevel, String logId, List<String> locations,
+										String... messageArtifacts) {
+		LogMessage message = new LogMessage(id, logLevel, logId, Arrays.asList(messageArtifacts));
+		message.locations = Collections.unmodifiableList(new ArrayList<String>(locations));
+		return message;
+	}
+
+	/**
+	 * Converts the given log calls to detached log messages, one message per call in the order of the calls.
+	 * <p/>
+	 * Detached messages have their source computed and don't refer to any PSI element, so that the PSI of the
+	 * files containing the calls can be released while the messages are kept.
+	 *
+	 * @param expressionList The list of log calls to convert.
+	 * @return A list of detached log messages.
+	 */
+	public static List<LogMessage> toDetachedMessages(List<PsiMethodCallExpression> expressionList) {
+		List<LogMessage> messages = new ArrayList<LogMessage>(expressionList.size());
+		for (PsiMethodCallExpression expression : expressionList) {
+			LogMessage message = new LogMessage(expression, false, IdVersion.CURRENT);
+			LogMessageLocator.recordLocation(expression, message);
+			messages.add(message);
+		}
+
+		computeSources(messages);
+		for (LogMessage message : messages)
+			message.detach();
+
+		return messages;
+	}
+
+	/**
+	 * Groups the given messages by their ID.
+	 *
+	 * @param messages The messages to group.
+	 * @return A map of log messages, where the unique log message is the key and multiple
+	 *         occurrences of the same message is the value (in order of their first occurrence).
+	 */
+	public static Map<LogMessage, List<LogMessage>> groupMessages(Iterator<LogMessage> messages) {
+		Map<LogMessage, List<LogMessage>> entries = new LinkedHashMap<LogMessage, List<LogMessage>>();
+		while (messages.hasNext()) {
+			LogMessage message = messages.next();
+			List<LogMessage> occurrences = entries.get(message);
+			if (occurrences == null)
+				entries.put(message, occurrences = new ArrayList<LogMessage>(1));
+			occurrences.add(message);
+		}
+		return entries;
+	}
+
+	/**
+	 * Computes the sources of all given messages, locating every file and reading its document only once.
+	 *
+	 * @param messages a map of unique log messages to all occurrences as created by {@link #toMessages}.
+	 */
+	public static void computeSources(Map<LogMessage, List<LogMessage>> messages) {
+		List<LogMessage> occurrences = new ArrayList<LogMessage>();
+		for (List<LogMessage> messageOccurrences : messages.values())
+			occurrences.addAll(messageOccurrences);
+		computeSources(occurrences);
+	}
+
+	/**
+	 * Computes the sources of all given messages, locating every file and reading its document only once.
+	 *
+	 * @param messages the messages to compute the sources for.
+	 */
+	public static void computeSources(Collection<LogMessage> messages) {
+		Map<PsiFile, List<LogMessage>> messagesByFile = new LinkedHashMap<PsiFile, List<LogMessage>>();
+		for (LogMessage message : messages) {
+			if (message.source != null)
+				continue;
+
+			PsiMethodCallExpression expression = message.getCallExpression();
+			PsiFile file = expression == null ? null : expression.getContainingFile();
+			if (file == null) {
+				message.source = "";
+				continue;
+			}
+
+			List<LogMessage> fileMessages = messagesByFile.get(file);
+			if (fileMessages == null)
+				messagesByFile.put(file, fileMessages = new ArrayList<LogMessage>());
+			fileMessages.add(message);
+		}
+
+		for (Map.Entry<PsiFile, List<LogMessage>> entry : messagesByFile.entrySet())
+			computeSources(entry.getKey(), entry.getValue());
+	}
+
+	private static void computeSources(PsiFile file, List<LogMessage> messages) {
+		VirtualFile virtualFile = file.getVirtualFile();
+		String location = virtualFile == null ? null :
+				SourceRootIndex.getInstance(file.getProject()).getLocation(virtualFile);
+		Document document = location == null ? null : file.getViewProvider().getDocument();
+
+		for (LogMessage message : messages) {
+			PsiMethodCallExpression expression = message.getCallExpression();
+			if (location == null || expression == null)
+				message.source = "";
+			else if (document == null)
+				message.source = location;
+			else
+				message.source = location + ':' + document.getLineNumber(expression.getTextOffset());
+		}
+	}
+
+	/**
+	 * Computes the ID of a log message from its content.
+	 *
+	 * @param idVersion The algorithm to use.
+	 * @param logLevel  The log level.
+	 * @param logId	 The log ID.
+	 * @param artifacts The message artifacts.
+	 * @return The ID of the log message.
+	 */
+	static String computeId(IdVersion idVersion, String logLevel, String logId, List<MessageArtifact> artifacts) {
+		if (idVersion == IdVersion.MD5)
+			return computeMD5Id(logLevel, logId, artifacts);
+
+		MessageIdHash hash = new MessageIdHash();
+		hash.append(logLevel).append(logId).append('-');
+		for (MessageArtifact artifact : artifacts)
+			hash.append(artifact.toString());
+
+		return idVersion.prefix.concat(hash.toHexString());
+	}
+
+	private static String computeMD5Id(String logLevel, String logId, List<MessageArtifact> artifacts) {
+		try {
+			StringBuilder b = new StringBuilder();
+			b.append(logLevel).append(logId).append('-');
+			for (MessageArtifact artifact : artifacts)
+				b.append(artifact);
+
+			MessageDigest md = MessageDigest.getInstance("md5");
+			return new String(Hex.encodeHex(md.digest(b.toString().getBytes(UTF8))));
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * Describes a single log message.
 	 */
@@ -101,6 +314,7 @@ public class LogMessageUtil {
 		private String source;
 		private String id = "", logLevel = "", logId = "";
 		private List<MessageArtifact> logMessage = new ArrayList<MessageArtifact>();
+		private List<String> locations = Collections.emptyList();
 
 		private LogMessage(String id, String logLevel, String logId, List<String> messageArtifacts) {
 			this.id = id;
@@ -110,7 +324,8 @@ public class LogMessageUtil {
 				logMessage.add(new MessageArtifact(s));
 		}
 
-		private LogMessage(PsiMethodCallExpression callExpression, boolean mergeConstantExpressions) {
+		private LogMessage(PsiMethodCallExpression callExpression, boolean mergeConstantExpressions,
+						   IdVersion idVersion) {
 			this.callExpression = new WeakReference<PsiMethodCallExpression>(callExpression);
 
 			// Extract LogLevel
@@ -134,57 +349,64 @@ public class LogMessageUtil {
 
 				// Extract message artifacts
 				PsiExpression pe = literalExpression;
-				while (pe.getParent() instanceof PsiBinaryExpression)
+				while (ConcatenationFolder.isConcatenation(pe.getParent()))
 					pe = (PsiExpression) pe.getParent();
 				MessageArtifact.build(pe, mergeConstantExpressions, logMessage);
 			}
 
-			try {
-				StringBuilder b = new StringBuilder();
-				b.append(logLevel).append(logId).append('-');
-				for (MessageArtifact artifact : logMessage)
-					b.append(artifact);
-
-				MessageDigest md = MessageDigest.getInstance("md5");
-				id = new String(Hex.encodeHex(md.digest(b.toString().getBytes(UTF8))));
-			} catch (NoSuchAlgorithmException e) {
-				throw new RuntimeException(e);
-			}
+			id = computeId(idVersion, logLevel, logId, logMessage);
 		}
 
+		/**
+		 * Returns the source location of the message ("[module]: path:line").
+		 * <p/>
+		 * Use {@link LogMessageUtil#computeSources(Map)} when the sources of many messages are needed.
+		 *
+		 * @return the source location of the message or an empty string if the log call is no longer available.
+		 */
 		public String getSource() {
-			if (source == null) {
-				PsiMethodCallExpression callExpression = this.callExpression.get();
-				VirtualFile sourceFile = callExpression == null ? null : callExpression.getContainingFile().getVirtualFile();
-				if (sourceFile != null) {
-					String source = sourceFile.getPresentableUrl();
-
-					ModuleManager moduleManager = ModuleManager.getInstance(callExpression.getProject());
-					for (Module module : moduleManager.getModules()) {
-						for (VirtualFile virtualFile : VirtualFileUtil.getSourceDirectories(module, true)) {
-							String moduleSourceURL = virtualFile.getPresentableUrl();
-							if (source.startsWith(moduleSourceURL)) {
-								source = "[" + module.getName() + "]: " + source.substring(moduleSourceURL.length() + 1).replace('\\', '/');
-								break;
-							}
-						}
-					}
+			if (source == null)
+				computeSources(Collections.singletonList(this));
+			return source;
+		}
 
-					Document document = callExpression.getContainingFile().getViewProvider().getDocument();
-					if (document != null)
-						source += ":" + document.getLineNumber(callExpression.getTextOffset());
+		/**
+		 * Computes the source and releases all references to PSI elements.
+		 */
+		void detach() {
+			getSource();
+			callExpression = null;
+			for (MessageArtifact artifact : logMessage)
+				artifact.value = null;
+		}
 
-					this.source = source;
-				} else
-					source = "";
-			}
-			return source;
+		PsiMethodCallExpression getCallExpression() {
+			return callExpression == null ? null : callExpression.get();
 		}
 
 		public String getId() {
 			return id;
 		}
 
+		/**
+		 * Returns the algorithm that was used to compute the ID of this message.
+		 *
+		 * @return the algorithm that was used to compute the ID of this message.
+		 */
+		public IdVersion getIdVersion() {
+			return IdVersion.of(id);
+		}
+
+		/**
+		 * Returns the ID of this message as it is computed by the given algorithm.
+		 *
+		 * @param idVersion the algorithm to compute the ID with.
+		 * @return the ID of this message as it is computed by the given algorithm.
+		 */
+		String getId(IdVersion idVersion) {
+			return idVersion == getIdVersion() ? id : computeId(idVersion, logLevel, logId, logMessage);
+		}
+
 		public String getLogLevel() {
 			return logLevel;
 		}
@@ -197,6 +419,31 @@ public class LogMessageUtil {
 			return Collections.unmodifiableList(logMessage);
 		}
 
+		/**
+		 * Returns the source locations of the message as they were recorded in a review.
+		 *
+		 * @return the source locations of the message as they were recorded in a review (may be empty).
+		 */
+		public List<String> getLocations() {
+			return locations;
+		}
+
+		/**
+		 * Returns true if the content of the message differs from the content its ID was computed from,
+		 * e.g. when the message was edited inside a review.
+		 *
+		 * @return true if the content of the message differs from the content its ID was computed from.
+		 */
+		public boolean isModified() {
+			IdVersion idVersion = getIdVersion();
+			if (id.equals(computeId(idVersion, logLevel, logId, logMessage)))
+				return false;
+
+			// Reviews contain an empty log ID for messages that did not have an ID.
+			return !(logId == null || logId.length() == 0) ||
+					!id.equals(computeId(idVersion, logLevel, null, logMessage));
+		}
+
 		@Override
 		public String toString() {
 			StringBuilder b = new StringBuilder();
@@ -225,29 +472,17 @@ public class LogMessageUtil {
 	public final static class MessageArtifact {
 
 		static void build(PsiExpression expression, boolean mergeConstantExpressions, List<MessageArtifact> out) {
-			if (expression == null)
-				return;
-			if (expression instanceof PsiLiteralExpression)
-				out.add(new MessageArtifact((PsiLiteralExpression) expression));
-			else if (expression instanceof PsiBinaryExpression) {
-				PsiBinaryExpression binaryExpression = (PsiBinaryExpression) expression;
-				Object result = LogPsiUtil.computeConstantExpression(expression);
-				boolean mergeable = result != null;
-
-				if (mergeable && mergeConstantExpressions)
-					out.add(new MessageArtifact(result.toString()));
-				else {
-					build(binaryExpression.getLOperand(), mergeConstantExpressions, out);
-					if (mergeable)
-						out.add(new MessageArtifact(DELIMITED_ARTIFACT));
-					build(binaryExpression.getROperand(), mergeConstantExpressions, out);
-				}
-			} else
-				out.add(new MessageArtifact(VARIABLE_ARTIFACT));
+			for (Object artifact : ConcatenationFolder.fold(expression, mergeConstantExpressions)) {
+				if (artifact instanceof PsiLiteralExpression)
+					out.add(new MessageArtifact((PsiLiteralExpression) artifact));
+				else
+					out.add(new MessageArtifact((String) artifact));
+			}
 		}
 
 		private String constantValue = "";
 		private PsiLiteralExpression value;
+		private boolean editable;
 
 		private MessageArtifact(String constantValue) {
 			this.constantValue = constantValue;
@@ -258,6 +493,7 @@ public class LogMessageUtil {
 			PsiType type = expression.getType();
 			if (type != null && (type.equalsToText("java.lang.String") || type.equalsToText("char"))) {
 				value = expression;
+				editable = true;
 				int len = text.length();
 				if (len > 2)
 					constantValue = text.substring(1, len - 1);
@@ -265,12 +501,17 @@ public class LogMessageUtil {
 				constantValue = text;
 		}
 
+		/**
+		 * Returns the literal of an editable artifact.
+		 *
+		 * @return the literal of an editable artifact or 'null' if the artifact is constant or detached.
+		 */
 		public PsiLiteralExpression getValue() {
 			return value;
 		}
 
 		public boolean isEditable() {
-			return value != null;
+			return editable;
 		}
 
 		@Override
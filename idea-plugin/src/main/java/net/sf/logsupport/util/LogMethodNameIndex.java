@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import net.sf.logsupport.config.LogFramework;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Is an immutable suffix trie over all log method fragments of a set of log frameworks.
+ * <p/>
+ * The index answers whether a method name is contained in any of the configured log method
+ * fragments (same semantics as {@code methodFragment.contains(methodName)}) by walking the
+ * characters of the name from the root, without allocating anything during the lookup.
+ *
+ * @author Juergen_Kellerer, 2011-10-02
+ * @version 1.0
+ */
+public final class LogMethodNameIndex {
+
+	private static final char[] NO_KEYS = {};
+	private static final Node[] NO_NODES = {};
+
+	private final Node root;
+	private final boolean frameworksEmpty, fragmentsEmpty;
+
+	/**
+	 * Builds the index for the given frameworks.
+	 *
+	 * @param frameworks the frameworks to read the log method fragments from.
+	 */
+	public LogMethodNameIndex(@NotNull Collection<LogFramework> frameworks) {
+		Set<String> fragments = new HashSet<String>();
+		for (LogFramework framework : frameworks) {
+			for (String methodFragment : framework.getLogMethod().values()) {
+				if (methodFragment != null)
+					fragments.add(methodFragment);
+			}
+		}
+
+		NodeBuilder rootBuilder = new NodeBuilder();
+		for (String fragment : fragments) {
+			for (int i = 0, len = fragment.length(); i < len; i++)
+				rootBuilder.addAll(fragment, i);
+		}
+
+		root = rootBuilder.build();
+		frameworksEmpty = frameworks.isEmpty();
+		fragmentsEmpty = fragments.isEmpty();
+	}
+
+	/**
+	 * Returns true if the given method name may be a call to a log method.
+	 *
+	 * @param methodName the name of the called method, 'null' is always accepted.
+	 * @return true if the method name is contained in at least one log method fragment
+	 *         or if no frameworks were indexed.
+	 */
+	public boolean matches(CharSequence methodName) {
+		if (methodName == null || frameworksEmpty)
+			return true;
+		if (fragmentsEmpty)
+			return false;
+
+		Node node = root;
+		for (int i = 0, len = methodName.length(); i < len && node != null; i++)
+			node = node.child(methodName.charAt(i));
+
+		return node != null;
+	}
+
+	private static final class Node {
+		final char[] keys;
+		final Node[] children;
+
+		Node(char[] keys, Node[] children) {
+			this.keys = keys;
+			this.children = children;
+		}
+
+		Node child(char c) {
+			int idx = Arrays.binarySearch(keys, c);
+			return idx < 0 ? null : children[idx];
+		}
+	}
+
+	private static final class NodeBuilder {
+		final SortedMap<Character, NodeBuilder> children = new TreeMap<Character, NodeBuilder>();
+
+		void addAll(String fragment, int offset) {
+			NodeBuilder node = this;
+			for (int i = offset, len = fragment.length(); i < len; i++) {
+				Character c = fragment.charAt(i);
+				NodeBuilder child = node.children.get(c);
+				if (child == null)
+					node.children.put(c, child = new NodeBuilder());
+				node = child;
+			}
+		}
+
+		Node build() {
+			if (children.isEmpty())
+				return new Node(NO_KEYS, NO_NODES);
+
+			char[] keys = new char[children.size()];
+			Node[] nodes = new Node[keys.length];
+			int i = 0;
+			for (Map.Entry<Character, NodeBuilder> entry : children.entrySet()) {
+				keys[i] = entry.getKey();
+				nodes[i++] = entry.getValue().build();
+			}
+			return new Node(keys, nodes);
+		}
+	}
+}
@@ -20,8 +20,6 @@ import com.intellij.lang.Language;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.psi.*;
-import com.intellij.psi.util.PsiElementFilter;
-import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.util.PsiUtil;
 import net.sf.logsupport.config.ApplicationConfiguration;
 import net.sf.logsupport.config.LogConfiguration;
@@ -30,8 +28,6 @@ import net.sf.logsupport.config.LogLevel;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 import java.util.*;
 
 import static net.sf.logsupport.util.ReflectionUtil.invoke;
@@ -46,9 +42,6 @@ public class LogPsiUtil {
 
 	private static final Logger LOG = Logger.getInstance("#net.sf.logsupport.util.LogPsiUtil");
 
-	private static Reference<Map<String, PsiMethodCallExpression>> logLevelCache =
-			new SoftReference<Map<String, PsiMethodCallExpression>>(null);
-
 	private static Language groovy;
 
 	static {
@@ -164,28 +157,12 @@ public class LogPsiUtil {
 	 */
 	public static LogLevel findLogLevel(PsiMethodCallExpression expression) {
 		LogFramework framework = getLogFramework(expression);
-		PsiExpression qualifier = expression.getMethodExpression().getQualifierExpression();
-
-		if (framework != null && qualifier != null) {
-			for (Map.Entry<LogLevel, String> e : framework.getLogMethod().entrySet()) {
-				String key = qualifier.getText() + "." + e.getValue().trim() + (e.getValue().contains("(") ? "" : "()");
-
-				Map<String, PsiMethodCallExpression> cache = logLevelCache.get();
-				if (cache == null) {
-					logLevelCache = new SoftReference<Map<String, PsiMethodCallExpression>>(cache = new HashMap<String, PsiMethodCallExpression>());
-				}
-
-				PsiMethodCallExpression referenceExpression = cache.get(key);
-				if (referenceExpression == null) {
-					LogPsiElementFactory elementFactory = LogPsiUtil.getFactory(expression.getContainingFile());
-					PsiElement el = elementFactory.createExpressionFromText(key, expression.getContext());
-					if (el instanceof PsiMethodCallExpression)
-						cache.put(key, referenceExpression = (PsiMethodCallExpression) el);
-				}
+		PsiReferenceExpression methodExpression = expression.getMethodExpression();
 
-				if (referenceExpression != null && isEquivalentTo(expression, referenceExpression))
-					return e.getKey();
-			}
+		if (framework != null && methodExpression.getQualifierExpression() != null) {
+			String methodName = methodExpression.getReferenceName();
+			if (methodName != null)
+				return framework.getLogLevelTable().findLevel(methodName, expression.getArgumentList().getExpressions());
 		}
 
 		return null;
@@ -241,24 +218,16 @@ public class LogPsiUtil {
 
 	/**
 	 * Returns all calls to log methods that are supported for processing.
+	 * <p/>
+	 * Note: The calls are served from the {@link LoggerCallIndex} of the file and are only
+	 * collected again after the file or the log configuration changed.
 	 *
 	 * @param file The file to look for logger calls.
 	 * @return all calls to log methods that are supported for processing.
 	 */
 	@NotNull
 	public static List<PsiMethodCallExpression> findSupportedLoggerCalls(PsiFile file) {
-		PsiElement[] elements = PsiTreeUtil.collectElements(file, new PsiElementFilter() {
-			public boolean isAccepted(PsiElement element) {
-				return element instanceof PsiMethodCallExpression &&
-						isSupportedLoggerCall((PsiMethodCallExpression) element);
-			}
-		});
-
-		List<PsiMethodCallExpression> calls = new ArrayList<PsiMethodCallExpression>(elements.length);
-		for (PsiElement element : elements)
-			calls.add((PsiMethodCallExpression) element);
-
-		return calls;
+		return LoggerCallIndex.getInstance(file).getExpressions();
 	}
 
 	/**
@@ -275,20 +244,8 @@ public class LogPsiUtil {
 		final PsiReferenceExpression ref = callExpression.getMethodExpression();
 		final PsiElement lastChild = ref.getLastChild();
 		final String logMethodName = lastChild == null ? null : lastChild.getText();
-		if (logMethodName != null) {
-			List<LogFramework> frameworks = ApplicationConfiguration.getInstance().getFrameworks();
-			if (!frameworks.isEmpty()) {
-				canBeLogMethod = false;
-
-				search:
-				for (LogFramework framework : frameworks) {
-					for (String methodFragment : framework.getLogMethod().values()) {
-						if (canBeLogMethod = methodFragment.contains(logMethodName))
-							break search;
-					}
-				}
-			}
-		}
+		if (logMethodName != null)
+			canBeLogMethod = ApplicationConfiguration.getInstance().getLogMethodNameIndex().matches(logMethodName);
 
 		return canBeLogMethod;
 	}
@@ -348,6 +305,8 @@ public class LogPsiUtil {
 
 	/**
 	 * Returns the target type of a supported logger class.
+	 * <p/>
+	 * Note: Results are cached per project until the log configuration or the code structure changed.
 	 *
 	 * @param file	   The file instance containing the logger.
 	 * @param loggerType The type of the logger that received the logger call.
@@ -356,22 +315,42 @@ public class LogPsiUtil {
 	@Nullable
 	public static PsiType findSupportedLoggerType(@NotNull PsiFile file, @Nullable PsiType loggerType) {
 		if (loggerType != null) {
-			List<PsiType> types = Arrays.asList(loggerType);
-			while (!types.isEmpty()) {
-				for (PsiType type : types) {
-					String loggerClass = type.getCanonicalText();
-					if (isSupportedLoggerClass(file, loggerClass))
-						return type;
-				}
+			final LogConfiguration configuration = LogConfiguration.getInstance(file);
+			final LoggerTypeCache cache = LoggerTypeCache.getInstance(file.getProject());
+			final String typeText = loggerType.getCanonicalText();
 
-				List<PsiType> superTypes = new ArrayList<PsiType>(types.size() * 2);
-				for (PsiType type : types) {
-					for (PsiType st : type.getSuperTypes())
+			Object cached = cache.get(configuration, typeText);
+			if (cached != null)
+				return cached == LoggerTypeCache.UNSUPPORTED ? null : (PsiType) cached;
+
+			PsiType supportedType = findSupportedLoggerType(configuration, loggerType);
+			cache.put(configuration, typeText, supportedType);
+			return supportedType;
+		}
+
+		return null;
+	}
+
+	private static PsiType findSupportedLoggerType(LogConfiguration configuration, PsiType loggerType) {
+		final Set<String> supportedClasses = configuration.getSupportedLoggerClasses();
+		final Set<String> visitedTypes = new HashSet<String>();
+
+		List<PsiType> types = Arrays.asList(loggerType);
+		while (!types.isEmpty()) {
+			for (PsiType type : types) {
+				if (supportedClasses.contains(type.getCanonicalText()))
+					return type;
+			}
+
+			List<PsiType> superTypes = new ArrayList<PsiType>(types.size() * 2);
+			for (PsiType type : types) {
+				for (PsiType st : type.getSuperTypes()) {
+					if (visitedTypes.add(st.getCanonicalText()))
 						superTypes.add(st);
 				}
-
-				types = superTypes;
 			}
+
+			types = superTypes;
 		}
 
 		return null;
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiElementFilter;
+import com.intellij.psi.util.PsiTreeUtil;
+import net.sf.logsupport.config.ApplicationConfiguration;
+import net.sf.logsupport.config.LogFramework;
+import net.sf.logsupport.config.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Is a per file index of all supported logger calls.
+ * <p/>
+ * The index is stored in the user data of the PsiFile and is reused as long as the modification stamp
+ * of the file and the log configuration remain unchanged. Calls are held by their text range together with
+ * the log level, log framework and literal offset that were resolved when the index was built, the
+ * expressions are looked up again on access (while the file stamp is unchanged the ranges remain valid).
+ *
+ * @author Juergen_Kellerer, 2011-10-02
+ * @version 1.0
+ */
+public final class LoggerCallIndex {
+
+	private static final Key<LoggerCallIndex> LOGGER_CALL_INDEX = Key.create("LOG_SUPPORT_LOGGER_CALL_INDEX");
+
+	/**
+	 * Returns the index of supported logger calls for the given file, building it only if the cached index is outdated.
+	 *
+	 * @param file The file to return the index for.
+	 * @return the index of supported logger calls for the given file.
+	 */
+	@NotNull
+	public static LoggerCallIndex getInstance(@NotNull PsiFile file) {
+		final long fileStamp = file.getModificationStamp();
+		final long configurationStamp = ApplicationConfiguration.getConfigurationModificationCount();
+
+		LoggerCallIndex index = file.getUserData(LOGGER_CALL_INDEX);
+		if (index == null || !index.isUpToDate(fileStamp, configurationStamp)) {
+			index = new LoggerCallIndex(file, fileStamp, configurationStamp);
+			file.putUserData(LOGGER_CALL_INDEX, index);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Describes a single supported logger call inside the index.
+	 */
+	public static final class LoggerCall {
+
+		private final LoggerCallIndex index;
+		private final int startOffset, endOffset;
+		private final LogLevel level;
+		private final LogFramework framework;
+		private final int literalOffset;
+
+		LoggerCall(LoggerCallIndex index, TextRange range, LogLevel level, LogFramework framework, int literalOffset) {
+			this.index = index;
+			this.startOffset = range.getStartOffset();
+			this.endOffset = range.getEndOffset();
+			this.level = level;
+			this.framework = framework;
+			this.literalOffset = literalOffset;
+		}
+
+		/**
+		 * Returns the call expression or 'null' if the file was changed after the index was built.
+		 *
+		 * @return the call expression or 'null' if the file was changed after the index was built.
+		 */
+		@Nullable
+		public PsiMethodCallExpression getExpression() {
+			PsiFile file = index.file;
+			if (!file.isValid() || file.getModificationStamp() != index.fileStamp)
+				return null;
+
+			PsiElement element = file.findElementAt(startOffset);
+			while (element != null && !(element instanceof PsiFile)) {
+				TextRange range = element.getTextRange();
+				if (range.getStartOffset() != startOffset || range.getEndOffset() > endOffset)
+					break;
+				if (range.getEndOffset() == endOffset && element instanceof PsiMethodCallExpression)
+					return (PsiMethodCallExpression) element;
+				element = element.getParent();
+			}
+
+			return null;
+		}
+
+		/**
+		 * Returns the text range of the call expression inside the file.
+		 *
+		 * @return the text range of the call expression inside the file.
+		 */
+		@NotNull
+		public TextRange getTextRange() {
+			return new TextRange(startOffset, endOffset);
+		}
+
+		/**
+		 * Returns the log level of the call or 'null' if the level is unknown.
+		 *
+		 * @return the log level of the call or 'null' if the level is unknown.
+		 */
+		@Nullable
+		public LogLevel getLevel() {
+			return level;
+		}
+
+		/**
+		 * Returns the log framework that backs the call.
+		 *
+		 * @return the log framework that backs the call.
+		 */
+		@Nullable
+		public LogFramework getFramework() {
+			return framework;
+		}
+
+		/**
+		 * Returns the text offset of the message literal inside the file or -1 if the call has no message literal.
+		 *
+		 * @return the text offset of the message literal inside the file or -1 if not available.
+		 */
+		public int getLiteralOffset() {
+			return literalOffset;
+		}
+	}
+
+	private final PsiFile file;
+	private final long fileStamp, configurationStamp;
+	private final List<LoggerCall> calls;
+
+	private LoggerCallIndex(PsiFile file, long fileStamp, long configurationStamp) {
+		this.file = file;
+		this.fileStamp = fileStamp;
+		this.configurationStamp = configurationStamp;
+
+		PsiElement[] elements = PsiTreeUtil.collectElements(file, new PsiElementFilter() {
+			public boolean isAccepted(PsiElement element) {
+				return element instanceof PsiMethodCallExpression &&
+						LogPsiUtil.isSupportedLoggerCall((PsiMethodCallExpression) element);
+			}
+		});
+
+		if (elements.length == 0) {
+			calls = Collections.emptyList();
+		} else {
+			List<LoggerCall> calls = new ArrayList<LoggerCall>(elements.length);
+			for (PsiElement element : elements) {
+				PsiMethodCallExpression expression = (PsiMethodCallExpression) element;
+				PsiLiteralExpression literal = LogPsiUtil.findSupportedLiteralExpression(expression.getArgumentList());
+
+				calls.add(new LoggerCall(
+						this, expression.getTextRange(),
+						LogPsiUtil.findLogLevel(expression),
+						LogPsiUtil.getLogFramework(expression),
+						literal == null ? -1 : literal.getTextRange().getStartOffset()));
+			}
+			this.calls = Collections.unmodifiableList(calls);
+		}
+	}
+
+	private boolean isUpToDate(long fileStamp, long configurationStamp) {
+		return this.fileStamp == fileStamp && this.configurationStamp == configurationStamp;
+	}
+
+	/**
+	 * Returns all indexed logger calls.
+	 *
+	 * @return all indexed logger calls.
+	 */
+	@NotNull
+	public List<LoggerCall> getLoggerCalls() {
+		return calls;
+	}
+
+	/**
+	 * Returns all indexed call expressions that can still be resolved.
+	 *
+	 * @return all indexed call expressions that can still be resolved.
+	 */
+	@NotNull
+	public List<PsiMethodCallExpression> getExpressions() {
+		List<PsiMethodCallExpression> expressions = new ArrayList<PsiMethodCallExpression>(calls.size());
+		for (LoggerCall call : calls) {
+			PsiMethodCallExpression expression = call.getExpression();
+			if (expression != null)
+				expressions.add(expression);
+		}
+		return expressions;
+	}
+
+	/**
+	 * Returns true if the file does not contain any supported logger calls.
+	 *
+	 * @return true if the file does not contain any supported logger calls.
+	 */
+	public boolean isEmpty() {
+		return calls.isEmpty();
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiType;
+import net.sf.logsupport.config.ApplicationConfiguration;
+import net.sf.logsupport.config.LogConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Is a project level cache that maps the canonical text of a logger type to the supported logger type
+ * it resolves to (or to a negative result).
+ * <p/>
+ * The cache is dropped as a whole whenever the log configuration or the code structure of the project changed.
+ *
+ * @author Juergen_Kellerer, 2011-10-03
+ * @version 1.0
+ */
+final class LoggerTypeCache {
+
+	private static final Key<LoggerTypeCache> LOGGER_TYPE_CACHE = Key.create("LOG_SUPPORT_LOGGER_TYPE_CACHE");
+
+	private static final int MAX_TYPES_PER_CONFIGURATION = 4096;
+
+	/**
+	 * Is the marker that is stored for types that are not supported.
+	 */
+	static final Object UNSUPPORTED = new Object();
+
+	/**
+	 * Returns the up-to-date cache instance for the given project.
+	 *
+	 * @param project the project to return the cache for.
+	 * @return the up-to-date cache instance for the given project.
+	 */
+	@NotNull
+	static LoggerTypeCache getInstance(@NotNull Project project) {
+		final long structureStamp = PsiManager.getInstance(project).getModificationTracker().
+				getOutOfCodeBlockModificationCount();
+		final long configurationStamp = ApplicationConfiguration.getConfigurationModificationCount();
+
+		LoggerTypeCache cache = project.getUserData(LOGGER_TYPE_CACHE);
+		if (cache == null || cache.structureStamp != structureStamp || cache.configurationStamp != configurationStamp) {
+			cache = new LoggerTypeCache(structureStamp, configurationStamp);
+			project.putUserData(LOGGER_TYPE_CACHE, cache);
+		}
+
+		return cache;
+	}
+
+	private final long structureStamp, configurationStamp;
+	private final Map<LogConfiguration, ConcurrentMap<String, Object>> typesByConfiguration =
+			Collections.synchronizedMap(new IdentityHashMap<LogConfiguration, ConcurrentMap<String, Object>>());
+
+	private LoggerTypeCache(long structureStamp, long configurationStamp) {
+		this.structureStamp = structureStamp;
+		this.configurationStamp = configurationStamp;
+	}
+
+	private ConcurrentMap<String, Object> getTypes(LogConfiguration configuration) {
+		synchronized (typesByConfiguration) {
+			ConcurrentMap<String, Object> types = typesByConfiguration.get(configuration);
+			if (types == null)
+				typesByConfiguration.put(configuration, types = new ConcurrentHashMap<String, Object>());
+			return types;
+		}
+	}
+
+	/**
+	 * Returns the cached result for the given type text.
+	 *
+	 * @param configuration the configuration that was used to resolve the type.
+	 * @param typeText      the canonical text of the logger type.
+	 * @return the supported PsiType, {@link #UNSUPPORTED} or 'null' if nothing valid was cached.
+	 */
+	Object get(@NotNull LogConfiguration configuration, @NotNull String typeText) {
+		Object result = getTypes(configuration).get(typeText);
+		if (result instanceof PsiType && !((PsiType) result).isValid())
+			result = null;
+		return result;
+	}
+
+	/**
+	 * Stores the resolved result for the given type text.
+	 *
+	 * @param configuration the configuration that was used to resolve the type.
+	 * @param typeText      the canonical text of the logger type.
+	 * @param supportedType the resolved supported type or 'null' if the type is not supported.
+	 */
+	void put(@NotNull LogConfiguration configuration, @NotNull String typeText, PsiType supportedType) {
+		ConcurrentMap<String, Object> types = getTypes(configuration);
+		if (types.size() >= MAX_TYPES_PER_CONFIGURATION)
+			types.clear();
+		types.put(typeText, supportedType == null ? UNSUPPORTED : supportedType);
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+/**
+ * Computes a streaming 128 bit MurmurHash3 (x64 variant, seed 0) over the UTF-16LE representation of the
+ * appended characters.
+ * <p/>
+ * The hash is not cryptographic, it is used to identify log messages and allows to hash the message
+ * artifacts in place without building intermediate strings or byte arrays.
+ *
+ * @author Juergen_Kellerer, 2011-10-13
+ * @version 1.0
+ */
+final class MessageIdHash {
+
+	private static final long C1 = 0x87c37b91114253d5L, C2 = 0x4cf5ad432745937fL;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private long h1, h2;
+	private long k1, k2;
+	private int blockChars;
+	private long length;
+
+	/**
+	 * Appends the given text, 'null' is appended as "null" (like {@link StringBuilder#append(String)}).
+	 *
+	 * @param text the text to append.
+	 * @return this instance.
+	 */
+	MessageIdHash append(CharSequence text) {
+		if (text == null)
+			text = "null";
+		for (int i = 0, len = text.length(); i < len; i++)
+			append(text.charAt(i));
+		return this;
+	}
+
+	/**
+	 * Appends a single character.
+	 *
+	 * @param c the character to append.
+	 * @return this instance.
+	 */
+	MessageIdHash append(char c) {
+		if (blockChars < 4)
+			k1 |= (long) c << (blockChars << 4);
+		else
+			k2 |= (long) c << ((blockChars - 4) << 4);
+
+		if (++blockChars == 8) {
+			h1 ^= mixK1(k1);
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52dce729;
+
+			h2 ^= mixK2(k2);
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x38495ab5;
+
+			k1 = k2 = 0;
+			blockChars = 0;
+		}
+
+		length += 2;
+		return this;
+	}
+
+	/**
+	 * Returns the hash of all appended characters as 32 digit hex string (h1 followed by h2).
+	 * <p/>
+	 * The instance must not be used anymore after calling this method.
+	 *
+	 * @return the hash of all appended characters.
+	 */
+	String toHexString() {
+		if (blockChars > 4)
+			h2 ^= mixK2(k2);
+		if (blockChars > 0)
+			h1 ^= mixK1(k1);
+
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+
+		char[] hex = new char[32];
+		toHex(h1, hex, 0);
+		toHex(h2, hex, 16);
+		return new String(hex);
+	}
+
+	private static long mixK1(long k1) {
+		k1 *= C1;
+		k1 = Long.rotateLeft(k1, 31);
+		return k1 * C2;
+	}
+
+	private static long mixK2(long k2) {
+		k2 *= C2;
+		k2 = Long.rotateLeft(k2, 33);
+		return k2 * C1;
+	}
+
+	private static long fmix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+
+	private static void toHex(long value, char[] out, int offset) {
+		for (int i = offset + 15; i >= offset; i--, value >>>= 4)
+			out[i] = HEX_DIGITS[(int) (value & 0xF)];
+	}
+}
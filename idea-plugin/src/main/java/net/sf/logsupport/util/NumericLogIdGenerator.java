@@ -26,6 +26,16 @@ public interface NumericLogIdGenerator extends LogIdGenerator {
 
 	String createId(int sequenceValue);
 
+	/**
+	 * Parses the sequence value of the given id.
+	 * <p/>
+	 * Invalid input does not throw, the method returns -1 instead (e.g. for 'null', ids that contain no digits
+	 * or values that exceed the range of an int). Callers like ReplaceLogIdIntention rely on this to assign
+	 * a new id in place of an unparsable one.
+	 *
+	 * @param id the id to parse (as returned by {@link #extractId(String)}).
+	 * @return the sequence value or -1 if the id contains no valid sequence value.
+	 */
 	int parseSequenceValue(String id);
 
 	int getSequenceValue();
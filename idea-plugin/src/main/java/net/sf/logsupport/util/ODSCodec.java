@@ -3,26 +3,37 @@ package net.sf.logsupport.util;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.psi.PsiMethodCallExpression;
 import org.jetbrains.annotations.NotNull;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import java.io.*;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import static net.sf.logsupport.util.XmlUtil.writeEscaped;
+
 /**
- * Reads and writes an OpenDocument Spreadsheet document on top of the XHTML codec.
+ * Reads and writes an OpenDocument Spreadsheet document.
+ * <p/>
+ * Reviews are written directly into and read directly from the zip stream.
  *
  * @author Juergen_Kellerer, 2010-05-02
  * @version 1.0
  */
-public class ODSCodec implements Codec {
+public class ODSCodec extends LogMessageUtil implements Codec {
+
+	private static final String TEMPLATE_RESOURCE = "/net/sf/logsupport/LogReview.template.ods";
+	private static final String ROWS_MARKER = "-LogReviewRows-";
 
-	private final XHTMLCodec xhtmlCodec = new XHTMLCodec();
+	private static String[] contentSkeleton;
 
 	/**
 	 * {@inheritDoc}
@@ -51,32 +62,98 @@ public class ODSCodec implements Codec {
 	 */
 	@NotNull
 	public List<LogMessageUtil.LogMessage> decode(@NotNull File logReview) throws IOException {
-		File tempReview = File.createTempFile("logsupport-", ".xhtml");
+		ZipInputStream odsIn = new ZipInputStream(new BufferedInputStream(new FileInputStream(logReview)));
 		try {
-			ZipInputStream odsIn = new ZipInputStream(
-					new BufferedInputStream(new FileInputStream(logReview)));
-
-			TransformerFactory tf = TransformerFactory.newInstance();
-			Transformer odsImport = tf.newTransformer(new StreamSource(getClass().
-					getResourceAsStream("/net/sf/logsupport/LogReview.import.ods.xsl")));
-
 			ZipEntry entry;
 			while ((entry = odsIn.getNextEntry()) != null) {
 				if ("content.xml".equals(entry.getName())) {
-					odsImport.transform(new StreamSource(odsIn), new StreamResult(tempReview));
-					break;
+					ReviewSheetReader reader = new ReviewSheetReader();
+					XmlUtil.parse(new InputSource(odsIn), reader);
+					return reader.getMessages();
 				}
 			}
+		} finally {
 			odsIn.close();
+		}
 
-			return xhtmlCodec.decode(tempReview);
-		} catch (IOException e) {
-			throw e;
-		} catch (Exception e) {
-			throw new IOException(e);
-		} finally {
-			if (!tempReview.delete())
-				tempReview.deleteOnExit();
+		throw new IOException("The spreadsheet does not contain any content.");
+	}
+
+	/**
+	 * Reads the rows of the sheet 'LogReview' from a stream of SAX events (mirrors 'LogReview.import.ods.xsl').
+	 * <p/>
+	 * The first row of the sheet is the header row, any other row having 6 cells is a message.
+	 */
+	private static final class ReviewSheetReader extends ReviewReader {
+
+		static final String TABLE_NS = "urn:oasis:names:tc:opendocument:xmlns:table:1.0";
+		static final String TEXT_NS = "urn:oasis:names:tc:opendocument:xmlns:text:1.0";
+
+		private int depth, tableDepth = -1, rowDepth = -1, cellDepth = -1;
+		private int rowCount, cellCount;
+		private String id, logLevel, logId, logMessage, logSource;
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) {
+			depth++;
+
+			if (tableDepth == -1) {
+				if (TABLE_NS.equals(uri) && "table".equals(localName) &&
+						"LogReview".equals(attributes.getValue(TABLE_NS, "name")))
+					tableDepth = depth;
+			} else if (rowDepth == -1) {
+				if (depth == tableDepth + 1 && TABLE_NS.equals(uri) && "table-row".equals(localName) &&
+						rowCount++ > 0) {
+					rowDepth = depth;
+					cellCount = 0;
+					id = logLevel = logId = logMessage = logSource = null;
+				}
+			} else if (cellDepth == -1) {
+				if (depth == rowDepth + 1 && TABLE_NS.equals(uri) && "table-cell".equals(localName)) {
+					cellDepth = depth;
+					if (++cellCount <= 5)
+						startText();
+				}
+			} else if (TEXT_NS.equals(uri) && "s".equals(localName))
+				appendText(" ");
+			else if (TEXT_NS.equals(uri) && "line-break".equals(localName) && cellCount == 5)
+				appendText("\n");
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			if (cellCount == 5 && TEXT_NS.equals(uri) && "p".equals(localName))
+				appendText("\n");
+
+			if (depth == cellDepth) {
+				if (isCollectingText()) {
+					String text = endText();
+					switch (cellCount) {
+						case 1:
+							id = text;
+							break;
+						case 2:
+							logLevel = text;
+							break;
+						case 3:
+							logId = text;
+							break;
+						case 4:
+							logMessage = text;
+							break;
+						default:
+							logSource = text;
+					}
+				}
+				cellDepth = -1;
+			} else if (depth == rowDepth) {
+				if (cellCount == 6)
+					rowRead(id, logLevel, logId, logMessage, logSource);
+				rowDepth = -1;
+			} else if (depth == tableDepth)
+				tableDepth = -1;
+
+			depth--;
 		}
 	}
 
@@ -85,61 +162,187 @@ public class ODSCodec implements Codec {
 	 */
 	public void encode(@NotNull List<PsiMethodCallExpression> expressionList,
 					   @NotNull File logReview) throws IOException {
-		File tempReview = File.createTempFile("logsupport-", ".xhtml");
-		try {
-			xhtmlCodec.encode(expressionList, tempReview);
-			//DOMSource source = new DOMSource(XmlUtil.parse(tempReview));
+		if (expressionList.isEmpty())
+			return;
 
-			ZipInputStream templateIn = new ZipInputStream(getClass().
-					getResourceAsStream("/net/sf/logsupport/LogReview.template.ods"));
+		encode(toDetachedMessages(expressionList).iterator(), expressionList.get(0).getProject().getName(), logReview);
+	}
 
-			TransformerFactory tf = TransformerFactory.newInstance();
-			Transformer odsContent = tf.newTransformer(new StreamSource(getClass().
-					getResourceAsStream("/net/sf/logsupport/LogReview.template.ods.content.xsl")));
-			Transformer odsStyle = tf.newTransformer(new StreamSource(getClass().
-					getResourceAsStream("/net/sf/logsupport/LogReview.template.ods.styles.xsl")));
+	/**
+	 * {@inheritDoc}
+	 */
+	public void encode(@NotNull Iterator<LogMessage> logMessages, @NotNull String projectName,
+					   @NotNull File logReview) throws IOException {
+		if (!logMessages.hasNext())
+			return;
 
+		String title = "Log Review for Project \"" + projectName + '"';
+		Map<LogMessage, List<LogMessage>> messages = groupMessages(logMessages);
+		try {
+			ZipInputStream templateIn = new ZipInputStream(getClass().getResourceAsStream(TEMPLATE_RESOURCE));
 			ZipOutputStream odsOut = new ZipOutputStream(
 					new BufferedOutputStream(new FileOutputStream(logReview)));
+			try {
+				ZipEntry entry;
+				while ((entry = templateIn.getNextEntry()) != null) {
+					boolean isStored = entry.getMethod() == ZipEntry.STORED;
+					ZipEntry clone = isStored ? new ZipEntry(entry) : new ZipEntry(entry.getName());
+					if (!isStored) {
+						clone.setExtra(entry.getExtra());
+						clone.setComment(entry.getComment());
+						clone.setMethod(entry.getMethod());
+					}
 
-			ZipEntry entry;
-			while ((entry = templateIn.getNextEntry()) != null) {
-				boolean isStored = entry.getMethod() == ZipEntry.STORED;
-				ZipEntry clone = isStored ? new ZipEntry(entry) : new ZipEntry(entry.getName());
-				if (!isStored) {
-					clone.setExtra(entry.getExtra());
-					clone.setComment(entry.getComment());
-					clone.setMethod(entry.getMethod());
-				}
+					odsOut.putNextEntry(clone);
+					try {
+						if (entry.isDirectory())
+							continue;
 
-				odsOut.putNextEntry(clone);
-				try {
-					if (entry.isDirectory())
-						continue;
-
-					if ("content.xml".equals(entry.getName()))
-						odsContent.transform(new StreamSource(tempReview), new StreamResult(odsOut));
-					else if ("styles.xml".equals(entry.getName()))
-						odsStyle.transform(new StreamSource(tempReview), new StreamResult(odsOut));
-					else
-						FileUtil.copy(templateIn, odsOut);
-				} finally {
-					odsOut.closeEntry();
+						if ("content.xml".equals(entry.getName()))
+							writeContent(messages, odsOut);
+						else if ("styles.xml".equals(entry.getName()))
+							writeStyles(title, odsOut);
+						else
+							FileUtil.copy(templateIn, odsOut);
+					} finally {
+						odsOut.closeEntry();
+					}
 				}
+			} finally {
+				odsOut.close();
+				templateIn.close();
 			}
-
-			odsOut.close();
-
 		} catch (IOException e) {
 			throw e;
 		} catch (Exception e) {
 			throw new IOException(e);
-		} finally {
-			if (!tempReview.delete())
-				tempReview.deleteOnExit();
 		}
 	}
 
+	/**
+	 * Streams 'content.xml' by writing the review rows between the static parts of the content template.
+	 *
+	 * @param messages the unique log messages to write mapped to all their occurrences.
+	 * @param odsOut   the output of the current zip entry.
+	 * @throws Exception in case of writing failed.
+	 */
+	private void writeContent(Map<LogMessage, List<LogMessage>> messages, OutputStream odsOut) throws Exception {
+		String[] skeleton = getContentSkeleton();
+		Writer out = new BufferedWriter(new OutputStreamWriter(odsOut, XmlUtil.UTF8));
+		out.write(skeleton[0]);
+		for (Map.Entry<LogMessage, List<LogMessage>> entry : messages.entrySet())
+			writeRow(out, entry.getKey(), entry.getValue());
+		out.write(skeleton[1]);
+		out.flush();
+	}
+
+	/**
+	 * Writes a single row, using the same markup that 'LogReview.template.ods.content.xsl' creates for
+	 * a row of the XHTML review.
+	 *
+	 * @param out		 the output to write to.
+	 * @param message	 the unique message to write.
+	 * @param occurrences all occurrences of the message.
+	 * @throws IOException in case of writing failed.
+	 */
+	private static void writeRow(Writer out, LogMessage message, List<LogMessage> occurrences) throws IOException {
+		out.write("<table:table-row table:style-name=\"ro2\">");
+		writeCell(out, "ce6", message.getId());
+		writeCell(out, "ce7", message.getLogLevel());
+		writeCell(out, "ce8", message.getLogId());
+
+		startCell(out, "ce14");
+		for (MessageArtifact artifact : message.getLogMessage()) {
+			if (artifact.isEditable())
+				writeEscaped(out, XHTMLCodec.toReviewText(message, artifact));
+			else {
+				out.write("<text:span text:style-name=\"T2\">");
+				writeEscaped(out, XHTMLCodec.toReviewText(message, artifact));
+				out.write("</text:span>");
+			}
+		}
+		endCell(out);
+
+		startCell(out, "ce9");
+		boolean first = true;
+		for (LogMessage logEntry : occurrences) {
+			if (first)
+				first = false;
+			else
+				out.write("<text:line-break/>");
+			writeEscaped(out, logEntry.getSource().concat("\n"));
+		}
+		endCell(out);
+
+		out.write("<table:table-cell table:number-columns-repeated=\"16379\"/></table:table-row>");
+	}
+
+	private static void writeCell(Writer out, String styleName, String text) throws IOException {
+		startCell(out, styleName);
+		if (text != null)
+			writeEscaped(out, text);
+		endCell(out);
+	}
+
+	private static void startCell(Writer out, String styleName) throws IOException {
+		out.write("<table:table-cell office:value-type=\"string\" table:style-name=\"");
+		out.write(styleName);
+		out.write("\"><text:p>");
+	}
+
+	private static void endCell(Writer out) throws IOException {
+		out.write("</text:p></table:table-cell>");
+	}
+
+	/**
+	 * Writes 'styles.xml', which only depends on the title of the review.
+	 *
+	 * @param title  the title of the review.
+	 * @param odsOut the output of the current zip entry.
+	 * @throws Exception in case of writing failed.
+	 */
+	private void writeStyles(String title, OutputStream odsOut) throws Exception {
+		Transformer odsStyle = TransformerFactory.newInstance().newTransformer(new StreamSource(getClass().
+				getResourceAsStream("/net/sf/logsupport/LogReview.template.ods.styles.xsl")));
+		odsStyle.transform(new StreamSource(new StringReader(createSkeletonReview(title, ""))), new StreamResult(odsOut));
+	}
+
+	/**
+	 * Returns the static parts of 'content.xml' that are written before and after the review rows.
+	 * <p/>
+	 * The parts are created once by transforming an empty review with the content stylesheet.
+	 *
+	 * @return the static parts of 'content.xml' (head and tail).
+	 * @throws Exception in case of the transformation failed.
+	 */
+	private static synchronized String[] getContentSkeleton() throws Exception {
+		if (contentSkeleton == null) {
+			Transformer odsContent = TransformerFactory.newInstance().newTransformer(new StreamSource(ODSCodec.class.
+					getResourceAsStream("/net/sf/logsupport/LogReview.template.ods.content.xsl")));
+
+			StringWriter content = new StringWriter();
+			odsContent.transform(new StreamSource(new StringReader(createSkeletonReview("", ROWS_MARKER))),
+					new StreamResult(content));
+
+			String text = content.toString();
+			int idx = text.indexOf(ROWS_MARKER);
+			if (idx == -1)
+				throw new IOException("Failed to locate the review rows inside the transformed ODS content.");
+			contentSkeleton = new String[]{text.substring(0, idx), text.substring(idx + ROWS_MARKER.length())};
+		}
+		return contentSkeleton;
+	}
+
+	private static String createSkeletonReview(String title, String tableContent) throws IOException {
+		StringWriter review = new StringWriter();
+		review.write("<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>");
+		writeEscaped(review, title);
+		review.write("</title></head><body><table id=\"reviewTable\">");
+		review.write(tableContent);
+		review.write("</table></body></html>");
+		return review.toString();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
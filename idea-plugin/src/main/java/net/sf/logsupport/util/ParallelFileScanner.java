@@ -0,0 +1,184 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans a list of files on a bounded number of pooled worker threads.
+ * <p/>
+ * The files are split into chunks and every chunk is processed inside its own, short read action.
+ * Workers check the progress indicator before every file, making the scan cancelable at any time.
+ * Results are merged in the order of the input files.
+ *
+ * @author Juergen_Kellerer, 2011-10-04
+ * @version 1.0
+ */
+public class ParallelFileScanner<R> {
+
+	private static final Logger LOG = Logger.getInstance("#net.sf.logsupport.util.ParallelFileScanner");
+
+	/**
+	 * Is the default amount of files that are processed within a single read action.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 25;
+
+	/**
+	 * Processes a single file, implementations must be thread safe.
+	 *
+	 * @param <R> the type of the result.
+	 */
+	public interface FileProcessor<R> {
+		/**
+		 * Processes the given file, the method is called inside a read action.
+		 *
+		 * @param file the file to process.
+		 * @return the result or 'null' if the file doesn't produce a result.
+		 */
+		@Nullable
+		R process(@NotNull VirtualFile file);
+	}
+
+	private final FileProcessor<R> processor;
+	private final int chunkSize, maxWorkers;
+
+	public ParallelFileScanner(@NotNull FileProcessor<R> processor) {
+		this(processor, DEFAULT_CHUNK_SIZE, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	}
+
+	public ParallelFileScanner(@NotNull FileProcessor<R> processor, int chunkSize, int maxWorkers) {
+		this.processor = processor;
+		this.chunkSize = Math.max(1, chunkSize);
+		this.maxWorkers = Math.max(1, maxWorkers);
+	}
+
+	/**
+	 * Scans the given files and returns the merged results.
+	 *
+	 * @param files     the files to scan.
+	 * @param indicator the indicator used to report progress and to check for cancellation (may be 'null').
+	 * @return the non-null results of all processed files, in the order of the input files.
+	 * @throws ProcessCanceledException if the indicator was canceled while scanning.
+	 */
+	@NotNull
+	public List<R> scan(@NotNull final List<VirtualFile> files, @Nullable final ProgressIndicator indicator) {
+		final int chunkCount = (files.size() + chunkSize - 1) / chunkSize;
+		final List<List<R>> chunkResults = new ArrayList<List<R>>(chunkCount);
+		for (int i = 0; i < chunkCount; i++)
+			chunkResults.add(null);
+
+		final AtomicInteger nextChunk = new AtomicInteger(), processedFiles = new AtomicInteger();
+		if (indicator != null)
+			indicator.setIndeterminate(false);
+
+		Runnable worker = new Runnable() {
+			public void run() {
+				final Application application = ApplicationManager.getApplication();
+				int chunk;
+				while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+					final List<VirtualFile> chunkFiles = files.subList(
+							chunk * chunkSize, Math.min(files.size(), (chunk + 1) * chunkSize));
+
+					List<R> results = application.runReadAction(new Computable<List<R>>() {
+						public List<R> compute() {
+							List<R> results = new ArrayList<R>(chunkFiles.size());
+							for (VirtualFile file : chunkFiles) {
+								if (isCanceled(indicator))
+									break;
+								R result = file.isValid() ? processor.process(file) : null;
+								if (result != null)
+									results.add(result);
+							}
+							return results;
+						}
+					});
+
+					if (isCanceled(indicator))
+						return;
+
+					synchronized (chunkResults) {
+						chunkResults.set(chunk, results);
+					}
+
+					if (indicator != null) {
+						indicator.setFraction((double) processedFiles.addAndGet(chunkFiles.size()) / files.size());
+						indicator.setText2(chunkFiles.get(chunkFiles.size() - 1).getPresentableUrl());
+					}
+				}
+			}
+		};
+
+		int workerCount = Math.min(maxWorkers, chunkCount);
+		if (workerCount <= 1) {
+			worker.run();
+		} else {
+			List<Future<?>> futures = new ArrayList<Future<?>>(workerCount);
+			for (int i = 0; i < workerCount; i++)
+				futures.add(ApplicationManager.getApplication().executeOnPooledThread(worker));
+			await(futures);
+		}
+
+		if (isCanceled(indicator))
+			throw new ProcessCanceledException();
+
+		List<R> results = new ArrayList<R>(files.size());
+		synchronized (chunkResults) {
+			for (List<R> chunk : chunkResults)
+				results.addAll(chunk);
+		}
+		return results;
+	}
+
+	private static void await(List<Future<?>> futures) {
+		RuntimeException failure = null;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ProcessCanceledException();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					Throwable cause = e.getCause();
+					failure = cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+				} else
+					LOG.warn("Additional failure while scanning files in parallel.", e.getCause());
+			}
+		}
+
+		if (failure != null)
+			throw failure;
+	}
+
+	private static boolean isCanceled(ProgressIndicator indicator) {
+		return indicator != null && indicator.isCanceled();
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiLiteralExpression;
+import com.intellij.psi.PsiStatement;
+import com.intellij.psi.util.PsiTreeUtil;
+import net.sf.logsupport.util.LogMessageUtil.LogMessage;
+import net.sf.logsupport.util.LogMessageUtil.MessageArtifact;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Is the set of text changes that integrate reviewed log messages into the project sources.
+ * <p/>
+ * The id of a log message is derived from its content, therefore a source message with the id of a reviewed
+ * message is still equal to the message that was reviewed. Integrating a review is a three-way merge where
+ * the message that was reviewed is the common base: Every editable artifact that was changed in the review
+ * is replaced inside all source messages having the same id.
+ * <p/>
+ * The change set is computed without modifying anything, it is applied afterwards using document edits
+ * on the precomputed literal ranges.
+ *
+ * @author Juergen_Kellerer, 2011-10-07
+ * @version 1.0
+ */
+public final class ReviewChangeSet {
+
+	private static final Logger LOG = Logger.getInstance("#net.sf.logsupport.util.ReviewChangeSet");
+
+	private static final Comparator<Change> POSITION_ORDER = new Comparator<Change>() {
+		public int compare(Change o1, Change o2) {
+			return o1.range.getStartOffset() - o2.range.getStartOffset();
+		}
+	};
+
+	/**
+	 * Describes the replacement of a single string literal.
+	 */
+	public static final class Change {
+
+		private final PsiFile file;
+		private final TextRange range, statementRange;
+		private final String oldText, newText;
+
+		Change(PsiFile file, TextRange range, TextRange statementRange, String oldText, String newText) {
+			this.file = file;
+			this.range = range;
+			this.statementRange = statementRange;
+			this.oldText = oldText;
+			this.newText = newText;
+		}
+
+		public PsiFile getFile() {
+			return file;
+		}
+
+		/**
+		 * Returns the range of the literal inside the file.
+		 *
+		 * @return the range of the literal inside the file.
+		 */
+		public TextRange getRange() {
+			return range;
+		}
+
+		/**
+		 * Returns the range of the statement that contains the literal.
+		 *
+		 * @return the range of the statement that contains the literal (or the range of the literal if it is
+		 *         not part of a statement).
+		 */
+		public TextRange getStatementRange() {
+			return statementRange;
+		}
+
+		/**
+		 * Returns the current text of the literal (including quotes).
+		 *
+		 * @return the current text of the literal (including quotes).
+		 */
+		public String getOldText() {
+			return oldText;
+		}
+
+		/**
+		 * Returns the text that replaces the literal (including quotes).
+		 *
+		 * @return the text that replaces the literal (including quotes).
+		 */
+		public String getNewText() {
+			return newText;
+		}
+
+		@Override
+		public String toString() {
+			return file.getName() + range + ": " + oldText + " -> " + newText;
+		}
+	}
+
+	/**
+	 * Computes the changes that integrate the reviewed messages.
+	 *
+	 * @param mappedMessages   the messages contained inside the project mapped against the PsiFile.
+	 * @param reviewedMessages a flat list of all reviewed messages.
+	 * @return the set of changes to apply.
+	 */
+	@NotNull
+	public static ReviewChangeSet create(@NotNull Map<PsiFile, Map<LogMessage, List<LogMessage>>> mappedMessages,
+										 @NotNull List<LogMessage> reviewedMessages) {
+		Map<String, LogMessage> reviewedById = new HashMap<String, LogMessage>(reviewedMessages.size() * 2);
+		for (LogMessage message : reviewedMessages) {
+			if (!reviewedById.containsKey(message.getId()))
+				reviewedById.put(message.getId(), message);
+		}
+
+		ReviewChangeSet changeSet = new ReviewChangeSet();
+		for (Map.Entry<PsiFile, Map<LogMessage, List<LogMessage>>> entry : mappedMessages.entrySet()) {
+			List<Change> fileChanges = null;
+
+			for (Map.Entry<LogMessage, List<LogMessage>> fileEntry : entry.getValue().entrySet()) {
+				LogMessage reviewed = reviewedById.get(fileEntry.getKey().getId());
+				if (reviewed == null)
+					continue;
+
+				for (LogMessage message : fileEntry.getValue()) {
+					List<Change> messageChanges = diff(entry.getKey(), message, reviewed);
+					if (messageChanges.isEmpty())
+						continue;
+
+					if (fileChanges == null)
+						fileChanges = new ArrayList<Change>();
+					fileChanges.addAll(messageChanges);
+					changeSet.messageCount++;
+				}
+			}
+
+			if (fileChanges != null) {
+				Collections.sort(fileChanges, POSITION_ORDER);
+				changeSet.changes.put(entry.getKey(), fileChanges);
+			}
+		}
+
+		return changeSet;
+	}
+
+	private static List<Change> diff(PsiFile file, LogMessage message, LogMessage reviewed) {
+		List<MessageArtifact> source = message.getLogMessage(), target = reviewed.getLogMessage();
+		if (source.size() != target.size()) {
+			LOG.warn("The log message artifacts differ in length, " +
+					"not applying reviewed message '" + reviewed + "' to '" + message + "'");
+			return Collections.emptyList();
+		}
+
+		List<Change> changes = Collections.emptyList();
+		for (int i = 0, len = source.size(); i < len; i++) {
+			MessageArtifact artifact = source.get(i);
+			PsiLiteralExpression literal = artifact.getValue();
+			String reviewedText = target.get(i).toString();
+
+			if (literal == null || artifact.toString().equals(reviewedText) || !literal.isValid())
+				continue;
+
+			if (changes.isEmpty())
+				changes = new ArrayList<Change>(2);
+			PsiStatement statement = PsiTreeUtil.getParentOfType(literal, PsiStatement.class);
+			TextRange range = literal.getTextRange();
+			changes.add(new Change(file, range, statement == null ? range : statement.getTextRange(),
+					literal.getText(), toLiteralText(reviewedText)));
+		}
+
+		if (changes.isEmpty() && LOG.isDebugEnabled())
+			LOG.debug("Not integrating unchanged log message '" + reviewed + "'");
+
+		return changes;
+	}
+
+	/**
+	 * Converts the given string value to the text of a Java string literal.
+	 *
+	 * @param text the text to convert.
+	 * @return the text of a string literal containing the given text.
+	 */
+	static String toLiteralText(String text) {
+		String delimiters = "\"\n\r\\";
+		StringBuilder string = new StringBuilder(text.length() + 4).append('"');
+		StringTokenizer t = new StringTokenizer(text, delimiters, true);
+
+		while (t.hasMoreTokens()) {
+			String token = t.nextToken();
+			if (token.length() == 1 && delimiters.indexOf(token.charAt(0)) != -1)
+				string.append('\\').append(token);
+			else
+				string.append(token);
+		}
+
+		return string.append('"').toString();
+	}
+
+	private final Map<PsiFile, List<Change>> changes = new LinkedHashMap<PsiFile, List<Change>>();
+	private int messageCount;
+
+	private ReviewChangeSet() {
+	}
+
+	/**
+	 * Returns true if the change set does not contain any changes.
+	 *
+	 * @return true if the change set does not contain any changes.
+	 */
+	public boolean isEmpty() {
+		return changes.isEmpty();
+	}
+
+	/**
+	 * Returns the number of source messages that are changed.
+	 *
+	 * @return the number of source messages that are changed.
+	 */
+	public int getMessageCount() {
+		return messageCount;
+	}
+
+	/**
+	 * Returns the files that are changed.
+	 *
+	 * @return the files that are changed.
+	 */
+	@NotNull
+	public Set<PsiFile> getFiles() {
+		return Collections.unmodifiableSet(changes.keySet());
+	}
+
+	/**
+	 * Returns the changes of the given file.
+	 *
+	 * @param file the file to return the changes for.
+	 * @return the changes of the given file, ordered by their position inside the file.
+	 */
+	@NotNull
+	public List<Change> getChanges(@NotNull PsiFile file) {
+		List<Change> fileChanges = changes.get(file);
+		return fileChanges == null ? Collections.<Change>emptyList() : Collections.unmodifiableList(fileChanges);
+	}
+
+	/**
+	 * Applies the changes of the given file to its document and commits the document.
+	 * <p/>
+	 * Must be called inside a write action. Changes whose range no longer contains the old text are skipped.
+	 *
+	 * @param file				 the file to apply the changes for.
+	 * @param reformatStatements whether the statements containing changed literals are reformatted.
+	 * @return the number of changes that were applied.
+	 */
+	public int apply(@NotNull PsiFile file, boolean reformatStatements) {
+		List<Change> fileChanges = changes.get(file);
+		if (fileChanges == null)
+			return 0;
+
+		DocumentEditBatch edits = new DocumentEditBatch(file);
+		for (Change change : fileChanges)
+			edits.replace(change.range, change.oldText, change.newText,
+					reformatStatements ? change.statementRange : null);
+
+		return edits.apply();
+	}
+}
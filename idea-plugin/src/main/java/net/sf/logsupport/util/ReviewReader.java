@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import net.sf.logsupport.L10N;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base of the SAX handlers that read log messages from review documents row by row.
+ * <p/>
+ * Implementations detect the review rows and report them with
+ * {@link #rowRead(String, String, String, String, String)}, the text of nested elements can be collected using
+ * {@link #startText()} and {@link #endText()}.
+ * <p/>
+ * When reading runs with a progress indicator, the amount of messages read so far is reported and reading
+ * stops with a {@link ProcessCanceledException} once the indicator is canceled.
+ *
+ * @author Juergen_Kellerer, 2011-10-06
+ * @version 1.0
+ */
+abstract class ReviewReader extends DefaultHandler {
+
+	private static final int PROGRESS_INTERVAL = 100;
+
+	private final List<LogMessageUtil.LogMessage> messages = new ArrayList<LogMessageUtil.LogMessage>();
+	private final ProgressIndicator indicator = ApplicationManager.getApplication() == null ? null :
+			ProgressManager.getInstance().getProgressIndicator();
+
+	private StringBuilder text;
+
+	/**
+	 * Is called for every review row that was read.
+	 *
+	 * @param id		 the message id of the row.
+	 * @param logLevel   the log level column.
+	 * @param logId	  the log id column.
+	 * @param logMessage the log message column.
+	 * @param logSource  the source column, containing one source location per line.
+	 */
+	protected void rowRead(String id, String logLevel, String logId, String logMessage, String logSource) {
+		if (indicator != null && indicator.isCanceled())
+			throw new ProcessCanceledException();
+
+		if (id == null || id.length() == 0)
+			return;
+
+		List<String> locations = new ArrayList<String>(1);
+		if (logSource != null) {
+			for (String location : logSource.split("[\\r\\n]+")) {
+				location = location.trim();
+				if (location.length() != 0)
+					locations.add(location);
+			}
+		}
+
+		messageRead(XHTMLCodec.toLogMessage(id, logLevel == null ? "" : logLevel.trim(),
+				logId == null ? "" : logId, logMessage == null ? "" : logMessage, locations));
+	}
+
+	/**
+	 * Is called for every log message that was read, the default implementation collects all messages.
+	 *
+	 * @param message the message that was read.
+	 */
+	protected void messageRead(LogMessageUtil.LogMessage message) {
+		messages.add(message);
+
+		if (indicator != null && messages.size() % PROGRESS_INTERVAL == 0)
+			indicator.setText2(L10N.message("IntegrateLogReview.decodeProgress", messages.size()));
+	}
+
+	/**
+	 * Returns all messages that were collected.
+	 *
+	 * @return all messages that were collected.
+	 */
+	List<LogMessageUtil.LogMessage> getMessages() {
+		return messages;
+	}
+
+	/**
+	 * Starts collecting the text of all following character events.
+	 */
+	protected void startText() {
+		text = new StringBuilder();
+	}
+
+	/**
+	 * Ends collecting text, returning the text that was collected.
+	 *
+	 * @return the text that was collected or 'null' if no text was collected.
+	 */
+	protected String endText() {
+		String result = text == null ? null : text.toString();
+		text = null;
+		return result;
+	}
+
+	/**
+	 * Returns true if text is currently collected.
+	 *
+	 * @return true if text is currently collected.
+	 */
+	protected boolean isCollectingText() {
+		return text != null;
+	}
+
+	/**
+	 * Appends the given text if text is currently collected.
+	 *
+	 * @param value the value to append.
+	 */
+	protected void appendText(String value) {
+		if (text != null)
+			text.append(value);
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) {
+		if (text != null)
+			text.append(ch, start, length);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Is a project level index of source roots that converts files to the locations used inside log reviews
+ * ("[module]: path/to/File.java").
+ * <p/>
+ * The index maps every source root to its module and caches the location prefix of every directory that was
+ * resolved, so that a file is located by walking up its parents until a known directory is found. The index
+ * is stored in the user data of the project and is rebuilt when the project roots change.
+ *
+ * @author Juergen_Kellerer, 2011-10-14
+ * @version 1.0
+ */
+final class SourceRootIndex {
+
+	private static final Key<SourceRootIndex> SOURCE_ROOT_INDEX = Key.create("LOG_SUPPORT_SOURCE_ROOT_INDEX");
+
+	/**
+	 * Is the prefix of directories that are not inside a source root.
+	 */
+	private static final String OUTSIDE_SOURCE_ROOTS = "";
+
+	/**
+	 * Returns the source root index of the given project, building it only if the project roots changed.
+	 *
+	 * @param project the project to return the index for.
+	 * @return the source root index of the given project.
+	 */
+	@NotNull
+	static SourceRootIndex getInstance(@NotNull Project project) {
+		final long rootsStamp = ProjectRootManager.getInstance(project).getModificationCount();
+
+		SourceRootIndex index = project.getUserData(SOURCE_ROOT_INDEX);
+		if (index == null || index.rootsStamp != rootsStamp) {
+			index = new SourceRootIndex(project, rootsStamp);
+			project.putUserData(SOURCE_ROOT_INDEX, index);
+		}
+
+		return index;
+	}
+
+	private final long rootsStamp;
+	private final ConcurrentMap<VirtualFile, String> directoryLocations = new ConcurrentHashMap<VirtualFile, String>();
+
+	private SourceRootIndex(Project project, long rootsStamp) {
+		this.rootsStamp = rootsStamp;
+
+		for (Module module : ModuleManager.getInstance(project).getModules()) {
+			String prefix = "[" + module.getName() + "]: ";
+			for (VirtualFile sourceRoot : VirtualFileUtil.getSourceDirectories(module, true)) {
+				if (!directoryLocations.containsKey(sourceRoot))
+					directoryLocations.put(sourceRoot, prefix);
+			}
+		}
+	}
+
+	/**
+	 * Returns the location of the given file as it is written into log reviews.
+	 *
+	 * @param file the file to locate.
+	 * @return "[module]: relative/path" if the file is inside a source root, the presentable URL otherwise.
+	 */
+	@NotNull
+	String getLocation(@NotNull VirtualFile file) {
+		VirtualFile directory = file.getParent();
+		String prefix = directory == null ? OUTSIDE_SOURCE_ROOTS : getDirectoryLocation(directory);
+		return prefix.length() == 0 ? file.getPresentableUrl() : prefix.concat(file.getName());
+	}
+
+	private String getDirectoryLocation(VirtualFile directory) {
+		List<VirtualFile> unknownDirectories = new ArrayList<VirtualFile>();
+
+		String location = null;
+		for (VirtualFile d = directory; d != null && location == null; d = d.getParent()) {
+			location = directoryLocations.get(d);
+			if (location == null)
+				unknownDirectories.add(d);
+		}
+
+		if (location == null)
+			location = OUTSIDE_SOURCE_ROOTS;
+
+		for (int i = unknownDirectories.size() - 1; i >= 0; i--) {
+			VirtualFile d = unknownDirectories.get(i);
+			if (location.length() != 0)
+				location = location + d.getName() + '/';
+			directoryLocations.put(d, location);
+		}
+
+		return location;
+	}
+}
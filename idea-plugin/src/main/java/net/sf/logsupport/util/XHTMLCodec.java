@@ -16,24 +16,20 @@
 
 package net.sf.logsupport.util;
 
-import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.psi.PsiMethodCallExpression;
 import org.jetbrains.annotations.NotNull;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import javax.xml.parsers.DocumentBuilder;
-import java.io.File;
-import java.io.IOException;
+import org.xml.sax.Attributes;
+
+import java.io.*;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import static net.sf.logsupport.util.XmlUtil.createDocumentBuilder;
+import static net.sf.logsupport.util.XHTMLReviewTemplate.writeLineBreak;
+import static net.sf.logsupport.util.XHTMLReviewTemplate.writeText;
 
 /**
  * Writes and reads log reviews using the XHTML format.
@@ -77,82 +73,115 @@ public class XHTMLCodec extends LogMessageUtil implements Codec {
 	 */
 	@NotNull
 	public List<LogMessage> decode(@NotNull File logReview) throws IOException {
+		ReviewTableReader reader = new ReviewTableReader();
+		XmlUtil.parse(logReview, reader);
 
-		List<LogMessage> results = new ArrayList<LogMessage>();
+		if (!reader.tableFound)
+			throw new IOException("Table element not found inside document.");
+		if (reader.rowCount == 0)
+			throw new IOException("The table doesn't contain any useful rows.");
 
-		Document source;
-		try {
-			DocumentBuilder builder = createDocumentBuilder();
-			source = builder.parse(logReview);
-		} catch (ProcessCanceledException e) {
-			throw e;
-		} catch (Throwable e) {
-			throw new IOException(e);
-		}
+		return reader.getMessages();
+	}
 
-		Element table = null;
-		NodeList nl = source.getElementsByTagName("table");
-		for (int i = 0, len = nl.getLength(); i < len; i++)
-			if ("reviewTable".equals(((Element)nl.item(i)).getAttribute("id")))
-				table = (Element) nl.item(i);
+	/**
+	 * Converts the content of a review row to a log message.
+	 *
+	 * @param id		 the message id.
+	 * @param logLevel   the log level.
+	 * @param logId	  the log id.
+	 * @param logMessage the message text containing the markers for constant parts.
+	 * @param locations  the source locations of the message.
+	 * @return a new log message.
+	 */
+	static LogMessage toLogMessage(@NotNull String id, @NotNull String logLevel, @NotNull String logId,
+								   @NotNull String logMessage, @NotNull List<String> locations) {
+		logMessage = logId + logMessage.trim();
+
+		int idx = 0;
+		Matcher matcher = SPLIT_PATTERN.matcher(logMessage);
+		List<String> messageArtifacts = new ArrayList<String>();
+
+		if (matcher.find()) {
+			do {
+				if (idx != matcher.start())
+					messageArtifacts.add(logMessage.substring(idx, matcher.start()));
+				if (matcher.group().equals(MARKER_CONSTANT_BREAK))
+					messageArtifacts.add(DELIMITED_ARTIFACT);
+				else if (matcher.group().equals(MARKER_CONSTANT_VALUE))
+					messageArtifacts.add(VARIABLE_ARTIFACT);
+				idx = matcher.end();
+			} while (matcher.find());
+
+			messageArtifacts.add(logMessage.substring(idx));
+
+		} else
+			messageArtifacts.add(logMessage);
+
+		return newMessage(id, logLevel, logId, locations,
+				messageArtifacts.toArray(new String[messageArtifacts.size()]));
+	}
 
-		if (table == null)
-			throw new IOException("Table element not found inside document.");
+	/**
+	 * Reads the rows of the table with id 'reviewTable' from a stream of SAX events.
+	 * <p/>
+	 * The first row of the table is the header row, any other row having an id is a message.
+	 */
+	private static final class ReviewTableReader extends ReviewReader {
 
-		NodeList rows = table.getElementsByTagName("tr");
-		if (rows == null || rows.getLength() == 0)
-			throw new IOException("The table doesn't contain any useful rows.");
+		boolean tableFound;
+		int rowCount;
 
-		for (int i = 1, len = rows.getLength(); i < len; i++) {
-			Element row = (Element) rows.item(i);
-			String logId = "", logMessage = "", id = row.getAttribute("id");
-			NodeList columns = row.getElementsByTagName("td");
-
-			if (columns == null || id == null || id.isEmpty())
-				continue;
-
-			for (int j = 0, jlen = columns.getLength(); j < jlen; j++) {
-				Element td = (Element) columns.item(j);
-				String className = td.getAttribute("class");
-				if ("logId".equals(className))
-					logId = td.getTextContent();
-				else if ("logMessage".equals(className))
-					logMessage = td.getTextContent();
-			}
+		private int depth, tableDepth = -1, rowDepth = -1, cellDepth = -1;
+		private String rowId, cellClass, logLevel, logId, logMessage, logSource;
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) {
+			depth++;
+			String name = localName == null || localName.length() == 0 ? qName : localName;
 
-			if (logMessage != null) {
-
-				logMessage = logMessage.trim();
-
-				if (logId != null)
-					logMessage = logId + logMessage;
-				
-				int idx = 0;
-				Matcher matcher = SPLIT_PATTERN.matcher(logMessage);
-				List<String> messageArtifacts = new ArrayList<String>();
-
-				if (matcher.find()) {
-					do {
-						if (idx != matcher.start())
-							messageArtifacts.add(logMessage.substring(idx, matcher.start()));
-						if (matcher.group().equals(MARKER_CONSTANT_BREAK))
-							messageArtifacts.add(DELIMITED_ARTIFACT);
-						else if (matcher.group().equals(MARKER_CONSTANT_VALUE))
-							messageArtifacts.add(VARIABLE_ARTIFACT);
-						idx = matcher.end();
-					} while (matcher.find());
-
-					messageArtifacts.add(logMessage.substring(idx));
-					
-				} else
-					messageArtifacts.add(logMessage);
-
-				results.add(newMessage(id, null, logId,
-						messageArtifacts.toArray(new String[messageArtifacts.size()])));
+			if (tableDepth == -1) {
+				if ("table".equals(name) && "reviewTable".equals(attributes.getValue("id"))) {
+					tableDepth = depth;
+					tableFound = true;
+				}
+			} else if (rowDepth == -1) {
+				if ("tr".equals(name) && rowCount++ > 0) {
+					rowDepth = depth;
+					rowId = attributes.getValue("id");
+					logLevel = logId = logMessage = logSource = "";
+				}
+			} else if (cellDepth == -1 && "td".equals(name)) {
+				cellClass = attributes.getValue("class");
+				if ("logLevel".equals(cellClass) || "logId".equals(cellClass) ||
+						"logMessage".equals(cellClass) || "logSource".equals(cellClass)) {
+					cellDepth = depth;
+					startText();
+				}
 			}
 		}
 
-		return results;
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			if (depth == cellDepth) {
+				String text = endText();
+				if ("logLevel".equals(cellClass))
+					logLevel = text;
+				else if ("logId".equals(cellClass))
+					logId = text;
+				else if ("logMessage".equals(cellClass))
+					logMessage = text;
+				else
+					logSource = text;
+				cellDepth = -1;
+			} else if (depth == rowDepth) {
+				rowRead(rowId, logLevel, logId, logMessage, logSource);
+				rowDepth = -1;
+			} else if (depth == tableDepth)
+				tableDepth = -1;
+
+			depth--;
+		}
 	}
 
 	/**
@@ -161,78 +190,98 @@ public class XHTMLCodec extends LogMessageUtil implements Codec {
 	public void encode(@NotNull List<PsiMethodCallExpression> expressionList,
 					   @NotNull File logReview) throws IOException {
 		if (expressionList.isEmpty())
-			return;		
-
-		final Document template = XmlUtil.parse(
-				getClass().getResourceAsStream("/net/sf/logsupport/LogReview.template.xhtml"));
-
-		String title = "Log Review for Project \"" + expressionList.get(0).getProject().getName() + '"';
-		template.getElementsByTagName("title").item(0).setTextContent(title);
-		template.getElementsByTagName("h1").item(0).setTextContent(title);
-
-		Element constantWrapper = template.getElementById("constantWrapper");
-		Element templateRow = template.getElementById("templateRow");
-		Element templateInsertPosition = (Element) templateRow.getParentNode();
-		templateInsertPosition.removeChild(templateRow);
-
-		for (Map.Entry<LogMessage, List<LogMessage>> entry : toMessages(expressionList, false).entrySet()) {
-			Element row = (Element) templateRow.cloneNode(true);
-
-			NodeList nl = row.getElementsByTagName("td");
-			for (int i = 0, len = nl.getLength(); i < len; i++) {
-				Element td = (Element) nl.item(i);
-				String className = td.getAttribute("class");
-				if ("logId".equals(className))
-					td.setTextContent(entry.getKey().getLogId());
-				else if ("logLevel".equals(className))
-					td.setTextContent(entry.getKey().getLogLevel());
-				else if ("logSource".equals(className)) {
-					td.setTextContent("");
-					boolean first = true;
-					for (LogMessage logEntry : entry.getValue()) {
-						if (first)
-							first = false;
-						else
-							td.appendChild(template.createElement("br"));
-						td.appendChild(template.createTextNode(logEntry.getSource().concat("\n")));
-					}
-				} else if ("logMessage".equals(className)) {
-					Element tr = (Element) td.getParentNode();
-					tr.setAttribute("id", entry.getKey().getId());
-
-					td.setTextContent("");
-					for (MessageArtifact artifact : entry.getKey().getLogMessage()) {
-						if (artifact.isEditable()) {
-							String t = artifact.toString(), logId = entry.getKey().getLogId();
-							if (logId != null && t.startsWith(logId))
-								t = t.substring(logId.length());
-							td.appendChild(template.createTextNode(t));
-						} else {
-							String text = artifact.toString();
-							if (VARIABLE_ARTIFACT.equals(text))
-								text = MARKER_CONSTANT_VALUE;
-							else if (DELIMITED_ARTIFACT.equals(text))
-								text = MARKER_CONSTANT_BREAK;
-
-							Element constant = (Element) constantWrapper.cloneNode(false);
-							constant.removeAttribute("id");
-							constant.setTextContent(text);
-							td.appendChild(constant);
-						}
-					}
-				}
-			}
+			return;
 
-			// Add the new content
-			nl = row.getChildNodes();
-			for (int i = 0, len = nl.getLength(); i < len; i++) {
-				Node n = nl.item(i);
-				templateInsertPosition.appendChild(template.importNode(n, true));
-			}
+		encode(toDetachedMessages(expressionList).iterator(), expressionList.get(0).getProject().getName(), logReview);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void encode(@NotNull Iterator<LogMessage> logMessages, @NotNull String projectName,
+					   @NotNull File logReview) throws IOException {
+		if (!logMessages.hasNext())
+			return;
+
+		String title = "Log Review for Project \"" + projectName + '"';
+		XHTMLReviewTemplate template = XHTMLReviewTemplate.getInstance();
+		Map<LogMessage, List<LogMessage>> messages = groupMessages(logMessages);
+
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logReview), XmlUtil.UTF8));
+		try {
+			template.writeHeader(out, title);
+			for (Map.Entry<LogMessage, List<LogMessage>> entry : messages.entrySet())
+				template.writeRow(out, new MessageRowWriter(template, entry.getKey(), entry.getValue()));
+			template.writeFooter(out);
+		} finally {
+			out.close();
 		}
+	}
 
-		// Write the document.
-		XmlUtil.serialize(template, logReview);
+	/**
+	 * Returns the text that represents the given message artifact inside a review.
+	 * <p/>
+	 * Editable artifacts are returned without the log ID, constant artifacts are converted to their markers.
+	 *
+	 * @param message  the message containing the artifact.
+	 * @param artifact the artifact to convert.
+	 * @return the text that represents the given message artifact inside a review.
+	 */
+	static String toReviewText(LogMessage message, MessageArtifact artifact) {
+		String text = artifact.toString();
+		if (artifact.isEditable()) {
+			String logId = message.getLogId();
+			if (logId != null && logId.length() != 0 && text.startsWith(logId))
+				text = text.substring(logId.length());
+		} else if (VARIABLE_ARTIFACT.equals(text))
+			text = MARKER_CONSTANT_VALUE;
+		else if (DELIMITED_ARTIFACT.equals(text))
+			text = MARKER_CONSTANT_BREAK;
+		return text;
+	}
+
+	/**
+	 * Fills the slots of a single review row with the content of one unique log message.
+	 */
+	private static final class MessageRowWriter implements XHTMLReviewTemplate.RowWriter {
+
+		final XHTMLReviewTemplate template;
+		final LogMessage message;
+		final List<LogMessage> occurrences;
+
+		MessageRowWriter(XHTMLReviewTemplate template, LogMessage message, List<LogMessage> occurrences) {
+			this.template = template;
+			this.message = message;
+			this.occurrences = occurrences;
+		}
+
+		public void writeSlot(@NotNull String slot, @NotNull Writer out) throws IOException {
+			String logId = message.getLogId() == null ? "" : message.getLogId();
+
+			if (XHTMLReviewTemplate.ROW_ID_SLOT.equals(slot))
+				writeText(out, message.getId());
+			else if ("logId".equals(slot))
+				writeText(out, logId);
+			else if ("logLevel".equals(slot))
+				writeText(out, message.getLogLevel());
+			else if ("logSource".equals(slot)) {
+				boolean first = true;
+				for (LogMessage logEntry : occurrences) {
+					if (first)
+						first = false;
+					else
+						writeLineBreak(out);
+					writeText(out, logEntry.getSource().concat("\n"));
+				}
+			} else if ("logMessage".equals(slot)) {
+				for (MessageArtifact artifact : message.getLogMessage()) {
+					if (artifact.isEditable())
+						writeText(out, toReviewText(message, artifact));
+					else
+						template.writeConstant(out, toReviewText(message, artifact));
+				}
+			}
+		}
 	}
 
 	@Override
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the XHTML log review template into static text and row slots, allowing to write reviews
+ * as a stream without building a DOM.
+ * <p/>
+ * The template row (the content of the element with id 'templateRow') is repeated once per message.
+ * Everything before and after the template row is copied unchanged, except for the title placeholder.
+ *
+ * @author Juergen_Kellerer, 2011-10-05
+ * @version 1.0
+ */
+final class XHTMLReviewTemplate {
+
+	static final String TEMPLATE_RESOURCE = "/net/sf/logsupport/LogReview.template.xhtml";
+
+	static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+	static final String TITLE_PLACEHOLDER = "-LogReview-";
+
+	private static final Pattern TEMPLATE_ROW = Pattern.compile(
+			"<tbody\\s+id=\"templateRow\"[^>]*>(.*?)</tbody>", Pattern.DOTALL);
+	private static final Pattern CONSTANT_WRAPPER = Pattern.compile(
+			"<span\\s+id=\"constantWrapper\"([^>]*)>");
+	private static final Pattern ROW_SLOTS = Pattern.compile(
+			"(\\sid=\")rowId(\")|(<td\\s+class=\"(\\w+)\"[^>]*>).*?(</td>)", Pattern.DOTALL);
+
+	/**
+	 * Is the name of the slot that receives the row id attribute value.
+	 */
+	static final String ROW_ID_SLOT = "#rowId";
+
+	private static XHTMLReviewTemplate instance;
+
+	/**
+	 * Returns the shared instance of the template.
+	 *
+	 * @return the shared instance of the template.
+	 * @throws IOException if the template cannot be read.
+	 */
+	static synchronized XHTMLReviewTemplate getInstance() throws IOException {
+		if (instance == null) {
+			InputStream in = XHTMLReviewTemplate.class.getResourceAsStream(TEMPLATE_RESOURCE);
+			if (in == null)
+				throw new IOException("The review template " + TEMPLATE_RESOURCE + " is missing.");
+			try {
+				instance = new XHTMLReviewTemplate(readFully(new InputStreamReader(in, XmlUtil.UTF8)));
+			} finally {
+				in.close();
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Writes the content of a single template row.
+	 */
+	interface RowWriter {
+		/**
+		 * Writes the content of the given slot.
+		 *
+		 * @param slot either {@link #ROW_ID_SLOT} or the class name of the table column.
+		 * @param out  the writer that receives the XHTML content.
+		 * @throws IOException in case of the writer failed.
+		 */
+		void writeSlot(@NotNull String slot, @NotNull Writer out) throws IOException;
+	}
+
+	private final String header, footer, constantStartTag;
+	private final List<Object> rowSegments = new ArrayList<Object>();
+
+	XHTMLReviewTemplate(String templateText) throws IOException {
+		Matcher matcher = TEMPLATE_ROW.matcher(templateText);
+		if (!matcher.find())
+			throw new IOException("The review template does not define a 'templateRow'.");
+
+		header = templateText.substring(0, matcher.start());
+		footer = templateText.substring(matcher.end());
+
+		Matcher constantMatcher = CONSTANT_WRAPPER.matcher(header);
+		constantStartTag = constantMatcher.find() ? "<span" + constantMatcher.group(1) + '>' : "<span class=\"constant\">";
+
+		String row = matcher.group(1);
+		Matcher slots = ROW_SLOTS.matcher(row);
+		int idx = 0;
+		while (slots.find()) {
+			if (slots.group(1) != null) {
+				rowSegments.add(row.substring(idx, slots.start()) + slots.group(1));
+				rowSegments.add(new Slot(ROW_ID_SLOT));
+				rowSegments.add(slots.group(2));
+			} else {
+				rowSegments.add(row.substring(idx, slots.start()) + slots.group(3));
+				rowSegments.add(new Slot(slots.group(4)));
+				rowSegments.add(slots.group(5));
+			}
+			idx = slots.end();
+		}
+		rowSegments.add(row.substring(idx));
+	}
+
+	/**
+	 * Writes the XML declaration and all content before the first row.
+	 *
+	 * @param out   the output to write to.
+	 * @param title the title of the review.
+	 * @throws IOException in case of the writer failed.
+	 */
+	void writeHeader(@NotNull Writer out, @NotNull String title) throws IOException {
+		out.write(XML_DECLARATION);
+		int idx = 0, next;
+		while ((next = header.indexOf(TITLE_PLACEHOLDER, idx)) != -1) {
+			out.write(header, idx, next - idx);
+			writeText(out, title);
+			idx = next + TITLE_PLACEHOLDER.length();
+		}
+		out.write(header, idx, header.length() - idx);
+	}
+
+	/**
+	 * Writes one row, using the given row writer to fill the slots.
+	 *
+	 * @param out       the output to write to.
+	 * @param rowWriter the row writer providing the slot contents.
+	 * @throws IOException in case of the writer failed.
+	 */
+	void writeRow(@NotNull Writer out, @NotNull RowWriter rowWriter) throws IOException {
+		for (Object segment : rowSegments) {
+			if (segment instanceof Slot)
+				rowWriter.writeSlot(((Slot) segment).name, out);
+			else
+				out.write((String) segment);
+		}
+	}
+
+	/**
+	 * Writes all content after the last row.
+	 *
+	 * @param out the output to write to.
+	 * @throws IOException in case of the writer failed.
+	 */
+	void writeFooter(@NotNull Writer out) throws IOException {
+		out.write(footer);
+	}
+
+	/**
+	 * Writes escaped text (that is also safe to use inside attribute values).
+	 *
+	 * @param out  the output to write to.
+	 * @param text the text to write.
+	 * @throws IOException in case of the writer failed.
+	 */
+	static void writeText(@NotNull Writer out, @NotNull String text) throws IOException {
+		XmlUtil.writeEscaped(out, text);
+	}
+
+	/**
+	 * Writes an element marking a constant (non-editable) part of a message.
+	 *
+	 * @param out  the output to write to.
+	 * @param text the text of the constant.
+	 * @throws IOException in case of the writer failed.
+	 */
+	void writeConstant(@NotNull Writer out, @NotNull String text) throws IOException {
+		out.write(constantStartTag);
+		writeText(out, text);
+		out.write("</span>");
+	}
+
+	/**
+	 * Writes a line break element.
+	 *
+	 * @param out the output to write to.
+	 * @throws IOException in case of the writer failed.
+	 */
+	static void writeLineBreak(@NotNull Writer out) throws IOException {
+		out.write("<br/>");
+	}
+
+	private static String readFully(Reader reader) throws IOException {
+		StringBuilder builder = new StringBuilder(8 * 1024);
+		char[] buffer = new char[4 * 1024];
+		for (int r; (r = reader.read(buffer)) != -1; )
+			builder.append(buffer, 0, r);
+		return builder.toString();
+	}
+
+	private static final class Slot {
+		final String name;
+
+		Slot(String name) {
+			this.name = name;
+		}
+	}
+}
@@ -4,20 +4,26 @@ import org.w3c.dom.Document;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.io.Writer;
 import java.net.URI;
 import java.nio.charset.Charset;
 
@@ -31,22 +37,73 @@ public class XmlUtil {
 
 	static final Charset UTF8 = Charset.forName("UTF-8");
 
+	/**
+	 * Resolves DTDs and entities from the plugin resources instead of loading them from the file system.
+	 */
+	static final EntityResolver RESOURCE_RESOLVER = new EntityResolver() {
+		public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
+			InputStream source = !systemId.startsWith("file:") ? null :
+					getClass().getResourceAsStream("/net/sf/logsupport/" +
+							new File(URI.create(systemId)).getName());
+
+			return source == null ? new InputSource(new StringReader("")) : new InputSource(source);
+		}
+	};
+
 	public static DocumentBuilder createDocumentBuilder() throws ParserConfigurationException {
 		DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
 		builderFactory.setNamespaceAware(true);
 		DocumentBuilder builder = builderFactory.newDocumentBuilder();
-		builder.setEntityResolver(new EntityResolver() {
-			public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
-				InputStream source = !systemId.startsWith("file:") ? null :
-						getClass().getResourceAsStream("/net/sf/logsupport/" +
-								new File(URI.create(systemId)).getName());
-
-				return source == null ? new InputSource(new StringReader("")) : new InputSource(source);
-			}
-		});
+		builder.setEntityResolver(RESOURCE_RESOLVER);
 		return builder;
 	}
 
+	/**
+	 * Parses the given file as a stream of SAX events, without building a document in memory.
+	 *
+	 * @param file	the file to parse.
+	 * @param handler the handler receiving the SAX events.
+	 * @throws IOException if the file cannot be read or is not well formed.
+	 */
+	public static void parse(File file, DefaultHandler handler) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			InputSource source = new InputSource(in);
+			source.setSystemId(file.toURI().toString());
+			parse(source, handler);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Parses the given input as a stream of SAX events, without building a document in memory.
+	 *
+	 * @param input   the input to parse.
+	 * @param handler the handler receiving the SAX events.
+	 * @throws IOException if the input cannot be read or is not well formed.
+	 */
+	public static void parse(InputSource input, DefaultHandler handler) throws IOException {
+		try {
+			SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+			parserFactory.setNamespaceAware(true);
+			XMLReader reader = parserFactory.newSAXParser().getXMLReader();
+			reader.setEntityResolver(RESOURCE_RESOLVER);
+			reader.setContentHandler(handler);
+			reader.setErrorHandler(handler);
+			reader.parse(input);
+		} catch (SAXException e) {
+			Exception cause = e.getException();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			throw new IOException(e);
+		} catch (ParserConfigurationException e) {
+			throw new IOException(e);
+		}
+	}
+
 	public static Document parse(File file) throws IOException {
 		try {
 			return createDocumentBuilder().parse(file);
@@ -72,6 +129,41 @@ public class XmlUtil {
 		}		
 	}
 
+	/**
+	 * Writes the given text with all XML markup characters escaped, the result is valid as text
+	 * content and as attribute value.
+	 *
+	 * @param out  the output to write to.
+	 * @param text the text to write.
+	 * @throws IOException in case of the writer failed.
+	 */
+	public static void writeEscaped(Writer out, String text) throws IOException {
+		int idx = 0;
+		for (int i = 0, len = text.length(); i < len; i++) {
+			String replacement;
+			switch (text.charAt(i)) {
+				case '&':
+					replacement = "&amp;";
+					break;
+				case '<':
+					replacement = "&lt;";
+					break;
+				case '>':
+					replacement = "&gt;";
+					break;
+				case '"':
+					replacement = "&quot;";
+					break;
+				default:
+					continue;
+			}
+			out.write(text, idx, i - idx);
+			out.write(replacement);
+			idx = i + 1;
+		}
+		out.write(text, idx, text.length() - idx);
+	}
+
 	private XmlUtil() {
 	}
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.config;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the handling of frameworks that are modified in place.
+ *
+ * @author Juergen_Kellerer, 2011-10-19
+ * @version 1.0
+ */
+public class ApplicationConfigurationTest {
+
+	@Test
+	public void testLevelTableIsRebuiltAfterLogMethodsChangedInPlace() throws Exception {
+		LogFramework framework = new LogFramework("Custom");
+		List<LogFramework> frameworks = new ArrayList<LogFramework>();
+		frameworks.add(framework);
+
+		ApplicationConfiguration configuration = new ApplicationConfiguration();
+		configuration.setFrameworks(frameworks);
+
+		Object[] arguments = {"\"message\""};
+		assertEquals(LogLevel.info, framework.getLogLevelTable().findLevel("info", arguments));
+
+		// Same as LogFrameworkEditor applying edited level methods to a live framework.
+		framework.getLogMethod().put(LogLevel.info, "inform");
+		configuration.frameworksChanged();
+
+		assertEquals(LogLevel.info, framework.getLogLevelTable().findLevel("inform", arguments));
+		assertNull(framework.getLogLevelTable().findLevel("info", arguments));
+	}
+}
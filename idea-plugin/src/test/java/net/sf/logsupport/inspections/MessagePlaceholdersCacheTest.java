@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.inspections;
+
+import org.junit.Test;
+
+import static net.sf.logsupport.config.LogFramework.MessageFormatType.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the hit counting, the size bound and the statistics of the placeholders cache.
+ *
+ * @author Juergen_Kellerer, 2011-10-19
+ * @version 1.0
+ */
+public class MessagePlaceholdersCacheTest {
+
+	@Test
+	public void testCountsHitsAndMisses() {
+		MessagePlaceholdersCache cache = new MessagePlaceholdersCache();
+
+		MessagePlaceholders placeholders = cache.get(printf, "%s of %d", null);
+		assertSame(placeholders, cache.get(printf, "%s of %d", null));
+		assertNotSame(placeholders, cache.get(messageformat, "%s of %d", null));
+		assertSame(cache.get(custom, "{} of {}", "\\{\\}"), cache.get(custom, "{} of {}", "\\{\\}"));
+
+		assertEquals(2, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(0.4D, cache.getHitRate(), 0.0001D);
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+		assertEquals(0D, cache.getHitRate(), 0D);
+	}
+
+	@Test
+	public void testIgnoresCustomPatternOfOtherTypes() {
+		MessagePlaceholdersCache cache = new MessagePlaceholdersCache();
+
+		MessagePlaceholders placeholders = cache.get(printf, "%s", "a");
+		assertSame(placeholders, cache.get(printf, "%s", "b"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testIsClearedWhenFull() {
+		MessagePlaceholdersCache cache = new MessagePlaceholdersCache(3);
+
+		for (int i = 0; i < 3; i++)
+			cache.get(printf, "message " + i, null);
+		assertEquals(3, cache.size());
+
+		MessagePlaceholders placeholders = cache.get(printf, "message 3", null);
+		assertEquals(1, cache.size());
+		assertSame(placeholders, cache.get(printf, "message 3", null));
+
+		cache.get(printf, "message 0", null);
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(5, cache.getMissCount());
+	}
+
+	@Test
+	public void testLogsStatisticsPeriodically() {
+		final int[] statistics = {0};
+		MessagePlaceholdersCache cache = new MessagePlaceholdersCache() {
+			@Override
+			void logStatistics() {
+				statistics[0]++;
+				assertTrue(toString().contains("hitRate="));
+			}
+		};
+
+		for (int i = 1; i < MessagePlaceholdersCache.STATISTICS_INTERVAL; i++)
+			cache.get(printf, "message " + (i % 10), null);
+		assertEquals(0, statistics[0]);
+
+		cache.get(printf, "message", null);
+		assertEquals(1, statistics[0]);
+
+		for (int i = 0; i < MessagePlaceholdersCache.STATISTICS_INTERVAL; i++)
+			cache.get(printf, "message", null);
+		assertEquals(2, statistics[0]);
+	}
+}
@@ -18,6 +18,7 @@ package net.sf.logsupport.inspections;
 
 import org.junit.Test;
 
+import static net.sf.logsupport.util.ArgumentType.*;
 import static org.junit.Assert.*;
 
 /**
@@ -34,63 +35,84 @@ public class VerifyFormattedMessageTest {
 
 	@Test
 	public void testCustomReportsTooMany() {
-		String result = inspection.evaluateCustom(customMessageTemplate, "\\{\\}", "custom", 2, "third");
+		String result = inspection.evaluateCustom(customMessageTemplate, "\\{\\}", OTHER, INT, OTHER);
 		assertEquals(inspection.createInvalidArgumentCountMessage(2, 3), result);
 	}
 
 	@Test
 	public void testCustomReportsNotEnough() {
-		String result = inspection.evaluateCustom(customMessageTemplate, "\\{\\}", "custom");
+		String result = inspection.evaluateCustom(customMessageTemplate, "\\{\\}", OTHER);
 		assertEquals(inspection.createInvalidArgumentCountMessage(2, 1), result);
 	}
 
 	@Test
 	public void testCustomPassesValid() {
-		assertNull(inspection.evaluateCustom(customMessageTemplate, "\\{\\}", "custom", 2));
+		assertNull(inspection.evaluateCustom(customMessageTemplate, "\\{\\}", OTHER, INT));
 	}
 
 	@Test
 	public void testMessageFormatReportsTooMany() {
-		String result = inspection.evaluateMessageFormat(mfTemplate, "first", 2, "custom", "fourth");
+		String result = inspection.evaluateMessageFormat(mfTemplate, OTHER, INT, OTHER, OTHER);
 		assertEquals(inspection.createInvalidArgumentCountMessage(3, 4), result);
 	}
 
 	@Test
 	public void testMessageFormatReportsNotEnough() {
-		String result = inspection.evaluateMessageFormat(mfTemplate, "first", 2);
+		String result = inspection.evaluateMessageFormat(mfTemplate, OTHER, INT);
 		assertEquals(inspection.createInvalidArgumentCountMessage(3, 2), result);
 	}
 
 	@Test
 	public void testMessageFormatReportsInvalidValue() {
-		String result = inspection.evaluateMessageFormat(mfTemplate, "x", "y", "z");
+		String result = inspection.evaluateMessageFormat(mfTemplate, OTHER, OTHER, OTHER);
 		assertEquals(inspection.createInvalidArgumentTypeMessage(2), result);
 	}
 
 	@Test
 	public void testMessageReportsInvalidPatternFormat() {
 		assertEquals(inspection.createInvalidFormatMessage("can't parse argument number").trim(),
-				inspection.evaluateMessageFormat("{} {0}", "first").trim());
+				inspection.evaluateMessageFormat("{} {0}", OTHER).trim());
 		assertEquals(inspection.createInvalidArgumentCountMessage(0, 1),
-				inspection.evaluateMessageFormat("' {0}", "first"));
+				inspection.evaluateMessageFormat("' {0}", OTHER));
 	}
 
 	@Test
 	public void testMessageFormatPassesValid() {
-		assertNull(inspection.evaluateMessageFormat(mfTemplate, "first", 2, "custom"));
+		assertNull(inspection.evaluateMessageFormat(mfTemplate, OTHER, INT, OTHER));
 		assertNull(inspection.evaluateMessageFormat(""));
 	}
 
 	@Test
 	public void testPrintfPassesValid() {
-		assertNull(inspection.evaluatePrintf("Message %s %d", "string", 9));
+		assertNull(inspection.evaluatePrintf("Message %s %d", OTHER, INT));
 		assertNull(inspection.evaluatePrintf("Message"));
 	}
 
 	@Test
 	public void testPrintfReportsInValid() {
-		assertNotNull(inspection.evaluatePrintf("Message %s %d", 9, "string"));
-		assertNotNull(inspection.evaluatePrintf("Message %s %d", "string"));
-		assertNotNull(inspection.evaluatePrintf("Message %s %d", 9));
+		assertNotNull(inspection.evaluatePrintf("Message %s %d", INT, OTHER));
+		assertNotNull(inspection.evaluatePrintf("Message %s %d", OTHER));
+		assertNotNull(inspection.evaluatePrintf("Message %s %d", INT));
+	}
+
+	@Test
+	public void testPrintfVerifiesIndexedAndDateArguments() {
+		assertNull(inspection.evaluatePrintf("%2$s %1$tY %<tm %n%%", DATE, OTHER));
+		assertNull(inspection.evaluatePrintf("%tH:%<tM %c %.2f", LONG, CHAR, DOUBLE));
+		assertNotNull(inspection.evaluatePrintf("%tH", OTHER));
+		assertNotNull(inspection.evaluatePrintf("%c", LONG));
+		assertNotNull(inspection.evaluatePrintf("%.2d", INT));
+		assertNotNull(inspection.evaluatePrintf("%q", INT));
+		assertNotNull(inspection.evaluatePrintf("%2$s", OTHER));
+	}
+
+	@Test
+	public void testMessageFormatVerifiesFormatTypes() {
+		assertNull(inspection.evaluateMessageFormat("'{0}' {0,date,short} '{'{1,choice,0#none|1#one}", LONG, INT));
+		assertNull(inspection.evaluateMessageFormat("{0,time,HH:mm} {1, number,#.##}", DATE, FLOAT));
+		assertEquals(inspection.createInvalidArgumentTypeMessage(1),
+				inspection.evaluateMessageFormat("{0,date}", BOOLEAN));
+		assertNotNull(inspection.evaluateMessageFormat("{0,unknown}", OTHER));
+		assertNotNull(inspection.evaluateMessageFormat("{0", OTHER));
 	}
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import com.intellij.openapi.util.TextRange;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the collection of edits (applying the edits requires a document and is not covered here).
+ *
+ * @author Juergen_Kellerer, 2011-10-19
+ * @version 1.0
+ */
+public class DocumentEditBatchTest {
+
+	static final String UNWRAPPED = "log.debug(\"a\"); log.debug(\"b\");";
+	static final String CONDITION = "if (log.isDebugEnabled()) { " + UNWRAPPED + " }";
+	static final String SOURCE = "class A { void a() { " + CONDITION + " } }";
+
+	// The file is only used when the edits are applied.
+	final DocumentEditBatch batch = new DocumentEditBatch(null);
+
+	static TextRange rangeOf(String text) {
+		int start = SOURCE.indexOf(text);
+		return new TextRange(start, start + text.length());
+	}
+
+	@Test
+	public void testConditionGuardingTwoCallsIsReplacedOnce() {
+		// Unwrapping the condition is requested once per guarded call.
+		batch.replace(rangeOf(CONDITION), CONDITION, UNWRAPPED, true);
+		batch.replace(rangeOf(CONDITION), CONDITION, UNWRAPPED, true);
+
+		assertEquals(1, batch.size());
+	}
+
+	@Test
+	public void testDifferentEditsOfTheSameRangeAreKept() {
+		batch.replace(rangeOf(CONDITION), CONDITION, UNWRAPPED, true);
+		batch.replace(rangeOf(CONDITION), CONDITION, UNWRAPPED, false);
+		batch.replace(rangeOf(CONDITION), CONDITION, "log.debug(\"a\");", true);
+
+		assertEquals(3, batch.size());
+	}
+
+	@Test
+	public void testUnchangedTextIsIgnored() {
+		batch.replace(rangeOf("log.debug(\"a\")"), "log.debug(\"a\")", "log.debug(\"a\")", false);
+
+		assertTrue(batch.isEmpty());
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the lock-free allocation of log IDs.
+ *
+ * @author Juergen_Kellerer, 2011-10-17
+ * @version 1.0
+ */
+public class LeasingLogIdGeneratorTest {
+
+	static LeasingLogIdGenerator createGenerator(int sequence, int increment) {
+		return new LeasingLogIdGenerator("LOG%05d:", Pattern.compile("^([A-Za-z0-9]+:).*$", Pattern.DOTALL),
+				sequence, increment);
+	}
+
+	@Test
+	public void testParallelAllocationIsUniqueAndDense() throws Exception {
+		final LeasingLogIdGenerator generator = createGenerator(0, 1);
+		final ConcurrentMap<String, Boolean> ids = new ConcurrentHashMap<String, Boolean>();
+		final int threadCount = 8, idsPerThread = 5000;
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < threadCount; i++) {
+			final boolean useLeases = i % 2 == 0;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					if (useLeases) {
+						for (int i = 0; i < idsPerThread; i += 50) {
+							LeasingLogIdGenerator.Lease lease = generator.lease(50);
+							while (lease.hasNext())
+								ids.put(lease.nextId(), Boolean.TRUE);
+						}
+					} else {
+						for (int i = 0; i < idsPerThread; i++)
+							ids.put(generator.nextId(), Boolean.TRUE);
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(threadCount * idsPerThread, ids.size());
+		assertEquals(threadCount * idsPerThread, generator.getSequenceValue());
+		assertTrue(ids.containsKey(generator.createId(threadCount * idsPerThread - 1)));
+	}
+
+	@Test
+	public void testExhaustionIsSignalled() throws Exception {
+		LeasingLogIdGenerator generator = createGenerator(0, 2);
+		generator.setMinSequenceValue(4);
+		generator.setMaxSequenceValue(8);
+
+		assertEquals("LOG00004:", generator.nextId());
+		assertEquals("LOG00006:", generator.nextId());
+		assertEquals("LOG00008:", generator.nextId());
+
+		try {
+			generator.nextId();
+			fail("Expected the IDs to be exhausted.");
+		} catch (LogIdExhaustedException e) {
+			assertEquals(8, e.getMaxSequenceValue());
+		}
+
+		generator.setSequenceValue(6);
+		try {
+			generator.lease(3);
+			fail("Expected the IDs to be exhausted.");
+		} catch (LogIdExhaustedException e) {
+			assertEquals(6, generator.getSequenceValue());
+		}
+
+		assertEquals("LOG00012:", generator.createId(12));
+	}
+
+	@Test
+	public void testUnusedLeasedValuesAreReturned() throws Exception {
+		LeasingLogIdGenerator generator = createGenerator(10, 1);
+
+		LeasingLogIdGenerator.Lease lease = generator.lease(10);
+		assertEquals(10, lease.nextValue());
+		assertEquals(11, lease.nextValue());
+		assertEquals(20, generator.getSequenceValue());
+		assertTrue(lease.release());
+		assertFalse(lease.hasNext());
+		assertEquals(12, generator.getSequenceValue());
+
+		lease = generator.lease(10);
+		assertEquals(12, lease.nextValue());
+		assertEquals("LOG00022:", generator.nextId());
+		assertFalse(lease.release());
+		assertTrue(lease.hasNext());
+		assertEquals(23, generator.getSequenceValue());
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * Times creating and parsing log IDs with {@link LogIdFormat} against the former implementation, which used
+ * {@link String#format} to create and a regular expression split to parse IDs.
+ * <p/>
+ * This is not a unit test and is not run by the build, it is started manually from the test classpath:
+ * <pre>
+ * java -cp target/classes:target/test-classes net.sf.logsupport.util.LogIdFormatBenchmark [idFormat] [operations]
+ * </pre>
+ * The numbers are indicative only, the first rounds include the JIT warm up.
+ *
+ * @author Juergen_Kellerer, 2011-10-18
+ * @version 1.0
+ */
+public class LogIdFormatBenchmark {
+
+	private static final int ROUNDS = 5;
+
+	private static final Pattern SPLIT_PATTERN = Pattern.compile("[^A-Fa-f0-9]+");
+
+	public static void main(String[] args) {
+		final String idFormat = args.length > 0 ? args[0] : "LOG%05d:";
+		final int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+
+		final LogIdFormat format = LogIdFormat.compile(idFormat);
+		long sink = 0;
+
+		System.out.printf("Creating and parsing %d IDs with format '%s' (compiled: %s).%n",
+				operations, idFormat, format.isCompiled());
+
+		for (int round = 1; round <= ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < operations; i++) {
+				String id = String.format(idFormat, i % 99999);
+				sink += formerParse(idFormat, id);
+			}
+			long formerTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < operations; i++) {
+				String id = format.format(i % 99999);
+				sink += format.parse(id);
+			}
+			long compiledTime = System.nanoTime() - start;
+
+			System.out.printf("Round %d: String.format & split %.0f ns/op, LogIdFormat %.0f ns/op%n", round,
+					formerTime / (double) operations, compiledTime / (double) operations);
+		}
+
+		// Printing the sink to keep the loops from being optimized away.
+		System.out.println("Checksum: " + sink);
+	}
+
+	/**
+	 * Is the former implementation of BasicLogIdGenerator.parseSequenceValue(String).
+	 *
+	 * @param idFormat the id format.
+	 * @param id	   the id to parse.
+	 * @return the parsed sequence value.
+	 */
+	static int formerParse(String idFormat, String id) {
+		String[] parts = SPLIT_PATTERN.split(id);
+		if (parts.length > 0) {
+			if (String.format(idFormat, Integer.decode("#ffff")).contains("ffff"))
+				return Integer.parseInt(parts[parts.length - 1], 16);
+			return Integer.parseInt(parts[parts.length - 1]);
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import org.junit.Test;
+
+import java.util.DuplicateFormatFlagsException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that precompiled log id formats behave like {@link String#format}.
+ *
+ * @author Juergen_Kellerer, 2011-10-18
+ * @version 1.0
+ */
+public class LogIdFormatTest {
+
+	static final String[] FORMATS = {
+			"LOG%05d:", "LOG%05x:", "LOG%05X:", "#ID%d;", "%08x", "ABC%3d#", "100%%-%04d-%%", "%d"
+	};
+
+	static final int[] VALUES = {0, 1, 9, 10, 15, 16, 255, 4095, 65535, 99999, 100000, 0xfffff, Integer.MAX_VALUE};
+
+	@Test
+	public void testFormatMatchesStringFormat() throws Exception {
+		for (String idFormat : FORMATS) {
+			LogIdFormat format = LogIdFormat.compile(idFormat);
+			assertTrue(idFormat, format.isCompiled());
+
+			for (int value : VALUES) {
+				String expected = String.format(idFormat, value);
+				assertEquals(expected, format.format(value));
+				assertEquals("x" + expected, format.format(value, new StringBuilder("x")).toString());
+			}
+		}
+	}
+
+	@Test
+	public void testParseRoundTrip() throws Exception {
+		for (String idFormat : FORMATS) {
+			LogIdFormat format = LogIdFormat.compile(idFormat);
+			for (int value : VALUES)
+				assertEquals(idFormat, value, format.parse(format.format(value)));
+		}
+	}
+
+	@Test
+	public void testParseForeignIds() throws Exception {
+		LogIdFormat decimal = LogIdFormat.compile("LOG%05d:"), hexadecimal = LogIdFormat.compile("LOG%05x:");
+
+		assertEquals(42, decimal.parse("#MSG00042;"));
+		assertEquals(0x42, hexadecimal.parse("#MSG00042;"));
+		assertEquals(-1, decimal.parse("LOG:"));
+		assertEquals(-1, decimal.parse("LOGabc:"));
+		assertEquals(-1, decimal.parse("LOG99999999999:"));
+		assertEquals(-1, decimal.parse(null));
+	}
+
+	@Test
+	public void testUnsupportedFormatsFallBack() throws Exception {
+		for (String idFormat : new String[]{"LOG%+05d:", "LOG%,d", "%d-%d", "LOG%s", "LOG%#x", "X%004Xs0"}) {
+			LogIdFormat format = LogIdFormat.compile(idFormat);
+			assertFalse(idFormat, format.isCompiled());
+		}
+
+		LogIdFormat format = LogIdFormat.compile("LOG%#x:");
+		assertEquals(String.format("LOG%#x:", 4711), format.format(4711));
+		assertEquals(16, format.getRadix());
+		assertEquals("LOG-0042:", LogIdFormat.compile("LOG%05d:").format(-42));
+
+		try {
+			LogIdFormat.compile("X%004Xs0").format(42);
+			fail("Expected the duplicate flag to be rejected like String.format does.");
+		} catch (DuplicateFormatFlagsException e) {
+			assertEquals("0", e.getFlags());
+		}
+	}
+}
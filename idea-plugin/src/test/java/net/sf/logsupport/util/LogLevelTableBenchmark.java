@@ -0,0 +1,185 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import net.sf.logsupport.config.LogFramework;
+import net.sf.logsupport.config.LogLevel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times the log level detection of {@link LogLevelTable} against the former linear lookup.
+ * <p/>
+ * The former lookup (LogPsiUtil.findLogLevel before the level tables) iterated all log methods of the framework,
+ * built a reference call text per level, fetched the reference call from a cache and compared method text and
+ * arguments. Creating and comparing PSI needs a running IDE, therefore the baseline performs the same steps on
+ * the texts of the reference calls (parsed once and cached like the PSI before), which makes the baseline
+ * faster than the original and the comparison conservative.
+ * <p/>
+ * This is not a unit test and is not run by the build, it is started manually from the test classpath:
+ * <pre>
+ * java -cp target/classes:target/test-classes net.sf.logsupport.util.LogLevelTableBenchmark [operations]
+ * </pre>
+ * The numbers are indicative only, the first rounds include the JIT warm up.
+ *
+ * @author Juergen_Kellerer, 2011-10-19
+ * @version 1.0
+ */
+public class LogLevelTableBenchmark {
+
+	private static final int ROUNDS = 5;
+
+	private static final String QUALIFIER = "log";
+
+	/**
+	 * Is a call as seen by the lookup: the referenced method name and the argument texts.
+	 */
+	static final class Call {
+
+		final LogFramework framework;
+		final String methodName;
+		final String[] arguments;
+
+		Call(LogFramework framework, String methodName, String... arguments) {
+			this.framework = framework;
+			this.methodName = methodName;
+			this.arguments = arguments;
+		}
+	}
+
+	public static void main(String[] args) {
+		final int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+
+		LogFramework slf4j = LogLevelTableTest.getDefaultFramework("org.slf4j.Logger");
+		LogFramework jul = LogLevelTableTest.getDefaultFramework("java.util.logging.Logger");
+
+		List<Call> calls = new ArrayList<Call>();
+		for (LogLevel level : LogLevel.values())
+			calls.add(new Call(slf4j, level.name(), "\"message {}\"", "value"));
+		calls.add(new Call(jul, "log", "Level.FINE", "\"message\""));
+		calls.add(new Call(jul, "log", "Level.SEVERE", "\"message\"", "e"));
+		calls.add(new Call(jul, "info", "\"message\""));
+		calls.add(new Call(slf4j, "isDebugEnabled"));
+
+		final Call[] callArray = calls.toArray(new Call[calls.size()]);
+		final Map<String, ReferenceCall> referenceCache = new HashMap<String, ReferenceCall>();
+		long sink = 0;
+
+		for (Call call : callArray) {
+			if (formerFindLevel(call, referenceCache) != call.framework.getLogLevelTable().findLevel(
+					call.methodName, call.arguments))
+				throw new IllegalStateException("Lookups differ for " + call.methodName);
+		}
+
+		System.out.printf("Detecting the level of %d calls.%n", operations);
+
+		for (int round = 1; round <= ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < operations; i++) {
+				LogLevel level = formerFindLevel(callArray[i % callArray.length], referenceCache);
+				sink += level == null ? -1 : level.ordinal();
+			}
+			long formerTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < operations; i++) {
+				Call call = callArray[i % callArray.length];
+				LogLevel level = call.framework.getLogLevelTable().findLevel(call.methodName, call.arguments);
+				sink += level == null ? -1 : level.ordinal();
+			}
+			long tableTime = System.nanoTime() - start;
+
+			System.out.printf("Round %d: linear lookup %.0f ns/op, LogLevelTable %.0f ns/op%n", round,
+					formerTime / (double) operations, tableTime / (double) operations);
+		}
+
+		// Printing the sink to keep the loops from being optimized away.
+		System.out.println("Checksum: " + sink);
+	}
+
+	/**
+	 * Replicates the former linear lookup on texts.
+	 *
+	 * @param call		   the call to detect the level of.
+	 * @param referenceCache the cache of parsed reference calls.
+	 * @return the detected level or 'null'.
+	 */
+	static LogLevel formerFindLevel(Call call, Map<String, ReferenceCall> referenceCache) {
+		String methodText = QUALIFIER + '.' + call.methodName;
+		for (Map.Entry<LogLevel, String> e : call.framework.getLogMethod().entrySet()) {
+			String key = QUALIFIER + "." + e.getValue().trim() + (e.getValue().contains("(") ? "" : "()");
+
+			ReferenceCall reference = referenceCache.get(key);
+			if (reference == null)
+				referenceCache.put(key, reference = ReferenceCall.parse(key));
+
+			if (reference.isEquivalentTo(methodText, call.arguments))
+				return e.getKey();
+		}
+		return null;
+	}
+
+	/**
+	 * Is the parsed text of a reference call, standing in for the PSI reference call.
+	 */
+	static final class ReferenceCall {
+
+		static ReferenceCall parse(String text) {
+			int argumentsStart = text.indexOf('(');
+			String arguments = text.substring(argumentsStart + 1).trim();
+			if (arguments.endsWith(")"))
+				arguments = arguments.substring(0, arguments.length() - 1);
+
+			String[] argumentTexts = arguments.length() == 0 ? new String[0] : arguments.split(",", -1);
+			for (int i = 0; i < argumentTexts.length; i++)
+				argumentTexts[i] = argumentTexts[i].trim();
+
+			return new ReferenceCall(text.substring(0, argumentsStart).trim(), argumentTexts);
+		}
+
+		final String methodText;
+		final String[] arguments;
+
+		ReferenceCall(String methodText, String[] arguments) {
+			this.methodText = methodText;
+			this.arguments = arguments;
+		}
+
+		/**
+		 * Is the text based equivalent of LogPsiUtil.isEquivalentTo(full, partial).
+		 *
+		 * @param fullMethodText the method text of the actual call.
+		 * @param fullArguments  the argument texts of the actual call.
+		 * @return true if the actual call matches this reference call.
+		 */
+		boolean isEquivalentTo(String fullMethodText, String[] fullArguments) {
+			if (!methodText.equals(fullMethodText))
+				return false;
+
+			for (int i = 0; i < arguments.length; i++) {
+				if (arguments[i].length() == 0)
+					continue;
+				if (i >= fullArguments.length || !arguments[i].endsWith(fullArguments[i]))
+					return false;
+			}
+			return true;
+		}
+	}
+}
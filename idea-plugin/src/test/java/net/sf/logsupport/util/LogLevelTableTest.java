@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import net.sf.logsupport.config.LogFramework;
+import net.sf.logsupport.config.LogLevel;
+import net.sf.logsupport.config.defaults.LogFrameworkDefaultsList;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the level detection of the log level table.
+ *
+ * @author Juergen_Kellerer, 2011-10-03
+ * @version 1.0
+ */
+public class LogLevelTableTest {
+
+	static LogFramework getDefaultFramework(String loggerClass) {
+		for (LogFramework framework : new LogFrameworkDefaultsList()) {
+			if (loggerClass.equals(framework.getLoggerClass()))
+				return framework;
+		}
+		throw new IllegalArgumentException(loggerClass);
+	}
+
+	@Test
+	public void testPlainMethodNames() throws Exception {
+		LogLevelTable table = getDefaultFramework("org.slf4j.Logger").getLogLevelTable();
+		for (LogLevel level : LogLevel.values())
+			assertEquals(level, table.findLevel(level.name(), new Object[]{"\"message\""}));
+
+		assertNull(table.findLevel("isDebugEnabled", new Object[0]));
+	}
+
+	@Test
+	public void testFixedLeadingArguments() throws Exception {
+		LogLevelTable table = getDefaultFramework("java.util.logging.Logger").getLogLevelTable();
+
+		assertEquals(LogLevel.debug, table.findLevel("log", new Object[]{"Level.FINE", "\"message\""}));
+		assertEquals(LogLevel.debug, table.findLevel("log", new Object[]{"java.util.logging.Level.FINE", "\"m\""}));
+		assertEquals(LogLevel.trace, table.findLevel("log", new Object[]{"FINER", "\"message\""}));
+		assertEquals(LogLevel.error, table.findLevel("log", new Object[]{"Level.SEVERE"}));
+		assertNull(table.findLevel("log", new Object[]{"Level.ALL", "\"message\""}));
+		assertNull(table.findLevel("log", new Object[0]));
+	}
+
+	@Test
+	public void testClosedArgumentListsAndNestedExpressions() throws Exception {
+		Map<LogLevel, String> methods = new EnumMap<LogLevel, String>(LogLevel.class);
+		methods.put(LogLevel.info, " write(Levels.get(\"a,b\"), x) ");
+		methods.put(LogLevel.warn, "write(Levels.get(\"c\"), ");
+		methods.put(LogLevel.error, "other.write");
+
+		LogLevelTable table = new LogLevelTable(methods);
+		assertEquals(LogLevel.info, table.findLevel("write", new Object[]{"Levels.get(\"a,b\")", "x"}));
+		assertEquals(LogLevel.warn, table.findLevel("write", new Object[]{"get(\"c\")", "y"}));
+		assertNull(table.findLevel("write", new Object[]{"Levels.get(\"a,b\")", "y"}));
+		assertNull(table.findLevel("other.write", new Object[0]));
+	}
+}
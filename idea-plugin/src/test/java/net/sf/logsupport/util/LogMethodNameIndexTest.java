@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import net.sf.logsupport.config.LogFramework;
+import net.sf.logsupport.config.LogLevel;
+import net.sf.logsupport.config.defaults.LogFrameworkDefaultsList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the method name index behaves like the plain substring search over all fragments.
+ *
+ * @author Juergen_Kellerer, 2011-10-02
+ * @version 1.0
+ */
+public class LogMethodNameIndexTest {
+
+	static boolean containedInAnyFragment(List<LogFramework> frameworks, String name) {
+		if (frameworks.isEmpty())
+			return true;
+		for (LogFramework framework : frameworks) {
+			for (String methodFragment : framework.getLogMethod().values()) {
+				if (methodFragment.contains(name))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void testMatchesLikeSubstringSearch() throws Exception {
+		List<LogFramework> frameworks = new ArrayList<LogFramework>(new LogFrameworkDefaultsList());
+		LogMethodNameIndex index = new LogMethodNameIndex(frameworks);
+
+		String[] names = {"", "debug", "ebu", "info", "warn", "error", "fatal", "trace", "d", "e", "v", "log",
+				"toString", "equals", "debugX", "isDebugEnabled", "getLogger", "Level", "FINE"};
+		for (String name : names)
+			assertEquals(name, containedInAnyFragment(frameworks, name), index.matches(name));
+	}
+
+	@Test
+	public void testEmptyFrameworksMatchAnything() throws Exception {
+		LogMethodNameIndex index = new LogMethodNameIndex(Collections.<LogFramework>emptyList());
+		assertTrue(index.matches("anything"));
+		assertTrue(index.matches(null));
+	}
+
+	@Test
+	public void testFrameworkWithoutFragmentsMatchesNothing() throws Exception {
+		LogFramework framework = new LogFramework("none");
+		framework.getLogMethod().clear();
+		LogMethodNameIndex index = new LogMethodNameIndex(Collections.singletonList(framework));
+		assertFalse(index.matches(""));
+		assertFalse(index.matches(LogLevel.debug.name()));
+	}
+}
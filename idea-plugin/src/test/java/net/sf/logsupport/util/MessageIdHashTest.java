@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import net.sf.logsupport.util.LogMessageUtil.IdVersion;
+import net.sf.logsupport.util.LogMessageUtil.LogMessage;
+import org.junit.Test;
+
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the streaming message hash and the detection of ID versions.
+ *
+ * @author Juergen_Kellerer, 2011-10-13
+ * @version 1.0
+ */
+public class MessageIdHashTest {
+
+	static String hash(String text) {
+		return new MessageIdHash().append(text).toHexString();
+	}
+
+	static String md5(String text) throws Exception {
+		StringBuilder b = new StringBuilder();
+		for (byte value : MessageDigest.getInstance("md5").digest(text.getBytes("UTF-8")))
+			b.append(String.format("%02x", value));
+		return b.toString();
+	}
+
+	@Test
+	public void testKnownValues() throws Exception {
+		assertEquals("00000000000000000000000000000000", hash(""));
+		assertEquals("45fa79d008beca0fbd552c233fb18a1e", hash("null"));
+		assertEquals("1930b69ba9e2df0b70fab07495ca6975", hash("info-Hello World"));
+		assertEquals("efe534bbf9c86b60a0c71a613fe72daa", hash("infoID-42-Message ? with / delimiters"));
+	}
+
+	@Test
+	public void testHashIsIndependentOfChunks() throws Exception {
+		String text = "warnLOG-0815-Failed to open '?' after / attempts, \u00e4\u00f6\u00fc";
+		for (int split = 0; split <= text.length(); split++) {
+			MessageIdHash hash = new MessageIdHash();
+			hash.append(text.substring(0, split));
+			for (char c : text.substring(split).toCharArray())
+				hash.append(c);
+			assertEquals(hash(text), hash.toHexString());
+		}
+
+		assertEquals(hash("null"), new MessageIdHash().append((CharSequence) null).toHexString());
+	}
+
+	@Test
+	public void testIdVersionDetection() throws Exception {
+		assertEquals(IdVersion.MD5, IdVersion.of("d41d8cd98f00b204e9800998ecf8427e"));
+		assertEquals(IdVersion.MURMUR3, IdVersion.of("v2-" + hash("")));
+		assertEquals(IdVersion.MD5, IdVersion.of((String) null));
+	}
+
+	@Test
+	public void testIdsOfOtherVersions() throws Exception {
+		String v2Id = "v2-" + hash("infoID-42-Hello World"), md5Id = md5("infoID-42-Hello World");
+
+		LogMessage message = LogMessageUtil.newMessage(v2Id, "info", "ID-42", "Hello ", "World");
+		assertEquals(v2Id, message.getId(IdVersion.MURMUR3));
+		assertEquals(md5Id, message.getId(IdVersion.MD5));
+
+		message = LogMessageUtil.newMessage(md5Id, "info", "ID-42", "Hello ", "World");
+		assertEquals(md5Id, message.getId(IdVersion.MD5));
+		assertEquals(v2Id, message.getId(IdVersion.MURMUR3));
+	}
+}
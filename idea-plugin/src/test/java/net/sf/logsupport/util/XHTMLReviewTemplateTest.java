@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010, Juergen Kellerer and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.logsupport.util;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that reviews streamed through the XHTML template are well formed and contain the expected rows.
+ *
+ * @author Juergen_Kellerer, 2011-10-05
+ * @version 1.0
+ */
+public class XHTMLReviewTemplateTest {
+
+	@Test
+	public void testStreamedReviewIsWellFormed() throws Exception {
+		final XHTMLReviewTemplate template = XHTMLReviewTemplate.getInstance();
+		File file = File.createTempFile("log-review", ".xhtml");
+		try {
+			Writer out = new OutputStreamWriter(new FileOutputStream(file), XmlUtil.UTF8);
+			try {
+				template.writeHeader(out, "Review of \"A & B\"");
+				for (int i = 0; i < 3; i++) {
+					final int row = i;
+					template.writeRow(out, new XHTMLReviewTemplate.RowWriter() {
+						public void writeSlot(String slot, Writer out) throws IOException {
+							if (XHTMLReviewTemplate.ROW_ID_SLOT.equals(slot))
+								XHTMLReviewTemplate.writeText(out, "id" + row);
+							else if ("logMessage".equals(slot)) {
+								XHTMLReviewTemplate.writeText(out, "a < b ");
+								template.writeConstant(out, "#?#");
+							} else
+								XHTMLReviewTemplate.writeText(out, slot);
+						}
+					});
+				}
+				template.writeFooter(out);
+			} finally {
+				out.close();
+			}
+
+			Document document = XmlUtil.parse(file);
+			assertEquals("Review of \"A & B\"", document.getElementsByTagName("title").item(0).getTextContent());
+			assertEquals("Review of \"A & B\"", document.getElementsByTagName("h1").item(0).getTextContent());
+
+			NodeList rows = document.getElementsByTagName("tr");
+			assertEquals(4, rows.getLength());
+			for (int i = 1; i < 4; i++) {
+				Element row = (Element) rows.item(i);
+				assertEquals("id" + (i - 1), row.getAttribute("id"));
+
+				NodeList columns = row.getElementsByTagName("td");
+				assertEquals(4, columns.getLength());
+				for (int j = 0; j < columns.getLength(); j++) {
+					Element td = (Element) columns.item(j);
+					String className = td.getAttribute("class");
+					if ("logMessage".equals(className)) {
+						assertEquals("a < b #?#", td.getTextContent());
+						assertEquals("constant", ((Element) td.getElementsByTagName("span").item(0)).getAttribute("class"));
+					} else
+						assertEquals(className, td.getTextContent());
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+}